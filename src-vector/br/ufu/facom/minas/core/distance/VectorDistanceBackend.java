@@ -0,0 +1,103 @@
+package br.ufu.facom.minas.core.distance;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementation of the {@link DistanceBackend} interface built on the
+ * incubating JDK Vector API. The squared differences are accumulated lane by
+ * lane and reduced at the end of each row, so the results may differ in the
+ * last bits from the ones of the {@link ScalarDistanceBackend}.
+ *
+ * <p>This class requires Java 16 or higher and the
+ * {@code jdk.incubator.vector} module, and is loaded reflectively by
+ * {@link DistanceKernel} when the {@code vector} backend is requested.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class VectorDistanceBackend implements DistanceBackend {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void calculateSquaredDistances(final double[] point,
+                                          final double[] matrix,
+                                          final int rows,
+                                          final int dimensions,
+                                          final double[] result) {
+
+        for (int row = 0; row < rows; ++row) {
+            result[row] = squaredDistance(point, 0, matrix, row * dimensions, dimensions);
+        }
+    }
+
+    @Override
+    public int calculateClosestRow(final double[] points,
+                                   final int pointOffset,
+                                   final double[] matrix,
+                                   final int fromRow,
+                                   final int toRow,
+                                   final int dimensions) {
+
+        int closest = -1;
+        double minDistance = Double.MAX_VALUE;
+        double minSquaredDistance = Double.POSITIVE_INFINITY;
+        for (int row = fromRow; row < toRow; ++row) {
+            final double squaredDistance = squaredDistance(points, pointOffset, matrix, row * dimensions,
+                    dimensions);
+            if (squaredDistance < minSquaredDistance && Math.sqrt(squaredDistance) < minDistance) {
+                minDistance = Math.sqrt(squaredDistance);
+                minSquaredDistance = squaredDistance;
+                closest = row;
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    public void calculateClosestRows(final double[] points,
+                                     final int pointRows,
+                                     final double[] matrix,
+                                     final int rows,
+                                     final int dimensions,
+                                     final int[] result) {
+
+        for (int i = 0; i < pointRows; ++i) {
+            result[i] = this.calculateClosestRow(points, i * dimensions, matrix, 0, rows, dimensions);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "vector (" + SPECIES.length() + " lanes)";
+    }
+
+    private static double squaredDistance(final double[] a,
+                                          final int aOffset,
+                                          final double[] b,
+                                          final int bOffset,
+                                          final int length) {
+
+        final int upperBound = SPECIES.loopBound(length);
+
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < upperBound; i += SPECIES.length()) {
+            final DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOffset + i);
+            final DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOffset + i);
+            final DoubleVector difference = va.sub(vb);
+            sum = difference.fma(difference, sum);
+        }
+
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; ++i) {
+            final double difference = a[aOffset + i] - b[bOffset + i];
+            result += difference * difference;
+        }
+
+        return result;
+    }
+
+}
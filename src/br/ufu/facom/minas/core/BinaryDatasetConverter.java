@@ -0,0 +1,137 @@
+package br.ufu.facom.minas.core;
+
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class converts dataset csv files, in the layout read by
+ * {@link DatasetFileReader}, to the binary columnar format read by
+ * {@link BinaryDatasetFileReader}. The csv file is read a single time, and
+ * only the label column is kept in memory until the end of the conversion.
+ *
+ * <p>Usage: {@code java -cp bin br.ufu.facom.minas.core.BinaryDatasetConverter
+ * <csv file> <binary file> [separator] [float32]}
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class BinaryDatasetConverter {
+
+    public static void main(final String[] args) throws Exception {
+
+        if (args.length < 2) {
+            System.err.println("Usage: BinaryDatasetConverter <csv file> <binary file> [separator] [float32]");
+            System.exit(1);
+        }
+
+        final String separator = args.length > 2 ? args[2] : ",";
+        final boolean isSinglePrecision = args.length > 3 && args[3].equals("float32");
+        final long rows = convert(separator, args[0], args[1], isSinglePrecision);
+        System.out.println(rows + " rows written to " + args[1]);
+    }
+
+    /**
+     * Converts a dataset csv file to the binary columnar format.
+     *
+     * @param separator the column separator of the csv file.
+     * @param csvPath the path of the csv file.
+     * @param binaryPath the path of the binary file, which is overwritten.
+     * @param isSinglePrecision whether the features are stored as float32
+     *                          values instead of float64 values.
+     * @return the number of rows written.
+     * @throws Exception if a problem occurs while reading or writing the
+     * files.
+     */
+    public static long convert(final String separator,
+                               final String csvPath,
+                               final String binaryPath,
+                               final boolean isSinglePrecision) throws Exception {
+
+        final DatasetFileReader reader = new DatasetFileReader(separator, csvPath);
+        final Map<String, Integer> labelIds = new HashMap<>();
+        final List<String> labels = new ArrayList<>();
+        int[] labelColumn = new int[1024];
+        long rows = 0;
+        int dimensions = -1;
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(binaryPath), 1 << 16))) {
+
+            // Reserves the space of the header, which is only known at the
+            // end of the conversion.
+            output.write(new byte[BinaryDatasetFileReader.HEADER_SIZE]);
+
+            DataInstance instance = reader.getNext();
+            while (instance != null) {
+
+                if (dimensions == -1) {
+                    dimensions = instance.getLength();
+                } else if (instance.getLength() != dimensions) {
+                    throw new IOException("Row " + (rows + 1) + " has " + instance.getLength()
+                            + " features instead of " + dimensions);
+                }
+
+                for (int i = 0; i < dimensions; ++i) {
+                    if (isSinglePrecision) {
+                        output.writeFloat((float) instance.get(i));
+                    } else {
+                        output.writeDouble(instance.get(i));
+                    }
+                }
+
+                Integer labelId = labelIds.get(instance.getLabel());
+                if (labelId == null) {
+                    labelId = labels.size();
+                    labelIds.put(instance.getLabel(), labelId);
+                    labels.add(instance.getLabel());
+                }
+                if (rows == labelColumn.length) {
+                    labelColumn = Arrays.copyOf(labelColumn, labelColumn.length * 2);
+                }
+                labelColumn[(int) rows] = labelId;
+                ++rows;
+
+                instance = reader.getNext();
+            }
+
+            for (int i = 0; i < rows; ++i) {
+                output.writeInt(labelColumn[i]);
+            }
+
+            output.writeInt(labels.size());
+            for (final String label : labels) {
+                output.writeUTF(label);
+            }
+
+        } finally {
+            reader.close();
+        }
+
+        final int featureSize = isSinglePrecision ? Float.SIZE / Byte.SIZE : Double.SIZE / Byte.SIZE;
+        final long labelColumnOffset = BinaryDatasetFileReader.HEADER_SIZE
+                + rows * Math.max(dimensions, 0) * featureSize;
+        final long dictionaryOffset = labelColumnOffset + rows * (Integer.SIZE / Byte.SIZE);
+
+        try (RandomAccessFile file = new RandomAccessFile(binaryPath, "rw")) {
+            file.writeInt(BinaryDatasetFileReader.MAGIC);
+            file.writeInt(BinaryDatasetFileReader.VERSION);
+            file.writeInt(Math.max(dimensions, 0));
+            file.writeInt(featureSize);
+            file.writeLong(rows);
+            file.writeLong(labelColumnOffset);
+            file.writeLong(dictionaryOffset);
+        }
+
+        return rows;
+    }
+}
@@ -0,0 +1,273 @@
+package br.ufu.facom.minas.core;
+
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class is used to read data instances from dataset files in the
+ * binary columnar format written by {@link BinaryDatasetConverter}, with the
+ * same timestamp control as {@link DatasetFileReader}. The files are
+ * memory-mapped, so that the features of each data instance are copied
+ * straight from the page cache, without any parsing, and the labels are
+ * taken from the dictionary of the file, so that data instances with the
+ * same label share the same {@link String}.
+ *
+ * <p>The format, in big-endian byte order, is made of:
+ * <ul>
+ * <li>a header with the magic number {@value #MAGIC}, the format version, the
+ * dimensionality, the number of bytes per feature (4 or 8), the number of
+ * rows, and the offsets of the label column and of the label dictionary;</li>
+ * <li>the features of all the rows, with a fixed width, as float32 or
+ * float64 values;</li>
+ * <li>the label column, with the index of the label of each row inside the
+ * dictionary, as an int32 value;</li>
+ * <li>the label dictionary, with the number of labels followed by each label
+ * in modified UTF-8.</li>
+ * </ul>
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class BinaryDatasetFileReader {
+
+    static final int MAGIC = 0x4D4E5342;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+
+    // Maximum number of bytes of features mapped at once.
+    private static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+    private long timestamp;
+    private final String[] paths;
+    private int activePath;
+    private BinaryDatasetFile activeFile;
+
+    public BinaryDatasetFileReader(final String... paths) throws IOException {
+        this.timestamp = 1;
+        this.paths = paths;
+        this.activePath = 0;
+        this.activeFile = new BinaryDatasetFile(paths[0]);
+    }
+
+    /**
+     * Reads and returns the next data instance in the stream. The timestamp
+     * increases incrementally between data instances.
+     *
+     * @throws IOException if a problem occurs while reading the dataset file.
+     *
+     * @return the next data instance in the stream, or {@code null} if the
+     * end of the stream was reached.
+     */
+    public DataInstance getNext() throws IOException {
+        final DataInstance instance = this.read();
+        ++this.timestamp;
+        return instance;
+    }
+
+    /**
+     * Reads and returns an {@link ArrayList} containing the next
+     * {@code n} data instances in the stream. All the instances returned by
+     * this method share the same timestamp.
+     *
+     * @param n number of instances to be returned
+     *
+     * @throws IOException if a problem occurs while reading the dataset file.
+     *
+     * @return an {@link ArrayList} list containing the next  {@code n} data
+     * instances in the stream.
+     */
+    public ArrayList<DataInstance> getBatch(final int n) throws IOException {
+        final ArrayList<DataInstance> samples = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            samples.add(this.read());
+        }
+        return samples;
+    }
+
+    /**
+     * Returns an iterator over the next {@code n} data instances in the
+     * stream, which are only read as the iterator advances. All the instances
+     * returned share the same timestamp.
+     *
+     * @param n number of instances to be iterated.
+     *
+     * @return an iterator over the next {@code n} data instances.
+     */
+    public Iterator<DataInstance> iterateBatch(final int n) {
+        return new Iterator<DataInstance>() {
+
+            private int count = 0;
+            private DataInstance next;
+
+            @Override
+            public boolean hasNext() {
+                if (this.next == null && this.count < n) {
+                    try {
+                        this.next = read();
+                    } catch (final IOException e) {
+                        throw new IllegalStateException("Could not read the dataset file", e);
+                    }
+                    if (this.next == null) {
+                        this.count = n;
+                    }
+                }
+                return this.next != null;
+            }
+
+            @Override
+            public DataInstance next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final DataInstance instance = this.next;
+                this.next = null;
+                ++this.count;
+                return instance;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    public void close() throws Exception {
+        if (this.activeFile != null) {
+            this.activeFile.close();
+            this.activeFile = null;
+        }
+    }
+
+    private DataInstance read() throws IOException {
+
+        while (this.activeFile != null && !this.activeFile.hasNext()) {
+            this.activeFile.close();
+            this.activeFile = null;
+            if (this.activePath < this.paths.length - 1) {
+                ++this.activePath;
+                this.activeFile = new BinaryDatasetFile(this.paths[this.activePath]);
+            }
+        }
+
+        if (this.activeFile == null) {
+            return null;
+        }
+
+        return this.activeFile.next(this.timestamp);
+    }
+
+    /**
+     * A single memory-mapped dataset file. The features are mapped in
+     * segments holding a whole number of rows, and the label column is read
+     * through a separate mapping.
+     */
+    private static final class BinaryDatasetFile {
+
+        private final RandomAccessFile randomAccessFile;
+        private final FileChannel channel;
+        private final int dimensions;
+        private final int featureSize;
+        private final long rowCount;
+        private final long labelColumnOffset;
+        private final String[] labels;
+        private final int rowsPerSegment;
+
+        private long row;
+        private long segmentFirstRow;
+        private ByteBuffer segment;
+        private ByteBuffer labelSegment;
+
+        private BinaryDatasetFile(final String path) throws IOException {
+
+            this.randomAccessFile = new RandomAccessFile(path, "r");
+            this.channel = this.randomAccessFile.getChannel();
+
+            final ByteBuffer header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                this.close();
+                throw new IOException("Not a binary dataset file: " + path);
+            }
+            this.dimensions = header.getInt();
+            this.featureSize = header.getInt();
+            this.rowCount = header.getLong();
+            this.labelColumnOffset = header.getLong();
+            final long dictionaryOffset = header.getLong();
+
+            try (DataInputStream dictionary = new DataInputStream(new FileInputStream(path))) {
+                long skipped = 0;
+                while (skipped < dictionaryOffset) {
+                    skipped += dictionary.skip(dictionaryOffset - skipped);
+                }
+                this.labels = new String[dictionary.readInt()];
+                for (int i = 0; i < this.labels.length; ++i) {
+                    this.labels[i] = dictionary.readUTF();
+                }
+            }
+
+            final int rowSize = this.dimensions * this.featureSize;
+            this.rowsPerSegment = Math.max(1, MAX_SEGMENT_SIZE / Math.max(1, rowSize));
+            this.row = 0;
+            this.segmentFirstRow = -1;
+        }
+
+        private boolean hasNext() {
+            return this.row < this.rowCount;
+        }
+
+        private DataInstance next(final long timestamp) throws IOException {
+
+            if (this.segment == null || this.row - this.segmentFirstRow >= this.rowsPerSegment) {
+                this.map();
+            }
+
+            final double[] x = new double[this.dimensions];
+            if (this.featureSize == Float.SIZE / Byte.SIZE) {
+                for (int i = 0; i < this.dimensions; ++i) {
+                    x[i] = this.segment.getFloat();
+                }
+            } else {
+                this.segment.asDoubleBuffer().get(x);
+                this.segment.position(this.segment.position() + this.dimensions * this.featureSize);
+            }
+
+            final String label = this.labels[this.labelSegment.getInt()];
+            ++this.row;
+
+            return new DataInstance(x, label, timestamp);
+        }
+
+        private void map() throws IOException {
+
+            this.segmentFirstRow = this.row;
+            final long rows = Math.min(this.rowsPerSegment, this.rowCount - this.row);
+            final long rowSize = (long) this.dimensions * this.featureSize;
+
+            final MappedByteBuffer features = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + this.row * rowSize, rows * rowSize);
+            final MappedByteBuffer labelIds = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                    this.labelColumnOffset + this.row * (Integer.SIZE / Byte.SIZE), rows * (Integer.SIZE / Byte.SIZE));
+
+            this.segment = features.order(ByteOrder.BIG_ENDIAN);
+            this.labelSegment = labelIds.order(ByteOrder.BIG_ENDIAN);
+        }
+
+        private void close() throws IOException {
+            this.segment = null;
+            this.labelSegment = null;
+            this.channel.close();
+            this.randomAccessFile.close();
+        }
+    }
+}
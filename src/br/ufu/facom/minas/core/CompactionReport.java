@@ -0,0 +1,99 @@
+package br.ufu.facom.minas.core;
+
+/**
+ * Result of a compaction of the decision model of a {@link MINASModel} (see
+ * {@link MINASModel#compact()}): the size of the decision model before and
+ * after the compaction, the merges done, the time taken and a snapshot of the
+ * measures of the model taken right before it. The cost of an exact nearest
+ * micro-cluster search grows linearly with the size of the decision model.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class CompactionReport {
+
+    private final long timestamp;
+    private final int sizeBefore;
+    private final int sizeAfter;
+    private final long bytesBefore;
+    private final long bytesAfter;
+    private final int overlapMergeCount;
+    private final int capMergeCount;
+    private final long elapsedNanos;
+    private final double unkR;
+    private final double cer;
+
+    CompactionReport(final long timestamp,
+                     final int sizeBefore,
+                     final int sizeAfter,
+                     final long bytesBefore,
+                     final long bytesAfter,
+                     final int overlapMergeCount,
+                     final int capMergeCount,
+                     final long elapsedNanos,
+                     final double unkR,
+                     final double cer) {
+        this.timestamp = timestamp;
+        this.sizeBefore = sizeBefore;
+        this.sizeAfter = sizeAfter;
+        this.bytesBefore = bytesBefore;
+        this.bytesAfter = bytesAfter;
+        this.overlapMergeCount = overlapMergeCount;
+        this.capMergeCount = capMergeCount;
+        this.elapsedNanos = elapsedNanos;
+        this.unkR = unkR;
+        this.cer = cer;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getSizeBefore() {
+        return sizeBefore;
+    }
+
+    public int getSizeAfter() {
+        return sizeAfter;
+    }
+
+    public long getBytesBefore() {
+        return bytesBefore;
+    }
+
+    public long getBytesAfter() {
+        return bytesAfter;
+    }
+
+    /**
+     * Returns the number of merges of peers whose centroids were within the
+     * radius of each other.
+     *
+     * @return the number of merges.
+     */
+    public int getOverlapMergeCount() {
+        return overlapMergeCount;
+    }
+
+    /**
+     * Returns the number of merges done to bring each label and category
+     * within the maximum number of micro-clusters per label.
+     *
+     * @return the number of merges.
+     */
+    public int getCapMergeCount() {
+        return capMergeCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getUnkR() {
+        return unkR;
+    }
+
+    public double getCER() {
+        return cer;
+    }
+}
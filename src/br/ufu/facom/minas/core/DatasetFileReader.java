@@ -8,6 +8,11 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * This class is used to read data instances from a dataset csv file and 
@@ -18,16 +23,22 @@ import java.util.ArrayList;
  */
 public class DatasetFileReader {
 
-    private int timestamp;
+    private long timestamp;
     private final String separator;
     private final BufferedReader[] bufferedReaders;
     private int activeBuffer;
+    private boolean isSparse;
+
+    // Maps each label read to its first occurrence, so that the data
+    // instances of a class share the same string.
+    private final Map<String, String> labels;
 
     public DatasetFileReader(final String separator, final String... paths) throws FileNotFoundException {
 
         this.timestamp = 1;
         this.separator = separator;
         this.activeBuffer = 0;
+        this.labels = new HashMap<>();
 
         this.bufferedReaders = new BufferedReader[paths.length];
         for (int i = 0; i < paths.length; i++) {
@@ -37,7 +48,24 @@ public class DatasetFileReader {
         }
 
     }
-    
+
+    public boolean isSparse() {
+        return isSparse;
+    }
+
+    /**
+     * Sets whether the data instances are read in sparse form, keeping only
+     * their non-zero features (see
+     * {@link DataInstance#DataInstance(int, int[], double[], String, int)}).
+     * It pays off for datasets made mostly of zeros, such as the ones with
+     * one-hot encoded features.
+     *
+     * @param isSparse whether the data instances are read in sparse form.
+     */
+    public void setSparse(final boolean isSparse) {
+        this.isSparse = isSparse;
+    }
+
     /**
      * Reads and returns the next data instance in the stream. The timestamp
      * increases incrementally between data instances.
@@ -65,9 +93,24 @@ public class DatasetFileReader {
 
         final String[] values = line.split(this.separator);
         final int numberOfFeatures = values.length - 1;
-        final String y = values[values.length - 1];
+        final String y = this.intern(values[values.length - 1]);
         final double[] x = new double[numberOfFeatures];
 
+        if (this.isSparse) {
+            final int[] indices = new int[numberOfFeatures];
+            int nonZeroCount = 0;
+            for (int i = 0; i < numberOfFeatures; ++i) {
+                final double value = Double.parseDouble(values[i]);
+                if (value != 0) {
+                    indices[nonZeroCount] = i;
+                    x[nonZeroCount] = value;
+                    ++nonZeroCount;
+                }
+            }
+            return new DataInstance(numberOfFeatures, Arrays.copyOf(indices, nonZeroCount),
+                    Arrays.copyOf(x, nonZeroCount), y, this.timestamp);
+        }
+
         for (int i = 0; i < numberOfFeatures; ++i) {
             x[i] = Double.parseDouble(values[i]);
         }
@@ -75,6 +118,15 @@ public class DatasetFileReader {
         return new DataInstance(x, y, this.timestamp);
     }
 
+    private String intern(final String label) {
+        final String interned = this.labels.get(label);
+        if (interned == null) {
+            this.labels.put(label, label);
+            return label;
+        }
+        return interned;
+    }
+
     /**
      * Reads and returns an {@link ArrayList} containing the next
      * {@code n} data instances in the stream. All the instances returned by
@@ -95,6 +147,56 @@ public class DatasetFileReader {
         return samples;
     }
 
+    /**
+     * Returns an iterator over the next {@code n} data instances in the
+     * stream, which are only read as the iterator advances. As in
+     * {@link #getBatch(int)}, all the instances returned share the same
+     * timestamp. The iteration stops earlier if the end of the stream is
+     * reached.
+     *
+     * @param n number of instances to be iterated.
+     *
+     * @return an iterator over the next {@code n} data instances.
+     */
+    public Iterator<DataInstance> iterateBatch(final int n) {
+        return new Iterator<DataInstance>() {
+
+            private int count = 0;
+            private DataInstance next;
+
+            @Override
+            public boolean hasNext() {
+                if (this.next == null && this.count < n) {
+                    try {
+                        this.next = read();
+                    } catch (final IOException e) {
+                        throw new IllegalStateException("Could not read the dataset file", e);
+                    }
+                    if (this.next == null) {
+                        this.count = n;
+                    }
+                }
+                return this.next != null;
+            }
+
+            @Override
+            public DataInstance next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final DataInstance instance = this.next;
+                this.next = null;
+                ++this.count;
+                return instance;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
     public void close() throws Exception {
         for (final BufferedReader bufferedReader : this.bufferedReaders) {
             bufferedReader.close();
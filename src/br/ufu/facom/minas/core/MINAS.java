@@ -1,6 +1,9 @@
 package br.ufu.facom.minas.core;
 
 import br.ufu.facom.minas.core.clustering.ClusteringAlgorithm;
+import br.ufu.facom.minas.core.clustering.OnlineClustering;
+import br.ufu.facom.minas.core.clustering.OnlineClusteringAlgorithm;
+import br.ufu.facom.minas.core.clustering.TemporaryMemorySummary;
 import br.ufu.facom.minas.core.datastructure.DataInstance;
 import br.ufu.facom.minas.core.datastructure.*;
 import br.ufu.facom.minas.core.decisionrule.Classification;
@@ -23,22 +26,39 @@ public class MINAS {
      * online. This method corresponds to the Algorithm 1 from the
      * <a href="https://doi.org/10.1007/s10618-015-0433-y">paper</a>.
      *
-     * @param trainingSet the list of data instances used to initialize
-     *                    the model. The labels of the data instances
-     *                    passed as argument are accessed through the
-     *                    {@link DataInstance#getLabel() getLabel}
-     *                    method.
-     * @param config the MINAS configuration to be used.
+     * @param rawTrainingSet the list of data instances used to initialize
+     *                       the model, before preprocessing. The labels of
+     *                       the data instances passed as argument are
+     *                       accessed through the
+     *                       {@link DataInstance#getLabel() getLabel}
+     *                       method.
+     * @param config the MINAS configuration to be used. Its preprocessing
+     *               stage, if any, is fitted over the training set unless
+     *               it is already fitted.
      * @return a MINAS model ready to be used online.
      */
-    public static MINASModel initializeModel(final List<DataInstance> trainingSet,
+    public static MINASModel initializeModel(final List<DataInstance> rawTrainingSet,
                                              final MINASConfiguration config) {
 
+        // Fits the preprocessing stage and transforms the training set.
+        final List<DataInstance> trainingSet;
+        if (config.getPreprocessor() == null) {
+            trainingSet = rawTrainingSet;
+        } else {
+            if (!config.getPreprocessor().isFitted()) {
+                config.getPreprocessor().fit(rawTrainingSet);
+            }
+            trainingSet = new ArrayList<>(rawTrainingSet.size());
+            for (final DataInstance instance : rawTrainingSet) {
+                trainingSet.add(config.getPreprocessor().apply(instance));
+            }
+        }
+
         // Sorts the instances by timestamp (ascending)
         Collections.sort(trainingSet, new Comparator<DataInstance>() {
             @Override
             public int compare(final DataInstance o1, final DataInstance o2) {
-                return Integer.compare(o1.getTimestamp(), o2.getTimestamp());
+                return Long.compare(o1.getTimestamp(), o2.getTimestamp());
             }
         });
 
@@ -49,7 +69,7 @@ public class MINAS {
             knownLabels.add(label);
         }
 
-        final List<MicroCluster> decisionModel = new ArrayList<>();
+        final MicroClusterList decisionModel = new MicroClusterList();
 
         // For each label...
         for (final String label : knownLabels) {
@@ -68,27 +88,122 @@ public class MINAS {
             final List<MicroCluster> microClusters = config.getClusteringForInitialization()
                     .execute(Collections.unmodifiableList(instances));
 
-            // Labels the resulting micro-clusters with the label respective to
-            // the list.
-            for (final MicroCluster microCluster : microClusters) {
-                microCluster.setLabel(label);
-                microCluster.setCategory(Category.KNOWN);
+            addToDecisionModel(label, microClusters, decisionModel);
+        }
+
+        return createModel(decisionModel, new DynamicConfusionMatrix(knownLabels), config);
+    }
+
+    /**
+     * Initializes and returns a new {@link MINASModel}, ready to be used
+     * online, consuming the training data instances as a stream. Each data
+     * instance is routed to an online clustering of its label, so that only
+     * the summaries kept by the clusterings are held in memory, instead of
+     * the whole training set. The result is the same as the one of
+     * {@link #initializeModel(List, MINASConfiguration)} over the same data
+     * instances whenever the clustering algorithm produces the same
+     * micro-clusters in both modes.
+     *
+     * @param trainingSet the data instances used to initialize the model, in
+     *                    ascending order of timestamp.
+     * @param config the MINAS configuration to be used. The clustering
+     *               algorithm for initialization must implement
+     *               {@link OnlineClusteringAlgorithm}. If its preprocessing
+     *               stage still needs to be fitted, the training set is
+     *               materialized and given to
+     *               {@link #initializeModel(List, MINASConfiguration)}.
+     * @return a MINAS model ready to be used online.
+     * @throws IllegalArgumentException if the clustering algorithm for
+     * initialization does not implement {@link OnlineClusteringAlgorithm}.
+     */
+    public static MINASModel initializeModel(final Iterator<DataInstance> trainingSet,
+                                             final MINASConfiguration config) {
+
+        if (!(config.getClusteringForInitialization() instanceof OnlineClusteringAlgorithm)) {
+            throw new IllegalArgumentException("The clustering algorithm for initialization must implement "
+                    + "OnlineClusteringAlgorithm");
+        }
+
+        if (config.getPreprocessor() != null && !config.getPreprocessor().isFitted()) {
+            final List<DataInstance> instances = new ArrayList<>();
+            while (trainingSet.hasNext()) {
+                instances.add(trainingSet.next());
             }
+            return initializeModel(instances, config);
+        }
 
-            // Adds to the decision model the micro-clusters that meet the
-            // required condition.
-            for (final MicroCluster microCluster : microClusters) {
-                if (microCluster.getN() >= 3) {
-                    decisionModel.add(microCluster);
-                }
+        final OnlineClusteringAlgorithm clusteringAlgorithm =
+                (OnlineClusteringAlgorithm) config.getClusteringForInitialization();
+
+        // Routes each instance to the clustering of its label, building the
+        // set of known labels along the way.
+        final Set<String> knownLabels = new HashSet<>();
+        final Map<String, OnlineClustering> clusterings = new HashMap<>();
+        while (trainingSet.hasNext()) {
+            final DataInstance instance = preprocess(trainingSet.next(), config);
+            OnlineClustering clustering = clusterings.get(instance.getLabel());
+            if (clustering == null) {
+                clustering = clusteringAlgorithm.newClustering();
+                clusterings.put(instance.getLabel(), clustering);
             }
+            knownLabels.add(instance.getLabel());
+            clustering.update(instance);
         }
 
-        // Initializes the confusion matrix
-        final DynamicConfusionMatrix confusionMatrix = new DynamicConfusionMatrix(knownLabels);
+        final MicroClusterList decisionModel = new MicroClusterList();
+        for (final String label : knownLabels) {
+            addToDecisionModel(label, clusterings.get(label).finish(), decisionModel);
+        }
+
+        return createModel(decisionModel, new DynamicConfusionMatrix(knownLabels), config);
+    }
+
+    /**
+     * Labels the micro-clusters obtained from the training instances of a
+     * label and adds to the decision model the ones that meet the required
+     * condition.
+     */
+    private static void addToDecisionModel(final String label,
+                                           final List<MicroCluster> microClusters,
+                                           final MicroClusterList decisionModel) {
+
+        // Labels the resulting micro-clusters with the label respective to
+        // the list.
+        for (final MicroCluster microCluster : microClusters) {
+            microCluster.setLabel(label);
+            microCluster.setCategory(Category.KNOWN);
+        }
+
+        // Adds to the decision model the micro-clusters that meet the
+        // required condition.
+        for (final MicroCluster microCluster : microClusters) {
+            if (microCluster.getN() >= 3) {
+                decisionModel.add(microCluster);
+            }
+        }
+    }
+
+    static MINASModel createModel(final MicroClusterList decisionModel,
+                                  final DynamicConfusionMatrix confusionMatrix,
+                                  final MINASConfiguration config) {
+
+        // Instantiates the model
+        final MINASModel model = new MINASModel(decisionModel, confusionMatrix);
+
+        // Lets the lists precompute the thresholds of the decision rules that
+        // depend only on the summary of the micro-clusters. The decision model
+        // is searched once per data instance, so it keeps the radius of the
+        // data instance decision rule, while the sleep memory, which is only
+        // searched by the micro-cluster decision rule, keeps the radius of the
+        // latter.
+        if (config.getDataInstanceDecisionRule() instanceof RadiusFunction) {
+            model.getDecisionModel().setRadiusFunction((RadiusFunction) config.getDataInstanceDecisionRule());
+        }
+        if (config.getMicroClusterDecisionRule() instanceof RadiusFunction) {
+            model.getSleepMemory().setRadiusFunction((RadiusFunction) config.getMicroClusterDecisionRule());
+        }
 
-        // Instantiates and returns the model
-        return new MINASModel(decisionModel, confusionMatrix);
+        return model;
     }
 
     /**
@@ -120,8 +235,24 @@ public class MINAS {
     public static List<Labeling> process(final DataInstance instance,
                                          final MINASModel model,
                                          final MINASConfiguration config) {
+        return processPreprocessed(preprocess(instance, config), model, config, false);
+    }
+
+    /**
+     * Applies the preprocessing stage of the configuration, if any, to a data
+     * instance.
+     */
+    private static DataInstance preprocess(final DataInstance instance, final MINASConfiguration config) {
+        return config.getPreprocessor() == null ? instance : config.getPreprocessor().apply(instance);
+    }
+
+    private static List<Labeling> processPreprocessed(final DataInstance instance,
+                                                      final MINASModel model,
+                                                      final MINASConfiguration config,
+                                                      final boolean isDegraded) {
 
         // Updates the model last seen timestamp.
+        final long previousTimestamp = model.getLastTimestamp();
         model.setLastTimestamp(instance.getTimestamp());
 
         // Classifies the data instance using the configured decision rule and
@@ -156,12 +287,17 @@ public class MINAS {
             // label.
             labelings.add(labeling);
 
-        } else {
+        } else if (!isDegraded) {
 
             // If none of the model's micro-cluster managed to explain the data
             // instance, the data instance is added to the model's temporary
-            // memory.
-            model.getTemporaryMemory().add(instance);
+            // memory. In degraded mode, the data instance is only counted as
+            // unknown, so that the novelty detection isn't triggered.
+            final DataInstance unknown = model.isSinglePrecision() ? instance.toSinglePrecision() : instance;
+            model.getTemporaryMemory().add(unknown);
+            if (model.getTemporaryMemorySummary() != null) {
+                model.getTemporaryMemorySummary().add(unknown);
+            }
 
             // If the model's temporary memory has reached its max size, the
             // novelty detection procedure is called and any resultant delayed
@@ -176,36 +312,58 @@ public class MINAS {
         // If a window has being completed, inactive micro-cluster will be
         // removed from the decision model and added to the sleep memory.
         // Beyond that, instances that have being in the temporary memory for
-        // too long will be removed.
-        if (model.getLastTimestamp() % config.getWindowSize() == 0) {
-
-            // Searches for inactive micro-clusters inside the decision model.
-            final List<MicroCluster> inactiveMicroClusters = new ArrayList<>();
-            for (final MicroCluster microCluster : model.getDecisionModel()) {
-                final long microClusterAge = model.getLastTimestamp() - microCluster.getTimestamp();
-                if (microClusterAge > config.getMicroClusterLifespan()) {
-                    inactiveMicroClusters.add(microCluster);
-                }
-            }
+        // too long will be removed. If the model is configured to expire the
+        // micro-clusters continuously, the inactive micro-clusters are
+        // removed after every data instance instead. A window is also
+        // completed when its last timestamp was skipped, which happens when
+        // data instances are shed before reaching the model.
+        final boolean isWindowCompleted = model.getLastTimestamp() % config.getWindowSize() == 0
+                || (previousTimestamp > 0
+                && previousTimestamp / config.getWindowSize() < model.getLastTimestamp() / config.getWindowSize());
+
+        if (isWindowCompleted || model.isContinuousExpiry()) {
 
             // Removes from the decision model all the inactive
-            // micro-clusters.
-            model.getDecisionModel().removeAll(inactiveMicroClusters);
+            // micro-clusters, which are found through the decision model's
+            // timestamp heap.
+            final List<MicroCluster> inactiveMicroClusters = model.getDecisionModel()
+                    .removeInactive(model.getLastTimestamp(), config.getMicroClusterLifespan());
             model.getSleepMemory().addAll(inactiveMicroClusters);
+        }
+
+        // If the model is configured to do so, the decision model is
+        // compacted once every given number of windows. As with the windows,
+        // a compaction is also done when its last timestamp was skipped.
+        if (isWindowCompleted && model.getCompactionInterval() > 0) {
+            final long period = (long) config.getWindowSize() * model.getCompactionInterval();
+            if (model.getLastTimestamp() % period == 0
+                    || (previousTimestamp > 0 && previousTimestamp / period < model.getLastTimestamp() / period)) {
+                model.compact();
+            }
+        }
+
+        if (isWindowCompleted) {
 
             // Searches for inactive data instances inside the temporary
-            // memory.
+            // memory. The lifespan may have been tightened to keep the
+            // temporary memory within its memory budget.
+            final long instanceLifespan = Math.min(config.getInstanceLifespan(), model.getInstanceLifespanLimit());
             final List<DataInstance> instancesToBeRemoved = new ArrayList<>();
             for (final DataInstance dataInstance : model.getTemporaryMemory()) {
                 final long instanceAge = model.getLastTimestamp() - dataInstance.getTimestamp();
-                if (instanceAge > config.getInstanceLifespan()) {
+                if (instanceAge > instanceLifespan) {
                     instancesToBeRemoved.add(dataInstance);
                 }
             }
 
-            // Removes from the temporary memory all the inactive data
-            // instances.
-            model.getTemporaryMemory().removeAll(instancesToBeRemoved);
+            // Removes from the temporary memory, and from its summary, all
+            // the inactive data instances.
+            model.getTemporaryMemory().removeAll(new HashSet<>(instancesToBeRemoved));
+            if (model.getTemporaryMemorySummary() != null) {
+                for (final DataInstance dataInstance : instancesToBeRemoved) {
+                    model.getTemporaryMemorySummary().remove(dataInstance);
+                }
+            }
         }
 
         // Updates the confusion matrix.
@@ -216,6 +374,10 @@ public class MINAS {
             model.getConfusionMatrix().addUnknown(instance);
         }
 
+        // Brings the components of the model with a memory budget back
+        // within it.
+        model.enforceMemoryBudgets(config);
+
         // Return the list of labelings. It may be empty if the data instance
         // wasn't explained by the decision model and if no new micro-cluster
         // was generated by the novelty detection procedure.
@@ -223,6 +385,78 @@ public class MINAS {
 
     }
 
+    /**
+     * Processes a batch of data instances, in order, with the same results as
+     * calling {@link #process(DataInstance, MINASModel, MINASConfiguration)}
+     * for each one of them. The closest micro-clusters of all the instances
+     * are searched at once, using a blocked matrix computation; the
+     * precomputed results are discarded and the instances are searched one
+     * at a time whenever the decision model changes in the middle of the
+     * batch.
+     *
+     * @param instances the instances to be classified, in the order of the
+     *                  stream.
+     * @param model the model used to process the instances.
+     * @param config the MINAS configuration to be used.
+     * @return the concatenation of the lists of labelings returned for each
+     * instance.
+     */
+    public static List<Labeling> process(final List<DataInstance> instances,
+                                         final MINASModel model,
+                                         final MINASConfiguration config) {
+        return process(instances, model, config, false);
+    }
+
+    /**
+     * Processes a batch of data instances in degraded mode, which is meant to
+     * keep up with the stream while the system is overloaded. The data
+     * instances are classified and the model is updated as by
+     * {@link #process(List, MINASModel, MINASConfiguration)}, except that the
+     * data instances not explained by the decision model are only counted as
+     * unknown, instead of being added to the temporary memory. Therefore, the
+     * novelty detection is never executed and no delayed labeling is
+     * returned.
+     *
+     * @param instances the instances to be classified, in the order of the
+     *                  stream.
+     * @param model the model used to process the instances.
+     * @param config the MINAS configuration to be used.
+     * @return the labelings of the data instances explained by the decision
+     * model.
+     */
+    public static List<Labeling> processDegraded(final List<DataInstance> instances,
+                                                 final MINASModel model,
+                                                 final MINASConfiguration config) {
+        return process(instances, model, config, true);
+    }
+
+    private static List<Labeling> process(final List<DataInstance> instances,
+                                          final MINASModel model,
+                                          final MINASConfiguration config,
+                                          final boolean isDegraded) {
+
+        final List<DataInstance> preprocessedInstances;
+        if (config.getPreprocessor() == null) {
+            preprocessedInstances = instances;
+        } else {
+            preprocessedInstances = new ArrayList<>(instances.size());
+            for (final DataInstance instance : instances) {
+                preprocessedInstances.add(config.getPreprocessor().apply(instance));
+            }
+        }
+
+        model.getDecisionModel().precomputeClosestMicroClusters(preprocessedInstances);
+
+        final List<Labeling> labelings = new ArrayList<>();
+        for (final DataInstance instance : preprocessedInstances) {
+            labelings.addAll(processPreprocessed(instance, model, config, isDegraded));
+        }
+
+        model.getDecisionModel().clearPrecomputedClosestMicroClusters();
+
+        return labelings;
+    }
+
     /**
      * Detects patterns inside the {@code model}'s temporary memory. This
      * method corresponds to the Algorithm 3 from the
@@ -247,16 +481,24 @@ public class MINAS {
                                                          final MINASConfiguration config) {
 
         // Applies to the model's temporary memory the clustering algorithm
-        // configured.
-        final ClusteringAlgorithm clusteringAlgorithm = config.getClusteringForNoveltyDetection();
-        final List<MicroCluster> microClusters = clusteringAlgorithm.execute(model.getTemporaryMemory());
+        // configured. If the model keeps an online summary of the temporary
+        // memory, its micro-clusters are evaluated instead.
+        final TemporaryMemorySummary summary = model.getTemporaryMemorySummary();
+        final List<MicroCluster> microClusters;
+        if (summary == null) {
+            final ClusteringAlgorithm clusteringAlgorithm = config.getClusteringForNoveltyDetection();
+            microClusters = clusteringAlgorithm.execute(model.getTemporaryMemory());
+        } else {
+            microClusters = summary.getMicroClusters();
+        }
 
         // Searches for micro-clusters that do not meet the required criteria
         // to be declared as a pattern.
         final List<MicroCluster> microClustersToBeRemoved = new ArrayList<>();
-        for (final MicroCluster microCluster : microClusters) {
-            final double silhouette = MicroCluster.calculateSilhouette(microCluster, model.getDecisionModel());
-            if (microCluster.getN() < config.getMinimumClusterSize() || silhouette <= 0) {
+        final double[] silhouettes = MicroCluster.calculateSilhouettes(microClusters, model.getDecisionModel());
+        for (int i = 0; i < microClusters.size(); ++i) {
+            final MicroCluster microCluster = microClusters.get(i);
+            if (microCluster.getN() < config.getMinimumClusterSize() || silhouettes[i] <= 0) {
                 microClustersToBeRemoved.add(microCluster);
             }
         }
@@ -276,6 +518,11 @@ public class MINAS {
         // from the temporary memory.
         for (final MicroCluster microCluster : microClusters) {
 
+            // If the micro-cluster comes from the summary of the temporary
+            // memory, it is released from the summary together with the
+            // instances respective to it.
+            final List<DataInstance> members = summary == null ? null : summary.release(microCluster);
+
             // Classifies the micro-cluster using the configured decision rule
             // and the decision model.
             final MicroClusterDecisionRule decisionRule = config.getMicroClusterDecisionRule();
@@ -292,8 +539,10 @@ public class MINAS {
 
                 // If the micro-cluster is not explained by the decision model,
                 // it is classified using the configured decision rule and the
-                // sleep memory.
-                classification = decisionRule.classify(microCluster, model.getSleepMemory());
+                // sleep memory. The closest micro-cluster spilled to disk, if
+                // any, is brought back to memory first.
+                model.getSleepMemory().loadClosestMicroCluster(microCluster.calculateCentroid());
+                classification = decisionRule.classify(microCluster, model.getSleepMemory().getMicroClusters());
 
                 // If the micro-cluster is explained by the sleep memory, it is
                 // declared an extension.
@@ -301,7 +550,7 @@ public class MINAS {
 
                     microCluster.setCategory(classification.getClosestMicroCluster().getCategory());
                     microCluster.setLabel(classification.getClosestMicroCluster().getLabel());
-                    model.getSleepMemory().remove(classification.getClosestMicroCluster());
+                    model.getSleepMemory().reactivate(classification.getClosestMicroCluster());
                     model.getDecisionModel().add(classification.getClosestMicroCluster());
 
                 } else {
@@ -319,16 +568,21 @@ public class MINAS {
             model.getDecisionModel().add(microCluster);
 
             // Searches for the instances respective to micro-cluster.
-            final List<DataInstance> instances = new ArrayList<>();
-            for (final DataInstance instance : model.getTemporaryMemory()) {
-                if (microCluster.getTimestamps().contains(instance.getTimestamp())) {
-                    instances.add(instance);
+            final List<DataInstance> instances;
+            if (members == null) {
+                instances = new ArrayList<>();
+                for (final DataInstance instance : model.getTemporaryMemory()) {
+                    if (microCluster.containsTimestamp(instance.getTimestamp())) {
+                        instances.add(instance);
+                    }
                 }
+            } else {
+                instances = members;
             }
 
             // Removes from the temporary memory all the instances respective
             // to the micro-cluster.
-            model.getTemporaryMemory().removeAll(instances);
+            model.getTemporaryMemory().removeAll(new HashSet<>(instances));
 
             // For each of the instances respective to the micro-cluster, adds
             // to the return list a labeling mapping the instance's timestamp
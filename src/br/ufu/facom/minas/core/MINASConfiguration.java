@@ -4,6 +4,7 @@ import br.ufu.facom.minas.core.clustering.ClusteringAlgorithm;
 import br.ufu.facom.minas.core.datastructure.DataInstance;
 import br.ufu.facom.minas.core.decisionrule.datainstance.DataInstanceDecisionRule;
 import br.ufu.facom.minas.core.decisionrule.microcluster.MicroClusterDecisionRule;
+import br.ufu.facom.minas.core.preprocessing.Preprocessor;
 
 /**
  * This class wraps all the MINAS' parameters required in the
@@ -24,6 +25,7 @@ public class MINASConfiguration {
     private final int microClusterLifespan;
     private final int instanceLifespan;
     private final boolean isIncremental;
+    private final Preprocessor preprocessor;
 
     public MINASConfiguration(final ClusteringAlgorithm clusteringForInitialization,
                               final ClusteringAlgorithm clusteringForNoveltyDetection,
@@ -36,6 +38,31 @@ public class MINASConfiguration {
                               final int instanceLifespan,
                               final boolean isIncremental) {
 
+        this(clusteringForInitialization, clusteringForNoveltyDetection, microClusterDecisionRule,
+                dataInstanceDecisionRule, temporaryMemoryMaxSize, minimumClusterSize, windowSize,
+                microClusterLifespan, instanceLifespan, isIncremental, null);
+    }
+
+    /**
+     * Creates a configuration with a preprocessing stage, which is fitted
+     * over the training set, if needed, and then applied to all the data
+     * instances given to MINAS, both in the offline and online phase.
+     *
+     * @param preprocessor the preprocessing stage, or {@code null} to use the
+     *                     data instances as they are.
+     */
+    public MINASConfiguration(final ClusteringAlgorithm clusteringForInitialization,
+                              final ClusteringAlgorithm clusteringForNoveltyDetection,
+                              final MicroClusterDecisionRule microClusterDecisionRule,
+                              final DataInstanceDecisionRule dataInstanceDecisionRule,
+                              final int temporaryMemoryMaxSize,
+                              final int minimumClusterSize,
+                              final int windowSize,
+                              final int microClusterLifespan,
+                              final int instanceLifespan,
+                              final boolean isIncremental,
+                              final Preprocessor preprocessor) {
+
         this.clusteringForInitialization = clusteringForInitialization;
         this.clusteringForNoveltyDetection = clusteringForNoveltyDetection;
         this.microClusterDecisionRule = microClusterDecisionRule;
@@ -46,6 +73,7 @@ public class MINASConfiguration {
         this.microClusterLifespan = microClusterLifespan;
         this.instanceLifespan = instanceLifespan;
         this.isIncremental = isIncremental;
+        this.preprocessor = preprocessor;
 
     }
 
@@ -88,4 +116,8 @@ public class MINASConfiguration {
     public boolean isIncremental() {
         return isIncremental;
     }
+
+    public Preprocessor getPreprocessor() {
+        return preprocessor;
+    }
 }
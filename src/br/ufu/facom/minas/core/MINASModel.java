@@ -1,27 +1,58 @@
 package br.ufu.facom.minas.core;
 
+import br.ufu.facom.minas.core.clustering.TemporaryMemorySummary;
 import br.ufu.facom.minas.core.datastructure.DataInstance;
 import br.ufu.facom.minas.core.datastructure.DynamicConfusionMatrix;
 import br.ufu.facom.minas.core.datastructure.MicroCluster;
+import br.ufu.facom.minas.core.datastructure.MicroClusterList;
+import br.ufu.facom.minas.core.datastructure.ShardPartitioning;
+import br.ufu.facom.minas.core.datastructure.SleepMemory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 public class MINASModel {
 
+    private static final int FORMAT_VERSION = 5;
+
     private long lastTimestamp;
     private int noveltyCount;
-    private final List<DataInstance> temporaryMemory;
-    private final List<MicroCluster> decisionModel;
-    private final List<MicroCluster> sleepMemory;
+    private boolean isContinuousExpiry;
+    private boolean isSinglePrecision;
+    private final TemporaryMemory temporaryMemory;
+    private TemporaryMemorySummary temporaryMemorySummary;
+    private final MicroClusterList decisionModel;
+    private final SleepMemory sleepMemory;
     private final DynamicConfusionMatrix confusionMatrix;
 
-    MINASModel(final List<MicroCluster> modelMicroClusters, final DynamicConfusionMatrix confusionMatrix) {
+    private final Map<MemoryComponent, Long> memoryBudgets;
+    private long instanceLifespanLimit;
+    private long lastLifespanChange;
+    private int timestampCompactionCount;
+    private int evictedMicroClusterCount;
+    private long droppedInstanceCount;
+
+    private int compactionInterval;
+    private int maxMicroClustersPerLabel;
+    private int compactionCount;
+    private CompactionReport lastCompactionReport;
+
+    MINASModel(final MicroClusterList decisionModel, final DynamicConfusionMatrix confusionMatrix) {
         this.confusionMatrix = confusionMatrix;
-        this.decisionModel = modelMicroClusters;
+        this.decisionModel = decisionModel;
         this.noveltyCount = 0;
-        this.sleepMemory = new ArrayList<>();
-        this.temporaryMemory = new ArrayList<>();
+        this.sleepMemory = new SleepMemory();
+        this.temporaryMemory = new TemporaryMemory();
+        this.memoryBudgets = new EnumMap<>(MemoryComponent.class);
+        this.instanceLifespanLimit = Long.MAX_VALUE;
+        this.maxMicroClustersPerLabel = Integer.MAX_VALUE;
     }
 
     public long getLastTimestamp() {
@@ -36,10 +67,578 @@ public class MINASModel {
         return noveltyCount;
     }
 
+    public int getDecisionModelSize() {
+        return this.decisionModel.size();
+    }
+
+    /**
+     * Returns the number of dimensions of the data instances, as given by the
+     * micro-clusters of the decision model.
+     *
+     * @return the number of dimensions, or -1 if the decision model never had
+     * a micro-cluster.
+     */
+    public int getDimensions() {
+        return this.decisionModel.getDimensions();
+    }
+
     public DynamicConfusionMatrix getConfusionMatrix() {
         return confusionMatrix;
     }
 
+    /**
+     * Enables or disables the ordering of the dimensions by decreasing
+     * variance during the nearest micro-cluster searches over the decision
+     * model and the sleep memory. It only affects how early the distant
+     * micro-clusters are pruned, never the results.
+     *
+     * @param dimensionOrdering whether the dimensions should be ordered.
+     */
+    public void setDimensionOrdering(final boolean dimensionOrdering) {
+        this.decisionModel.setDimensionOrdering(dimensionOrdering);
+        this.sleepMemory.setDimensionOrdering(dimensionOrdering);
+    }
+
+    /**
+     * Sets the maximum number of micro-clusters kept in the sleep memory.
+     * The exceeding micro-clusters are evicted, starting from the ones that
+     * were reactivated the fewest times, and are either discarded or spilled
+     * to disk (see {@link #setSleepMemorySpillFile(File)}).
+     *
+     * @param capacity the maximum number of micro-clusters kept in memory.
+     */
+    public void setSleepMemoryCapacity(final int capacity) {
+        this.sleepMemory.setCapacity(capacity);
+    }
+
+    /**
+     * Sets the file that receives the micro-clusters evicted from the sleep
+     * memory. The spilled micro-clusters are still searched during the
+     * novelty detection procedure.
+     *
+     * @param file the file, or {@code null} to discard the evicted
+     *             micro-clusters.
+     * @throws IOException if the file could not be opened.
+     */
+    public void setSleepMemorySpillFile(final File file) throws IOException {
+        this.sleepMemory.setSpillFile(file);
+    }
+
+    public boolean isSinglePrecision() {
+        return isSinglePrecision;
+    }
+
+    /**
+     * Sets whether the centroids of the decision model and of the sleep
+     * memory, and the features of the data instances kept in the temporary
+     * memory, are stored in single precision. It halves the memory taken by
+     * the model and the memory traffic of the nearest micro-cluster searches,
+     * while the summaries of the micro-clusters and the thresholds are still
+     * computed in double precision. The rounding of the centroids may change
+     * the closest micro-cluster of a data instance lying almost halfway
+     * between two of them, so the results may differ slightly from the ones
+     * obtained in double precision.
+     *
+     * @param isSinglePrecision whether single precision is used.
+     */
+    public void setSinglePrecision(final boolean isSinglePrecision) {
+        this.isSinglePrecision = isSinglePrecision;
+        this.decisionModel.setSinglePrecision(isSinglePrecision);
+        this.sleepMemory.setSinglePrecision(isSinglePrecision);
+    }
+
+    /**
+     * Enables or disables the approximate nearest micro-cluster searches over
+     * the decision model, used by the data instance decision rules that
+     * support them, such as
+     * {@link br.ufu.facom.minas.core.decisionrule.datainstance.DataInstanceDecisionRule_1}.
+     * The threshold of the micro-cluster found is still checked exactly, but
+     * a data instance may be classified by a micro-cluster other than the
+     * closest one, so the results may differ from the exact ones.
+     *
+     * @param efSearch the number of candidates kept by each search, which
+     *                 trades latency for recall, or zero to disable the
+     *                 approximate searches.
+     * @param samplingInterval the number of approximate searches between two
+     *                         checks against the exact search, or zero to
+     *                         never check.
+     */
+    public void setApproximateSearch(final int efSearch, final int samplingInterval) {
+        this.decisionModel.setApproximateSearch(efSearch, samplingInterval);
+    }
+
+    /**
+     * Returns the number of approximate searches over the decision model
+     * that were also executed exactly.
+     *
+     * @return the number of sampled searches.
+     */
+    public long getApproximateSearchSampleCount() {
+        return this.decisionModel.getSampledSearchCount();
+    }
+
+    /**
+     * Returns the number of sampled approximate searches over the decision
+     * model that returned a micro-cluster farther than the closest one.
+     *
+     * @return the number of mismatches.
+     */
+    public long getApproximateSearchMismatchCount() {
+        return this.decisionModel.getMismatchCount();
+    }
+
+    /**
+     * Sets the number of pivots used to prune the nearest micro-cluster
+     * searches through the triangle inequality, or zero to scan every
+     * micro-cluster. The pivots are used over the decision model and over the
+     * micro-clusters of the sleep memory held in memory, but not over the ones
+     * spilled to disk. The results are not affected (see
+     * {@link MicroClusterList#setPivotCount(int)}).
+     *
+     * @param pivotCount the number of pivots.
+     */
+    public void setPivotCount(final int pivotCount) {
+        this.decisionModel.setPivotCount(pivotCount);
+        this.sleepMemory.setPivotCount(pivotCount);
+    }
+
+    /**
+     * Partitions the centroids of the decision model across several
+     * {@link br.ufu.facom.minas.core.shard.ShardServer} processes, which then
+     * answer the nearest micro-cluster searches, or searches locally again if
+     * the list is empty. The novelty detection still runs on this model, and
+     * the results are not affected (see
+     * {@link MicroClusterList#setShards(List, ShardPartitioning)}).
+     *
+     * @param shards the addresses of the shards, or an empty list.
+     * @param partitioning the strategy used to assign the micro-clusters to
+     *                     the shards.
+     * @throws IOException if a shard can't be reached.
+     */
+    public void setShards(final List<InetSocketAddress> shards, final ShardPartitioning partitioning)
+            throws IOException {
+        this.decisionModel.setShards(shards, partitioning);
+    }
+
+    public boolean isContinuousExpiry() {
+        return isContinuousExpiry;
+    }
+
+    /**
+     * Sets whether the inactive micro-clusters are moved from the decision
+     * model to the sleep memory after every data instance, instead of only
+     * when a window is completed. Spreading the expiry avoids the bursts of
+     * work at the end of the windows, but the micro-clusters are put to
+     * sleep earlier than in the original algorithm.
+     *
+     * @param isContinuousExpiry whether the micro-clusters are expired
+     *                           continuously.
+     */
+    public void setContinuousExpiry(final boolean isContinuousExpiry) {
+        this.isContinuousExpiry = isContinuousExpiry;
+    }
+
+    public int getCompactionInterval() {
+        return compactionInterval;
+    }
+
+    /**
+     * Sets the number of windows between two compactions of the decision
+     * model (see {@link #compact()}), which run when a window is completed.
+     * Merging micro-clusters changes which ones explain the data instances,
+     * so the results may differ from the ones of an uncompacted model.
+     *
+     * @param compactionInterval the number of windows, or zero to disable
+     *                           the periodic compaction.
+     */
+    public void setCompactionInterval(final int compactionInterval) {
+        this.compactionInterval = Math.max(compactionInterval, 0);
+    }
+
+    public int getMaxMicroClustersPerLabel() {
+        return maxMicroClustersPerLabel;
+    }
+
+    /**
+     * Sets the maximum number of micro-clusters of a label kept in the
+     * decision model by each compaction (see {@link #compact()}), for each of
+     * the categories of the label. Only micro-clusters with the same label
+     * and category are merged, so the limit applies to each category.
+     *
+     * @param maxMicroClustersPerLabel the maximum number of micro-clusters,
+     *                                 or {@link Integer#MAX_VALUE} for no
+     *                                 limit.
+     */
+    public void setMaxMicroClustersPerLabel(final int maxMicroClustersPerLabel) {
+        this.maxMicroClustersPerLabel = Math.max(maxMicroClustersPerLabel, 1);
+    }
+
+    /**
+     * Compacts the decision model. First, the micro-clusters with the same
+     * label and category whose centroids lie within the radius of each other
+     * are merged, until none is left. Then, the closest pairs of such
+     * micro-clusters are merged until each label and category is within the
+     * maximum number of micro-clusters per label (see
+     * {@link #setMaxMicroClustersPerLabel(int)}). The radii are the ones used
+     * by the data instance decision rule, if it provides them, or the
+     * standard deviations of the micro-clusters otherwise.
+     *
+     * @return the report of the compaction.
+     */
+    public CompactionReport compact() {
+
+        final double unkR = this.confusionMatrix.measureUnkR();
+        final double cer = this.confusionMatrix.measureCER();
+        final int sizeBefore = this.decisionModel.size();
+        final long bytesBefore = this.decisionModel.estimateRetainedBytes();
+        final long start = System.nanoTime();
+
+        final int overlapMergeCount = this.decisionModel.mergeOverlappingPeers();
+        final int capMergeCount = this.maxMicroClustersPerLabel == Integer.MAX_VALUE
+                ? 0 : this.decisionModel.mergePeersDownTo(this.maxMicroClustersPerLabel);
+
+        this.lastCompactionReport = new CompactionReport(this.lastTimestamp, sizeBefore, this.decisionModel.size(),
+                bytesBefore, this.decisionModel.estimateRetainedBytes(), overlapMergeCount, capMergeCount,
+                System.nanoTime() - start, unkR, cer);
+        ++this.compactionCount;
+        return this.lastCompactionReport;
+    }
+
+    public int getCompactionCount() {
+        return compactionCount;
+    }
+
+    /**
+     * Returns the report of the last compaction of the decision model.
+     *
+     * @return the report, or {@code null} if the decision model was never
+     * compacted.
+     */
+    public CompactionReport getLastCompactionReport() {
+        return lastCompactionReport;
+    }
+
+    /**
+     * Sets the online summary of the temporary memory used by the novelty
+     * detection procedure. When a summary is set, the unknown data instances
+     * are absorbed into it on arrival, and the novelty detection procedure
+     * evaluates the micro-clusters of the summary instead of clustering the
+     * whole temporary memory with the configured clustering algorithm. The
+     * data instances already in the temporary memory are absorbed right
+     * away.
+     *
+     * @param temporaryMemorySummary the summary, or {@code null} to cluster
+     *                               the whole temporary memory.
+     */
+    public void setTemporaryMemorySummary(final TemporaryMemorySummary temporaryMemorySummary) {
+        this.temporaryMemorySummary = temporaryMemorySummary;
+        if (temporaryMemorySummary != null) {
+            for (final DataInstance instance : this.temporaryMemory) {
+                temporaryMemorySummary.add(instance);
+            }
+        }
+    }
+
+    /**
+     * Returns a rough estimate of the number of bytes of heap retained by
+     * this model, which is the sum of the estimates of its components (see
+     * {@link #estimateRetainedBytes(MemoryComponent)}). The estimates are kept
+     * up to date as the model changes, so it takes constant time.
+     *
+     * @return the estimated number of bytes.
+     */
+    public long estimateRetainedBytes() {
+
+        long bytes = 0;
+        for (final MemoryComponent component : MemoryComponent.values()) {
+            bytes += this.estimateRetainedBytes(component);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns a rough estimate of the number of bytes of heap retained by a
+     * component of this model, computed from the number of micro-clusters,
+     * data instances, timestamps or labels it holds and their
+     * dimensionality. The online summary of the temporary memory and the
+     * micro-clusters spilled to disk aren't counted.
+     *
+     * @param component the component.
+     * @return the estimated number of bytes.
+     */
+    public long estimateRetainedBytes(final MemoryComponent component) {
+
+        if (component == MemoryComponent.DECISION_MODEL) {
+            return this.decisionModel.estimateRetainedBytes();
+        } else if (component == MemoryComponent.SLEEP_MEMORY) {
+            return this.sleepMemory.estimateRetainedBytes();
+        } else if (component == MemoryComponent.TEMPORARY_MEMORY) {
+            return this.temporaryMemory.estimateRetainedBytes();
+        } else if (component == MemoryComponent.TIMESTAMPS) {
+            return this.decisionModel.estimateTimestampBytes()
+                    + this.sleepMemory.getMicroClusters().estimateTimestampBytes();
+        } else {
+            return this.confusionMatrix.estimateRetainedBytes();
+        }
+    }
+
+    /**
+     * Sets the number of bytes of heap a component of this model may
+     * retain, as estimated by {@link #estimateRetainedBytes(MemoryComponent)}.
+     * The budgets are enforced after every data instance processed, each
+     * component by its own policy (see {@link MemoryComponent}). The decision
+     * model and the confusion matrix can't be bounded.
+     *
+     * @param component the component.
+     * @param bytes the budget, or {@link Long#MAX_VALUE} to remove it.
+     * @throws IllegalArgumentException if the component can't be bounded or
+     * the budget is negative.
+     */
+    public void setMemoryBudget(final MemoryComponent component, final long bytes) {
+
+        if (component == MemoryComponent.DECISION_MODEL || component == MemoryComponent.CONFUSION_MATRIX) {
+            throw new IllegalArgumentException("The " + component + " component can't be bounded");
+        }
+        if (bytes < 0) {
+            throw new IllegalArgumentException("The memory budget must not be negative");
+        }
+
+        if (bytes == Long.MAX_VALUE) {
+            this.memoryBudgets.remove(component);
+            if (component == MemoryComponent.TEMPORARY_MEMORY) {
+                this.instanceLifespanLimit = Long.MAX_VALUE;
+            }
+        } else {
+            this.memoryBudgets.put(component, bytes);
+        }
+    }
+
+    public long getMemoryBudget(final MemoryComponent component) {
+        final Long bytes = this.memoryBudgets.get(component);
+        return bytes == null ? Long.MAX_VALUE : bytes;
+    }
+
+    /**
+     * Returns the instance lifespan imposed by the budget of the temporary
+     * memory, which applies whenever it is shorter than the configured one.
+     *
+     * @return the instance lifespan, or {@link Long#MAX_VALUE} if the
+     * temporary memory is within its budget.
+     */
+    public long getInstanceLifespanLimit() {
+        return instanceLifespanLimit;
+    }
+
+    public int getTimestampCompactionCount() {
+        return timestampCompactionCount;
+    }
+
+    public int getEvictedMicroClusterCount() {
+        return evictedMicroClusterCount;
+    }
+
+    public long getDroppedInstanceCount() {
+        return droppedInstanceCount;
+    }
+
+    /**
+     * Brings every component of this model back within its memory budget.
+     *
+     * @param config the MINAS configuration the model is used with.
+     */
+    void enforceMemoryBudgets(final MINASConfiguration config) {
+
+        if (this.memoryBudgets.isEmpty()) {
+            return;
+        }
+
+        final Long timestampBudget = this.memoryBudgets.get(MemoryComponent.TIMESTAMPS);
+        if (timestampBudget != null && this.estimateRetainedBytes(MemoryComponent.TIMESTAMPS) > timestampBudget) {
+            this.decisionModel.compactTimestamps();
+            this.sleepMemory.getMicroClusters().compactTimestamps();
+            ++this.timestampCompactionCount;
+        }
+
+        final Long sleepMemoryBudget = this.memoryBudgets.get(MemoryComponent.SLEEP_MEMORY);
+        if (sleepMemoryBudget != null) {
+            final long bytes = this.sleepMemory.estimateRetainedBytes();
+            final int size = this.sleepMemory.getMicroClusters().size();
+            if (bytes > sleepMemoryBudget && size > 0) {
+                // Every micro-cluster in memory is estimated to retain the
+                // same number of bytes.
+                final double bytesPerMicroCluster = (double) bytes / size;
+                final int excess = (int) Math.ceil((bytes - sleepMemoryBudget) / bytesPerMicroCluster);
+                this.evictedMicroClusterCount += this.sleepMemory.evict(excess);
+            }
+        }
+
+        final Long temporaryMemoryBudget = this.memoryBudgets.get(MemoryComponent.TEMPORARY_MEMORY);
+        if (temporaryMemoryBudget != null) {
+            if (this.temporaryMemory.estimateRetainedBytes() > temporaryMemoryBudget) {
+
+                final List<DataInstance> dropped = this.temporaryMemory.removeOldest(temporaryMemoryBudget);
+                if (this.temporaryMemorySummary != null) {
+                    for (final DataInstance instance : dropped) {
+                        this.temporaryMemorySummary.remove(instance);
+                    }
+                }
+                this.droppedInstanceCount += dropped.size();
+
+                // The lifespan is tightened to the age of the oldest data
+                // instance kept, so that the ones arriving from now on expire
+                // before the budget is exceeded again.
+                this.instanceLifespanLimit = this.temporaryMemory.isEmpty()
+                        ? 0 : this.lastTimestamp - this.temporaryMemory.get(0).getTimestamp();
+                this.lastLifespanChange = this.lastTimestamp;
+
+            } else if (this.instanceLifespanLimit != Long.MAX_VALUE
+                    && this.temporaryMemory.estimateRetainedBytes() < temporaryMemoryBudget / 2
+                    && this.lastTimestamp - this.lastLifespanChange >= config.getWindowSize()) {
+
+                final long relaxed = Math.max(this.instanceLifespanLimit * 2, 1);
+                this.instanceLifespanLimit = relaxed >= config.getInstanceLifespan() ? Long.MAX_VALUE : relaxed;
+                this.lastLifespanChange = this.lastTimestamp;
+            }
+        }
+    }
+
+    /**
+     * Writes the state of this model, so that it can be read back by
+     * {@link #readFrom(DataInput, MINASConfiguration)}: the micro-clusters of
+     * the decision model and of the sleep memory, the temporary memory, the
+     * confusion matrix, the memory budgets, the compaction options and the
+     * options that change the results, and the online summary of the
+     * temporary memory, if any. The approximate search option is not
+     * written.
+     *
+     * @param out the output.
+     * @throws IOException if the model could not be written.
+     * @throws IllegalStateException if micro-clusters were spilled from the
+     * sleep memory to disk.
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+
+        if (this.sleepMemory.getSpilledCount() > 0) {
+            throw new IllegalStateException("A model with micro-clusters spilled to disk can't be written");
+        }
+
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(this.lastTimestamp);
+        out.writeInt(this.noveltyCount);
+        out.writeBoolean(this.isContinuousExpiry);
+        out.writeBoolean(this.isSinglePrecision);
+        out.writeBoolean(this.decisionModel.isDimensionOrdering());
+        out.writeInt(this.decisionModel.getPivotCount());
+        out.writeInt(this.sleepMemory.getCapacity());
+        out.writeLong(this.getMemoryBudget(MemoryComponent.SLEEP_MEMORY));
+        out.writeLong(this.getMemoryBudget(MemoryComponent.TEMPORARY_MEMORY));
+        out.writeLong(this.getMemoryBudget(MemoryComponent.TIMESTAMPS));
+        out.writeLong(this.instanceLifespanLimit);
+        out.writeLong(this.lastLifespanChange);
+        out.writeInt(this.compactionInterval);
+        out.writeInt(this.maxMicroClustersPerLabel);
+
+        out.writeInt(this.decisionModel.size());
+        for (final MicroCluster microCluster : this.decisionModel) {
+            microCluster.writeTo(out);
+        }
+
+        out.writeInt(this.sleepMemory.getMicroClusters().size());
+        for (final MicroCluster microCluster : this.sleepMemory.getMicroClusters()) {
+            microCluster.writeTo(out);
+        }
+
+        out.writeInt(this.temporaryMemory.size());
+        for (final DataInstance instance : this.temporaryMemory) {
+            instance.writeTo(out);
+        }
+
+        out.writeBoolean(this.temporaryMemorySummary != null);
+        if (this.temporaryMemorySummary != null) {
+            this.temporaryMemorySummary.writeTo(out, this.temporaryMemory);
+        }
+
+        this.confusionMatrix.writeTo(out);
+    }
+
+    /**
+     * Reads a model written by {@link #writeTo(DataOutput)}. The micro-clusters,
+     * including the ones of the online summary of the temporary memory, keep
+     * their order and members, so the model read produces the same results as
+     * the one written.
+     *
+     * @param in the input.
+     * @param config the MINAS configuration the model is used with.
+     * @return the model.
+     * @throws IOException if the model could not be read.
+     */
+    public static MINASModel readFrom(final DataInput in, final MINASConfiguration config) throws IOException {
+
+        final int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported model format version " + version);
+        }
+
+        final long lastTimestamp = in.readLong();
+        final int noveltyCount = in.readInt();
+        final boolean isContinuousExpiry = in.readBoolean();
+        final boolean isSinglePrecision = in.readBoolean();
+        final boolean isDimensionOrdering = in.readBoolean();
+        final int pivotCount = in.readInt();
+        final int sleepMemoryCapacity = in.readInt();
+        final long sleepMemoryBudget = in.readLong();
+        final long temporaryMemoryBudget = in.readLong();
+        final long timestampBudget = in.readLong();
+        final long instanceLifespanLimit = in.readLong();
+        final long lastLifespanChange = in.readLong();
+        final int compactionInterval = in.readInt();
+        final int maxMicroClustersPerLabel = in.readInt();
+
+        final MicroClusterList decisionModel = new MicroClusterList();
+        for (int i = in.readInt(); i > 0; --i) {
+            decisionModel.add(MicroCluster.readFrom(in));
+        }
+
+        final List<MicroCluster> sleeping = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; --i) {
+            sleeping.add(MicroCluster.readFrom(in));
+        }
+
+        final List<DataInstance> temporaryMemory = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; --i) {
+            temporaryMemory.add(DataInstance.readFrom(in));
+        }
+
+        final TemporaryMemorySummary summary = in.readBoolean()
+                ? TemporaryMemorySummary.readFrom(in, temporaryMemory)
+                : null;
+
+        final MINASModel model = MINAS.createModel(decisionModel, DynamicConfusionMatrix.readFrom(in), config);
+        model.lastTimestamp = lastTimestamp;
+        model.noveltyCount = noveltyCount;
+        model.isContinuousExpiry = isContinuousExpiry;
+        model.setSleepMemoryCapacity(sleepMemoryCapacity);
+        model.sleepMemory.addAll(sleeping);
+        model.temporaryMemory.addAll(temporaryMemory);
+        model.setSinglePrecision(isSinglePrecision);
+        model.setDimensionOrdering(isDimensionOrdering);
+        model.setPivotCount(pivotCount);
+        model.temporaryMemorySummary = summary;
+        model.setMemoryBudget(MemoryComponent.SLEEP_MEMORY, sleepMemoryBudget);
+        model.setMemoryBudget(MemoryComponent.TEMPORARY_MEMORY, temporaryMemoryBudget);
+        model.setMemoryBudget(MemoryComponent.TIMESTAMPS, timestampBudget);
+        model.instanceLifespanLimit = instanceLifespanLimit;
+        model.lastLifespanChange = lastLifespanChange;
+        model.setCompactionInterval(compactionInterval);
+        model.setMaxMicroClustersPerLabel(maxMicroClustersPerLabel);
+
+        return model;
+    }
+
+    TemporaryMemorySummary getTemporaryMemorySummary() {
+        return temporaryMemorySummary;
+    }
+
     void setNoveltyCount(final int noveltyCount) {
         this.noveltyCount = noveltyCount;
     }
@@ -48,11 +647,11 @@ public class MINASModel {
         return temporaryMemory;
     }
 
-    List<MicroCluster> getDecisionModel() {
+    MicroClusterList getDecisionModel() {
         return decisionModel;
     }
 
-    List<MicroCluster> getSleepMemory() {
+    SleepMemory getSleepMemory() {
         return sleepMemory;
     }
 
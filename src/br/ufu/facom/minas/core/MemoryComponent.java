@@ -0,0 +1,54 @@
+package br.ufu.facom.minas.core;
+
+/**
+ * Components of a {@link MINASModel} whose retained heap is estimated
+ * separately (see {@link MINASModel#estimateRetainedBytes(MemoryComponent)}).
+ * Each component that can be bounded by a budget (see
+ * {@link MINASModel#setMemoryBudget(MemoryComponent, long)}) has its own
+ * policy to bring it back within its budget.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public enum MemoryComponent {
+
+    /**
+     * The micro-clusters of the decision model and the indexes kept over
+     * them. It can't be bounded, since it defines the classifications.
+     */
+    DECISION_MODEL,
+
+    /**
+     * The micro-clusters of the sleep memory held in memory. When its budget
+     * is exceeded, micro-clusters are evicted, in the same order as when the
+     * capacity of the sleep memory is exceeded (see
+     * {@link br.ufu.facom.minas.core.datastructure.SleepMemory}).
+     */
+    SLEEP_MEMORY,
+
+    /**
+     * The unknown data instances waiting for the novelty detection. When its
+     * budget is exceeded, the oldest data instances are dropped, and the
+     * instance lifespan is tightened to the age of the oldest remaining one,
+     * so that the temporary memory keeps fitting. The lifespan is doubled
+     * back, up to the configured one, after each window the temporary memory
+     * spends below half of its budget.
+     */
+    TEMPORARY_MEMORY,
+
+    /**
+     * The timestamps of the data instances of the micro-clusters of the
+     * decision model and of the sleep memory, which grow with every data
+     * instance explained by an incremental model. When its budget is
+     * exceeded, the timestamps are forgotten, which doesn't change the
+     * results, since they are only needed while a micro-cluster is formed
+     * from the temporary memory.
+     */
+    TIMESTAMPS,
+
+    /**
+     * The counts of the confusion matrix. It can't be bounded.
+     */
+    CONFUSION_MATRIX
+
+}
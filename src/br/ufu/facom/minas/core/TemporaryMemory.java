@@ -0,0 +1,139 @@
+package br.ufu.facom.minas.core;
+
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Temporary memory of a {@link MINASModel}: a list of the unknown data
+ * instances, in the order they arrived, which keeps a running estimate of the
+ * bytes of heap they retain.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+final class TemporaryMemory extends AbstractList<DataInstance> implements RandomAccess {
+
+    // Rough sizes, in bytes, of a data instance on a 64-bit JVM with
+    // compressed references: its fields, the header of its values array and
+    // the reference held by the list.
+    private static final int DATA_INSTANCE_FIELDS = 48;
+    private static final int ARRAY_OVERHEAD = 16;
+    private static final int REFERENCE = 8;
+
+    private final List<DataInstance> instances;
+    private long retainedBytes;
+
+    TemporaryMemory() {
+        this.instances = new ArrayList<>();
+    }
+
+    @Override
+    public DataInstance get(final int index) {
+        return this.instances.get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.instances.size();
+    }
+
+    @Override
+    public void add(final int index, final DataInstance instance) {
+        this.instances.add(index, instance);
+        this.retainedBytes += estimateRetainedBytes(instance);
+        ++this.modCount;
+    }
+
+    @Override
+    public DataInstance set(final int index, final DataInstance instance) {
+        final DataInstance previous = this.instances.set(index, instance);
+        this.retainedBytes += estimateRetainedBytes(instance) - estimateRetainedBytes(previous);
+        return previous;
+    }
+
+    @Override
+    public DataInstance remove(final int index) {
+        final DataInstance instance = this.instances.remove(index);
+        this.retainedBytes -= estimateRetainedBytes(instance);
+        ++this.modCount;
+        return instance;
+    }
+
+    /**
+     * Removes the data instances contained in the collection in a single
+     * pass, keeping the order of the remaining ones.
+     */
+    @Override
+    public boolean removeAll(final Collection<?> collection) {
+
+        final List<DataInstance> remaining = new ArrayList<>(this.instances.size());
+        for (final DataInstance instance : this.instances) {
+            if (collection.contains(instance)) {
+                this.retainedBytes -= estimateRetainedBytes(instance);
+            } else {
+                remaining.add(instance);
+            }
+        }
+
+        if (remaining.size() == this.instances.size()) {
+            return false;
+        }
+
+        this.instances.clear();
+        this.instances.addAll(remaining);
+        ++this.modCount;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        this.instances.clear();
+        this.retainedBytes = 0;
+        ++this.modCount;
+    }
+
+    /**
+     * Removes the oldest data instances, which are the first ones of the
+     * list, until the estimated number of bytes retained by the remaining
+     * ones is within the budget.
+     *
+     * @param budget the number of bytes.
+     * @return the removed data instances, oldest first.
+     */
+    List<DataInstance> removeOldest(final long budget) {
+
+        int count = 0;
+        long bytes = this.retainedBytes;
+        while (bytes > budget && count < this.instances.size()) {
+            bytes -= estimateRetainedBytes(this.instances.get(count++));
+        }
+
+        final List<DataInstance> oldest = this.instances.subList(0, count);
+        final List<DataInstance> removed = new ArrayList<>(oldest);
+        oldest.clear();
+        this.retainedBytes = bytes;
+        ++this.modCount;
+        return removed;
+    }
+
+    /**
+     * Returns the estimated number of bytes of heap retained by the data
+     * instances of this list.
+     *
+     * @return the estimated number of bytes.
+     */
+    long estimateRetainedBytes() {
+        return retainedBytes;
+    }
+
+    private static long estimateRetainedBytes(final DataInstance instance) {
+        final int values = instance.isSparse() ? instance.getIndices().length : instance.getLength();
+        final int valueSize = instance.isSparse() ? 12 : (instance.isSinglePrecision() ? 4 : 8);
+        return DATA_INSTANCE_FIELDS + ARRAY_OVERHEAD + (long) values * valueSize + REFERENCE;
+    }
+}
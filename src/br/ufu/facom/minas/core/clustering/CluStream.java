@@ -2,27 +2,48 @@ package br.ufu.facom.minas.core.clustering;
 
 import br.ufu.facom.minas.core.datastructure.DataInstance;
 import br.ufu.facom.minas.core.datastructure.MicroCluster;
+import br.ufu.facom.minas.core.datastructure.MicroClusterList;
+import br.ufu.facom.minas.core.distance.DistanceKernel;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Implementation of the {@link ClusteringAlgorithm} interface for the
- * CluStream algorithm.
+ * CluStream algorithm. The algorithm can also be fed one data instance at a
+ * time (see {@link #newClustering()}), in which case only the first
+ * {@code trainingDataSize} data instances and the buffer are kept in memory.
  *
  * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
  * @since 1.0
  */
-public class CluStream implements ClusteringAlgorithm {
+public class CluStream implements OnlineClusteringAlgorithm {
 
     private final int trainingDataSize;
     private final int bufferSize;
+    private int pivotCount;
 
     public CluStream(final int trainingDataSize, final int bufferSize) {
         this.trainingDataSize = trainingDataSize;
         this.bufferSize = bufferSize;
     }
 
+    public int getPivotCount() {
+        return pivotCount;
+    }
+
+    /**
+     * Sets the number of pivots used to prune the nearest micro-cluster
+     * searches over the buffer, or zero to scan the whole buffer. The
+     * resulting micro-clusters are not affected (see
+     * {@link MicroClusterList#setPivotCount(int)}).
+     *
+     * @param pivotCount the number of pivots.
+     */
+    public void setPivotCount(final int pivotCount) {
+        this.pivotCount = pivotCount;
+    }
+
     @Override
     public List<MicroCluster> execute(final List<DataInstance> instances) {
 
@@ -36,13 +57,36 @@ public class CluStream implements ClusteringAlgorithm {
         final List<DataInstance> onlineData = new ArrayList<>(
                 instances.subList(this.trainingDataSize, instances.size()));
 
-        final List<MicroCluster> buffer = CluStream.buildBuffer(offlineData,
-                Math.min(instances.size(), this.bufferSize));
+        final MicroClusterList buffer = newBuffer(CluStream.buildBuffer(offlineData,
+                Math.min(instances.size(), this.bufferSize)), this.pivotCount);
 
         for (final DataInstance instance : onlineData) {
             process(instance, buffer);
         }
 
+        // Releases the micro-clusters from the buffer, so that they can be
+        // added to other lists.
+        final List<MicroCluster> microClusters = new ArrayList<>(buffer);
+        buffer.clear();
+        return microClusters;
+    }
+
+    /**
+     * Starts a new clustering, to which the data instances are fed one at a
+     * time. The resulting micro-clusters are the same as the ones returned
+     * by {@link #execute(List)} over the same data instances, as long as the
+     * buffer size does not exceed the training data size.
+     *
+     * @return the new clustering.
+     */
+    @Override
+    public OnlineClustering newClustering() {
+        return new Clustering(this.trainingDataSize, this.bufferSize, this.pivotCount);
+    }
+
+    private static MicroClusterList newBuffer(final List<MicroCluster> microClusters, final int pivotCount) {
+        final MicroClusterList buffer = new MicroClusterList(microClusters);
+        buffer.setPivotCount(pivotCount);
         return buffer;
     }
 
@@ -52,27 +96,22 @@ public class CluStream implements ClusteringAlgorithm {
         return kMeans.execute(instances);
     }
 
-    private static void process(final DataInstance instance, final List<MicroCluster> buffer) {
-
+    private static void process(final DataInstance instance, final MicroClusterList buffer) {
 
         final MicroCluster closestMicroCluster = MicroCluster.calculateClosestMicroCluster(instance, buffer);
 
-        final double distance = instance.distance(closestMicroCluster.calculateCentroid());
+        final double squaredDistance = closestMicroCluster.squaredDistance(instance);
         final double radius;
 
         if (closestMicroCluster.getN() > 1) {
             radius = closestMicroCluster.calculateStandardDeviation() * 2;
         } else {
-
-            final List<MicroCluster> bufferSubSet = new ArrayList<>(buffer);
-            bufferSubSet.remove(closestMicroCluster);
-
             radius = MicroCluster
-                    .calculateClosestMicroCluster(closestMicroCluster.calculateCentroid(), bufferSubSet)
+                    .calculateClosestOtherMicroCluster(closestMicroCluster, buffer)
                     .distance(closestMicroCluster);
         }
 
-        if (distance < radius) {
+        if (DistanceKernel.isStrictlyWithin(squaredDistance, radius)) {
             closestMicroCluster.incrementAndUpdateTimestamp(instance);
         } else {
             final MicroCluster microCluster = new MicroCluster(instance);
@@ -82,38 +121,61 @@ public class CluStream implements ClusteringAlgorithm {
     }
 
     private static void addMicroCluster(final MicroCluster microCluster,
-                                        final List<MicroCluster> microClustersBuffer) {
+                                        final MicroClusterList microClustersBuffer) {
 
-        MicroCluster m1 = null;
-        MicroCluster m2 = null;
+        final MicroCluster[] closestPair = microClustersBuffer.calculateClosestPair();
 
-        double minDistance = Double.MAX_VALUE;
+        if (closestPair != null) {
+            microClustersBuffer.remove(closestPair[0]);
+            microClustersBuffer.remove(closestPair[1]);
+            microClustersBuffer.add(MicroCluster.merge(closestPair[0], closestPair[1]));
+        }
+
+        microClustersBuffer.add(microCluster);
 
-        for (int i = 0; i < microClustersBuffer.size(); i++) {
+    }
+
+    private static final class Clustering implements OnlineClustering {
 
-            final MicroCluster a = microClustersBuffer.get(i);
+        private final int trainingDataSize;
+        private final int bufferSize;
+        private final int pivotCount;
+        private List<DataInstance> offlineData;
+        private MicroClusterList buffer;
 
-            for (int j = i + 1; j < microClustersBuffer.size(); j++) {
+        private Clustering(final int trainingDataSize, final int bufferSize, final int pivotCount) {
+            this.trainingDataSize = trainingDataSize;
+            this.bufferSize = bufferSize;
+            this.pivotCount = pivotCount;
+            this.offlineData = new ArrayList<>();
+        }
 
-                final MicroCluster b = microClustersBuffer.get(j);
+        @Override
+        public void update(final DataInstance instance) {
 
-                final double distance = a.distance(b);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    m1 = a;
-                    m2 = b;
+            if (this.buffer == null) {
+                if (this.offlineData.size() < this.trainingDataSize) {
+                    this.offlineData.add(instance);
+                    return;
                 }
+                this.buffer = newBuffer(CluStream.buildBuffer(this.offlineData,
+                        Math.min(this.offlineData.size() + 1, this.bufferSize)), this.pivotCount);
+                this.offlineData = null;
             }
-        }
 
-        if (m1 != null) {
-            microClustersBuffer.remove(m1);
-            microClustersBuffer.remove(m2);
-            microClustersBuffer.add(MicroCluster.merge(m1, m2));
+            process(instance, this.buffer);
         }
 
-        microClustersBuffer.add(microCluster);
+        @Override
+        public List<MicroCluster> finish() {
 
-    }
+            if (this.buffer == null) {
+                return CluStream.buildBuffer(this.offlineData, Math.min(this.offlineData.size(), this.bufferSize));
+            }
 
+            final List<MicroCluster> microClusters = new ArrayList<>(this.buffer);
+            this.buffer.clear();
+            return microClusters;
+        }
+    }
 }
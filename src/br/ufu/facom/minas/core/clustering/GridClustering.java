@@ -0,0 +1,204 @@
+package br.ufu.facom.minas.core.clustering;
+
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+import br.ufu.facom.minas.core.datastructure.MicroCluster;
+
+import java.util.*;
+
+/**
+ * Implementation of the {@link ClusteringAlgorithm} interface for a
+ * grid-based density clustering algorithm, in the style of D-Stream. The
+ * range of each dimension is split into the same number of intervals, and
+ * each data instance is hashed into the hypercube cell containing it. Cells
+ * holding at least {@code minDensity} instances are dense, and dense cells
+ * sharing a face are merged into the same cluster. Sparse cells sharing a
+ * face with a dense cell are attached to its cluster, while the instances of
+ * the remaining sparse cells are treated as noise and left out of the
+ * result.
+ *
+ * <p>Unlike {@link KMeans}, the number of clusters is not fixed up front, and
+ * the instances are visited a constant number of times, so the running time
+ * is linear in the number of instances.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class GridClustering implements ClusteringAlgorithm {
+
+    private final int cellsPerDimension;
+    private final int minDensity;
+
+    /**
+     * @param cellsPerDimension the number of intervals into which the range
+     *                          of each dimension is split.
+     * @param minDensity the minimum number of instances of a dense cell.
+     * @throws IllegalArgumentException if any of the arguments is not
+     * positive.
+     */
+    public GridClustering(final int cellsPerDimension, final int minDensity) {
+
+        if (cellsPerDimension < 1 || minDensity < 1) {
+            throw new IllegalArgumentException("The number of cells and the minimum density must be positive");
+        }
+
+        this.cellsPerDimension = cellsPerDimension;
+        this.minDensity = minDensity;
+    }
+
+    @Override
+    public List<MicroCluster> execute(final List<DataInstance> instances) {
+
+        if (instances.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Adapts the width of the cells to the range of each dimension.
+        final int dimensions = instances.get(0).getLength();
+        final double[] min = new double[dimensions];
+        final double[] width = new double[dimensions];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        final double[] max = new double[dimensions];
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (final DataInstance instance : instances) {
+            for (int i = 0; i < dimensions; ++i) {
+                min[i] = Math.min(min[i], instance.get(i));
+                max[i] = Math.max(max[i], instance.get(i));
+            }
+        }
+        for (int i = 0; i < dimensions; ++i) {
+            width[i] = (max[i] - min[i]) / this.cellsPerDimension;
+        }
+
+        // Hashes the instances into the cells, keeping the cells in the order
+        // of their first instance.
+        final Map<Cell, Cell> cells = new LinkedHashMap<>();
+        final Cell[] instanceCells = new Cell[instances.size()];
+        for (int j = 0; j < instances.size(); ++j) {
+            final DataInstance instance = instances.get(j);
+            final int[] coordinates = new int[dimensions];
+            for (int i = 0; i < dimensions; ++i) {
+                if (width[i] > 0) {
+                    final int coordinate = (int) ((instance.get(i) - min[i]) / width[i]);
+                    coordinates[i] = Math.min(coordinate, this.cellsPerDimension - 1);
+                }
+            }
+            final Cell key = new Cell(coordinates);
+            Cell cell = cells.get(key);
+            if (cell == null) {
+                cell = key;
+                cells.put(cell, cell);
+            }
+            ++cell.size;
+            instanceCells[j] = cell;
+        }
+
+        // Merges the dense cells sharing a face.
+        for (final Cell cell : cells.values()) {
+            if (cell.size >= this.minDensity) {
+                for (final Cell neighbor : neighbors(cell, cells)) {
+                    if (neighbor.size >= this.minDensity) {
+                        union(cell, neighbor);
+                    }
+                }
+            }
+        }
+
+        // Assigns each cell to a cluster, attaching each sparse cell to the
+        // first dense cell sharing a face with it, if any.
+        for (final Cell cell : cells.values()) {
+            if (cell.size >= this.minDensity) {
+                cell.cluster = find(cell);
+            } else {
+                for (final Cell neighbor : neighbors(cell, cells)) {
+                    if (neighbor.size >= this.minDensity) {
+                        cell.cluster = find(neighbor);
+                        break;
+                    }
+                }
+            }
+        }
+
+        // Groups the instances by cluster, keeping their order.
+        final Map<Cell, List<DataInstance>> clusters = new LinkedHashMap<>();
+        for (int j = 0; j < instances.size(); ++j) {
+            final Cell root = instanceCells[j].cluster;
+            if (root != null) {
+                List<DataInstance> cluster = clusters.get(root);
+                if (cluster == null) {
+                    cluster = new ArrayList<>();
+                    clusters.put(root, cluster);
+                }
+                cluster.add(instances.get(j));
+            }
+        }
+
+        final List<MicroCluster> microClusters = new ArrayList<>(clusters.size());
+        for (final List<DataInstance> cluster : clusters.values()) {
+            microClusters.add(new MicroCluster(cluster));
+        }
+        return microClusters;
+    }
+
+    private static List<Cell> neighbors(final Cell cell, final Map<Cell, Cell> cells) {
+
+        final List<Cell> neighbors = new ArrayList<>();
+        for (int i = 0; i < cell.coordinates.length; ++i) {
+            for (int offset = -1; offset <= 1; offset += 2) {
+                final int[] coordinates = cell.coordinates.clone();
+                coordinates[i] += offset;
+                final Cell neighbor = cells.get(new Cell(coordinates));
+                if (neighbor != null) {
+                    neighbors.add(neighbor);
+                }
+            }
+        }
+        return neighbors;
+    }
+
+    private static Cell find(Cell cell) {
+        while (cell.parent != cell) {
+            cell.parent = cell.parent.parent;
+            cell = cell.parent;
+        }
+        return cell;
+    }
+
+    private static void union(final Cell c1, final Cell c2) {
+        final Cell root1 = find(c1);
+        final Cell root2 = find(c2);
+        if (root1 != root2) {
+            root2.parent = root1;
+        }
+    }
+
+    /**
+     * A hypercube cell of the grid, identified by its coordinates, which also
+     * works as a node of the disjoint-set forest used to merge the cells. The
+     * cluster is the root of the set the cell was assigned to, or
+     * {@code null} if its instances are noise.
+     */
+    private static final class Cell {
+
+        private final int[] coordinates;
+        private final int hashCode;
+        private int size;
+        private Cell parent;
+        private Cell cluster;
+
+        private Cell(final int[] coordinates) {
+            this.coordinates = coordinates;
+            this.hashCode = Arrays.hashCode(coordinates);
+            this.parent = this;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof Cell && Arrays.equals(this.coordinates, ((Cell) o).coordinates);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+}
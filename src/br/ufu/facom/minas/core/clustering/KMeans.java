@@ -3,6 +3,7 @@ package br.ufu.facom.minas.core.clustering;
 import br.ufu.facom.minas.core.datastructure.DataInstance;
 import br.ufu.facom.minas.core.datastructure.MicroCluster;
 import br.ufu.facom.minas.core.datastructure.Point;
+import br.ufu.facom.minas.core.distance.DistanceKernel;
 
 import java.util.*;
 
@@ -38,14 +39,15 @@ public class KMeans implements ClusteringAlgorithm {
 
     private static List<List<DataInstance>> execute(final List<DataInstance> instances, final int k) {
 
-        final ArrayList<Point> centroids = chooseCentroids(instances, k);
+        final double[] points = pack(instances);
+        final ArrayList<Point> centroids = chooseCentroids(instances, points, k);
 
         ArrayList<List<DataInstance>> clusters;
         ArrayList<Point> oldCentroids;
 
         do {
 
-            clusters = groupByClosestCentroid(instances, centroids);
+            clusters = groupByClosestCentroid(instances, points, centroids);
             oldCentroids = new ArrayList<>(centroids);
 
             for (int i = 0; i < clusters.size(); ++i) {
@@ -60,26 +62,41 @@ public class KMeans implements ClusteringAlgorithm {
         return clusters;
     }
 
-    private static ArrayList<Point> chooseCentroids(final List<DataInstance> instances, final int k) {
+    private static ArrayList<Point> chooseCentroids(final List<DataInstance> instances,
+                                                    final double[] points,
+                                                    final int k) {
 
         final ArrayList<Point> centroids = new ArrayList<>(k);
+
+        // Keeps the squared distance between each instance and its closest
+        // centroid, which is updated every time a centroid is chosen instead
+        // of being recomputed against all the centroids chosen so far.
+        final double[] minSquaredDistances = new double[instances.size()];
+        Arrays.fill(minSquaredDistances, Double.POSITIVE_INFINITY);
+
         for (int i = 0; i < k; ++i) {
-            final Point centroid = selectNextCentroid(new ArrayList<>(instances), centroids);
+            final Point centroid = selectNextCentroid(instances, minSquaredDistances, centroids.isEmpty());
             centroids.add(centroid);
+            updateMinSquaredDistances(points, minSquaredDistances, centroid);
         }
 
         return centroids;
     }
 
-    private static Point selectNextCentroid(final ArrayList<DataInstance> instances,
-                                            final List<Point> centroids) {
+    private static Point selectNextCentroid(final List<DataInstance> instances,
+                                            final double[] minSquaredDistances,
+                                            final boolean isFirst) {
 
         DataInstance selected = instances.get(0);
+        if (isFirst) {
+            return selected;
+        }
+
         double maxDistance = 0;
-        for (final DataInstance instance : instances.subList(1, instances.size())) {
-            final double distance = KMeans.distanceToTheClosestCentroid(instance, centroids);
+        for (int i = 1; i < instances.size(); ++i) {
+            final double distance = Math.sqrt(minSquaredDistances[i]);
             if (distance > maxDistance) {
-                selected = instance;
+                selected = instances.get(i);
                 maxDistance = distance;
             }
         }
@@ -87,7 +104,22 @@ public class KMeans implements ClusteringAlgorithm {
         return selected;
     }
 
+    private static void updateMinSquaredDistances(final double[] points,
+                                                  final double[] minSquaredDistances,
+                                                  final Point centroid) {
+
+        final double[] c = centroid.getValues();
+        for (int i = 0; i < minSquaredDistances.length; ++i) {
+            final double squaredDistance = DistanceKernel.squaredDistance(points, i * c.length, c, 0, c.length,
+                    minSquaredDistances[i]);
+            if (squaredDistance < minSquaredDistances[i]) {
+                minSquaredDistances[i] = squaredDistance;
+            }
+        }
+    }
+
     private static ArrayList<List<DataInstance>> groupByClosestCentroid(final List<DataInstance> instances,
+                                                                        final double[] points,
                                                                         final ArrayList<Point> centroids) {
 
         final ArrayList<List<DataInstance>> centroidsInstances = new ArrayList<>(centroids.size());
@@ -96,26 +128,46 @@ public class KMeans implements ClusteringAlgorithm {
             centroidsInstances.add(i, new ArrayList<DataInstance>());
         }
 
-        for (final DataInstance instance : instances) {
+        // Searches the closest centroid of all the instances at once.
+        final int[] closestCentroids = new int[instances.size()];
+        DistanceKernel.getBackend().calculateClosestRows(points, instances.size(), pack(centroids),
+                centroids.size(), instances.get(0).getLength(), closestCentroids);
+
+        // An instance is assigned to every centroid equal to its closest one,
+        // so the centroids are grouped by equality beforehand.
+        final Map<Integer, List<Integer>> equalCentroids = new HashMap<>();
+
+        for (int i = 0; i < instances.size(); ++i) {
 
-            final Point closestCentroid = instance.calculateClosestPoint(centroids);
+            final int closestCentroid = closestCentroids[i];
 
-            for (int j = 0; j < centroids.size(); ++j) {
-                if (closestCentroid.equals(centroids.get(j))) {
-                    centroidsInstances.get(j).add(instance);
+            List<Integer> indices = equalCentroids.get(closestCentroid);
+            if (indices == null) {
+                indices = new ArrayList<>();
+                for (int j = 0; j < centroids.size(); ++j) {
+                    if (centroids.get(closestCentroid).equals(centroids.get(j))) {
+                        indices.add(j);
+                    }
                 }
+                equalCentroids.put(closestCentroid, indices);
+            }
+
+            for (final int j : indices) {
+                centroidsInstances.get(j).add(instances.get(i));
             }
         }
 
         return centroidsInstances;
     }
 
-    private static double distanceToTheClosestCentroid(final DataInstance instance, final List<Point> centroids) {
-        if (centroids.isEmpty()) {
-            return 0.0;
+    private static double[] pack(final List<? extends Point> points) {
+
+        final int dimensions = points.get(0).getLength();
+        final double[] matrix = new double[points.size() * dimensions];
+        for (int i = 0; i < points.size(); ++i) {
+            System.arraycopy(points.get(i).getValues(), 0, matrix, i * dimensions, dimensions);
         }
-        final Point closestCentroid = instance.calculateClosestPoint(centroids);
-        return instance.distance(closestCentroid);
+        return matrix;
     }
 
 }
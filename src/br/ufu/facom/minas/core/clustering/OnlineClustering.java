@@ -0,0 +1,31 @@
+package br.ufu.facom.minas.core.clustering;
+
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+import br.ufu.facom.minas.core.datastructure.MicroCluster;
+
+import java.util.List;
+
+/**
+ * This interface represents a clustering in progress, to which data
+ * instances are fed one at a time (see {@link OnlineClusteringAlgorithm}).
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public interface OnlineClustering {
+
+    /**
+     * Feeds a data instance to the clustering.
+     *
+     * @param instance the data instance.
+     */
+    void update(final DataInstance instance);
+
+    /**
+     * Finishes the clustering and returns the resulting micro-clusters. No
+     * data instance should be fed to the clustering afterwards.
+     *
+     * @return the resulting micro-clusters.
+     */
+    List<MicroCluster> finish();
+}
@@ -0,0 +1,23 @@
+package br.ufu.facom.minas.core.clustering;
+
+/**
+ * This interface represents a clustering algorithm that, besides clustering
+ * a list of data instances, can consume the data instances as a stream,
+ * keeping only a bounded summary of them in memory. It allows the offline
+ * phase of MINAS to be executed without materializing the training set (see
+ * {@link br.ufu.facom.minas.core.MINAS#initializeModel(java.util.Iterator,
+ * br.ufu.facom.minas.core.MINASConfiguration)}).
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public interface OnlineClusteringAlgorithm extends ClusteringAlgorithm {
+
+    /**
+     * Starts a new clustering, to which the data instances are fed one at a
+     * time.
+     *
+     * @return the new clustering.
+     */
+    OnlineClustering newClustering();
+}
@@ -0,0 +1,280 @@
+package br.ufu.facom.minas.core.clustering;
+
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+import br.ufu.facom.minas.core.datastructure.MicroCluster;
+import br.ufu.facom.minas.core.datastructure.MicroClusterList;
+import br.ufu.facom.minas.core.distance.DistanceKernel;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Online summary of the data instances held in the temporary memory, kept as
+ * a bounded buffer of micro-clusters in the style of the online phase of
+ * CluStream. Each unknown data instance is absorbed on arrival by the closest
+ * micro-cluster of the buffer, if it lies within its radius, or starts a new
+ * micro-cluster otherwise, in which case the two closest micro-clusters are
+ * merged if the buffer is full. Each micro-cluster keeps the list of its
+ * member data instances, so that the delayed classifications can be issued
+ * once it is declared a pattern.
+ *
+ * <p>The novelty detection procedure only needs to evaluate the
+ * micro-clusters of the summary, instead of clustering the whole temporary
+ * memory again.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class TemporaryMemorySummary {
+
+    /**
+     * Number of standard deviations defining the radius of a micro-cluster
+     * with more than one data instance, as in {@link CluStream}.
+     */
+    private static final double RADIUS_FACTOR = 2;
+
+    private final int maxSize;
+    private final MicroClusterList buffer;
+    private final Map<MicroCluster, List<DataInstance>> members;
+    private final Map<DataInstance, MicroCluster> microClusterByInstance;
+
+    /**
+     * @param maxSize the maximum number of micro-clusters in the summary.
+     * @throws IllegalArgumentException if {@code maxSize} is less than two.
+     */
+    public TemporaryMemorySummary(final int maxSize) {
+
+        if (maxSize < 2) {
+            throw new IllegalArgumentException("The summary must hold at least two micro-clusters");
+        }
+
+        this.maxSize = maxSize;
+        this.buffer = new MicroClusterList();
+        this.members = new IdentityHashMap<>();
+        this.microClusterByInstance = new IdentityHashMap<>();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of data instances summarized.
+     *
+     * @return the number of data instances summarized.
+     */
+    public int getInstanceCount() {
+        return this.microClusterByInstance.size();
+    }
+
+    /**
+     * Returns a copy of the micro-clusters of the summary. The micro-clusters
+     * must not be changed while they belong to the summary.
+     *
+     * @return the micro-clusters of the summary.
+     */
+    public List<MicroCluster> getMicroClusters() {
+        return new ArrayList<>(this.buffer);
+    }
+
+    /**
+     * Absorbs a data instance into the summary.
+     *
+     * @param instance the data instance.
+     */
+    public void add(final DataInstance instance) {
+
+        if (this.buffer.isEmpty()) {
+            this.addMicroCluster(instance);
+            return;
+        }
+
+        final MicroCluster closestMicroCluster = this.buffer.calculateClosestMicroCluster(instance);
+        final double squaredDistance = closestMicroCluster.squaredDistance(instance);
+
+        final double radius;
+        if (closestMicroCluster.getN() > 1) {
+            radius = closestMicroCluster.calculateStandardDeviation() * RADIUS_FACTOR;
+        } else {
+            final MicroCluster closestOtherMicroCluster = MicroCluster
+                    .calculateClosestOtherMicroCluster(closestMicroCluster, this.buffer);
+            radius = closestOtherMicroCluster == null ? 0 : closestOtherMicroCluster.distance(closestMicroCluster);
+        }
+
+        if (DistanceKernel.isStrictlyWithin(squaredDistance, radius)) {
+            closestMicroCluster.incrementAndUpdateTimestamp(instance);
+            this.members.get(closestMicroCluster).add(instance);
+            this.microClusterByInstance.put(instance, closestMicroCluster);
+        } else {
+            if (this.buffer.size() >= this.maxSize) {
+                this.mergeClosestPair();
+            }
+            this.addMicroCluster(instance);
+        }
+    }
+
+    /**
+     * Removes a data instance from the summary, such as when it is removed
+     * from the temporary memory for being too old. Data instances that are
+     * not in the summary are ignored.
+     *
+     * @param instance the data instance.
+     */
+    public void remove(final DataInstance instance) {
+
+        final MicroCluster microCluster = this.microClusterByInstance.remove(instance);
+        if (microCluster == null) {
+            return;
+        }
+
+        final List<DataInstance> instances = this.members.get(microCluster);
+        for (int i = 0; i < instances.size(); ++i) {
+            if (instances.get(i) == instance) {
+                instances.remove(i);
+                break;
+            }
+        }
+
+        if (instances.isEmpty()) {
+            this.buffer.remove(microCluster);
+            this.members.remove(microCluster);
+        } else {
+            microCluster.decrement(instance);
+        }
+    }
+
+    /**
+     * Removes a micro-cluster from the summary, so that it can be declared a
+     * pattern, and returns its member data instances in arrival order.
+     *
+     * @param microCluster the micro-cluster.
+     * @return the member data instances of the micro-cluster.
+     * @throws IllegalArgumentException if the micro-cluster does not belong
+     * to the summary.
+     */
+    public List<DataInstance> release(final MicroCluster microCluster) {
+
+        if (!this.buffer.remove(microCluster)) {
+            throw new IllegalArgumentException("The micro-cluster does not belong to the summary");
+        }
+
+        final List<DataInstance> instances = this.members.remove(microCluster);
+        for (final DataInstance instance : instances) {
+            this.microClusterByInstance.remove(instance);
+        }
+
+        Collections.sort(instances, new Comparator<DataInstance>() {
+            @Override
+            public int compare(final DataInstance o1, final DataInstance o2) {
+                return Long.compare(o1.getTimestamp(), o2.getTimestamp());
+            }
+        });
+
+        return instances;
+    }
+
+    /**
+     * Writes the micro-clusters of the summary, in order, together with their
+     * member data instances, so that the summary can be read back by
+     * {@link #readFrom(DataInput, List)}. The members are written as their
+     * positions in the list of data instances given, which is written
+     * separately.
+     *
+     * @param out the output.
+     * @param instances the data instances of the temporary memory, which
+     *                  must contain every data instance summarized.
+     * @throws IOException if the summary could not be written.
+     * @throws IllegalStateException if a data instance summarized is not in
+     * the list.
+     */
+    public void writeTo(final DataOutput out, final List<DataInstance> instances) throws IOException {
+
+        final Map<DataInstance, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < instances.size(); ++i) {
+            positions.put(instances.get(i), i);
+        }
+
+        out.writeInt(this.maxSize);
+        out.writeInt(this.buffer.size());
+        for (final MicroCluster microCluster : this.buffer) {
+            final List<DataInstance> instancesOfMicroCluster = this.members.get(microCluster);
+            out.writeInt(instancesOfMicroCluster.size());
+            for (final DataInstance instance : instancesOfMicroCluster) {
+                final Integer position = positions.get(instance);
+                if (position == null) {
+                    throw new IllegalStateException("A data instance summarized is not in the temporary memory");
+                }
+                out.writeInt(position);
+            }
+            microCluster.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads a summary written by {@link #writeTo(DataOutput, List)}.
+     *
+     * @param in the input.
+     * @param instances the data instances of the temporary memory, in the
+     *                  same order as when the summary was written.
+     * @return the summary.
+     * @throws IOException if the summary could not be read.
+     */
+    public static TemporaryMemorySummary readFrom(final DataInput in, final List<DataInstance> instances)
+            throws IOException {
+
+        final TemporaryMemorySummary summary = new TemporaryMemorySummary(in.readInt());
+        for (int i = in.readInt(); i > 0; --i) {
+
+            final List<DataInstance> instancesOfMicroCluster = new ArrayList<>();
+            for (int j = in.readInt(); j > 0; --j) {
+                final int position = in.readInt();
+                if (position < 0 || position >= instances.size()) {
+                    throw new IOException("Invalid data instance position " + position);
+                }
+                instancesOfMicroCluster.add(instances.get(position));
+            }
+
+            final MicroCluster microCluster = MicroCluster.readFrom(in, instancesOfMicroCluster);
+            summary.buffer.add(microCluster);
+            summary.members.put(microCluster, instancesOfMicroCluster);
+            for (final DataInstance instance : instancesOfMicroCluster) {
+                summary.microClusterByInstance.put(instance, microCluster);
+            }
+        }
+
+        return summary;
+    }
+
+    private void addMicroCluster(final DataInstance instance) {
+
+        final MicroCluster microCluster = new MicroCluster(instance);
+        final List<DataInstance> instances = new ArrayList<>();
+        instances.add(instance);
+
+        this.buffer.add(microCluster);
+        this.members.put(microCluster, instances);
+        this.microClusterByInstance.put(instance, microCluster);
+    }
+
+    private void mergeClosestPair() {
+
+        final MicroCluster[] closestPair = this.buffer.calculateClosestPair();
+        if (closestPair == null) {
+            return;
+        }
+
+        this.buffer.remove(closestPair[0]);
+        this.buffer.remove(closestPair[1]);
+        final MicroCluster merged = MicroCluster.merge(closestPair[0], closestPair[1]);
+        this.buffer.add(merged);
+
+        final List<DataInstance> instances = this.members.remove(closestPair[0]);
+        instances.addAll(this.members.remove(closestPair[1]));
+        for (final DataInstance instance : instances) {
+            this.microClusterByInstance.put(instance, merged);
+        }
+        this.members.put(merged, instances);
+    }
+}
@@ -1,5 +1,8 @@
 package br.ufu.facom.minas.core.datastructure;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -10,15 +13,47 @@ import java.util.Objects;
  */
 public class DataInstance extends Point {
 
-    private final int timestamp;
+    // Storage forms written by writeTo.
+    private static final byte DOUBLE_PRECISION = 0;
+    private static final byte SINGLE_PRECISION = 1;
+    private static final byte SPARSE = 2;
+
+    private final long timestamp;
     private final String label;
 
-    public DataInstance(final double[] x, final String label, final int timestamp) {
+    public DataInstance(final double[] x, final String label, final long timestamp) {
+        super(x);
+        this.timestamp = timestamp;
+        this.label = label;
+    }
+
+    public DataInstance(final float[] x, final String label, final long timestamp) {
         super(x);
         this.timestamp = timestamp;
         this.label = label;
     }
 
+    /**
+     * Creates a sparse data instance (see
+     * {@link Point#Point(int, int[], double[])}).
+     *
+     * @param length the number of features.
+     * @param indices the indices of the non-zero features, in increasing
+     *                order.
+     * @param values the non-zero features.
+     * @param label the label.
+     * @param timestamp the timestamp.
+     */
+    public DataInstance(final int length,
+                        final int[] indices,
+                        final double[] values,
+                        final String label,
+                        final long timestamp) {
+        super(length, indices, values);
+        this.timestamp = timestamp;
+        this.label = label;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -33,7 +68,7 @@ public class DataInstance extends Point {
         return Objects.hash(super.hashCode(), timestamp);
     }
 
-    public int getTimestamp() {
+    public long getTimestamp() {
         return this.timestamp;
     }
 
@@ -41,4 +76,92 @@ public class DataInstance extends Point {
         return this.label;
     }
 
+    /**
+     * Returns a copy of this data instance with the features stored in single
+     * precision, or this data instance itself if it is already stored in
+     * single precision or in sparse form.
+     *
+     * @return the data instance stored in single precision.
+     */
+    @Override
+    public DataInstance toSinglePrecision() {
+        return this.isSinglePrecision() || this.isSparse()
+                ? this
+                : new DataInstance(toFloatArray(this.getValues()), this.label, this.timestamp);
+    }
+
+    /**
+     * Writes this data instance, keeping its storage form, so that it can be
+     * read back by {@link #readFrom(DataInput)}.
+     *
+     * @param out the output.
+     * @throws IOException if the data instance could not be written.
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+
+        out.writeLong(this.timestamp);
+        out.writeUTF(this.label);
+
+        if (this.isSparse()) {
+            final int[] indices = this.getIndices();
+            final double[] values = this.getNonZeroValues();
+            out.writeByte(SPARSE);
+            out.writeInt(this.getLength());
+            out.writeInt(indices.length);
+            for (int k = 0; k < indices.length; ++k) {
+                out.writeInt(indices[k]);
+                out.writeDouble(values[k]);
+            }
+        } else if (this.isSinglePrecision()) {
+            out.writeByte(SINGLE_PRECISION);
+            out.writeInt(this.getLength());
+            for (int i = 0; i < this.getLength(); ++i) {
+                out.writeFloat((float) this.get(i));
+            }
+        } else {
+            out.writeByte(DOUBLE_PRECISION);
+            out.writeInt(this.getLength());
+            for (int i = 0; i < this.getLength(); ++i) {
+                out.writeDouble(this.get(i));
+            }
+        }
+    }
+
+    /**
+     * Reads a data instance written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in the input.
+     * @return the data instance.
+     * @throws IOException if the data instance could not be read.
+     */
+    public static DataInstance readFrom(final DataInput in) throws IOException {
+
+        final long timestamp = in.readLong();
+        final String label = in.readUTF();
+        final byte form = in.readByte();
+        final int length = in.readInt();
+
+        if (form == SPARSE) {
+            final int[] indices = new int[in.readInt()];
+            final double[] values = new double[indices.length];
+            for (int k = 0; k < indices.length; ++k) {
+                indices[k] = in.readInt();
+                values[k] = in.readDouble();
+            }
+            return new DataInstance(length, indices, values, label, timestamp);
+        } else if (form == SINGLE_PRECISION) {
+            final float[] x = new float[length];
+            for (int i = 0; i < length; ++i) {
+                x[i] = in.readFloat();
+            }
+            return new DataInstance(x, label, timestamp);
+        } else if (form == DOUBLE_PRECISION) {
+            final double[] x = new double[length];
+            for (int i = 0; i < length; ++i) {
+                x[i] = in.readDouble();
+            }
+            return new DataInstance(x, label, timestamp);
+        }
+        throw new IOException("Unknown data instance form " + form);
+    }
 }
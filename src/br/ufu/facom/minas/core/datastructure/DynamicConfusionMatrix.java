@@ -1,5 +1,8 @@
 package br.ufu.facom.minas.core.datastructure;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -57,6 +60,81 @@ public class DynamicConfusionMatrix {
         }
     }
 
+    /**
+     * Writes the labels and the counts of this confusion matrix, so that it
+     * can be read back by {@link #readFrom(DataInput)}.
+     *
+     * @param out the output.
+     * @throws IOException if the confusion matrix could not be written.
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+
+        writeLabels(out, this.rowLabels);
+        writeLabels(out, this.knownColumnLabels);
+        writeLabels(out, this.noveltyColumnLabels);
+
+        for (int i = 0; i < this.rowLabels.size(); ++i) {
+            for (final int count : this.knownColumnsMatrix.get(i)) {
+                out.writeInt(count);
+            }
+            for (final int count : this.noveltyColumnsMatrix.get(i)) {
+                out.writeInt(count);
+            }
+            out.writeInt(this.unknownColumn.get(i));
+        }
+    }
+
+    /**
+     * Reads a confusion matrix written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in the input.
+     * @return the confusion matrix.
+     * @throws IOException if the confusion matrix could not be read.
+     */
+    public static DynamicConfusionMatrix readFrom(final DataInput in) throws IOException {
+
+        final DynamicConfusionMatrix matrix = new DynamicConfusionMatrix(Collections.<String>emptySet());
+        for (final String label : readLabels(in)) {
+            matrix.addRow(label);
+        }
+        for (final String label : readLabels(in)) {
+            matrix.addKnownColumn(label);
+        }
+        for (final String label : readLabels(in)) {
+            matrix.addNoveltyColumn(label);
+        }
+
+        for (int i = 0; i < matrix.rowLabels.size(); ++i) {
+            final List<Integer> knownRow = matrix.knownColumnsMatrix.get(i);
+            for (int j = 0; j < knownRow.size(); ++j) {
+                knownRow.set(j, in.readInt());
+            }
+            final List<Integer> noveltyRow = matrix.noveltyColumnsMatrix.get(i);
+            for (int j = 0; j < noveltyRow.size(); ++j) {
+                noveltyRow.set(j, in.readInt());
+            }
+            matrix.unknownColumn.set(i, in.readInt());
+        }
+
+        return matrix;
+    }
+
+    private static void writeLabels(final DataOutput out, final List<String> labels) throws IOException {
+        out.writeInt(labels.size());
+        for (final String label : labels) {
+            out.writeUTF(label);
+        }
+    }
+
+    private static List<String> readLabels(final DataInput in) throws IOException {
+        final int size = in.readInt();
+        final List<String> labels = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            labels.add(in.readUTF());
+        }
+        return labels;
+    }
+
     private void addLabel(final String label) {
 
         if (this.knownColumnLabels.contains(label)) {
@@ -245,6 +323,20 @@ public class DynamicConfusionMatrix {
         return stringBuilder.toString();
     }
 
+    /**
+     * Estimates the number of bytes of heap retained by this confusion
+     * matrix, computed in constant time from the number of rows and columns.
+     * Every cell is counted as a boxed {@code Integer} referenced by a list,
+     * and every label as an entry of the indexes holding a short string.
+     *
+     * @return the estimated number of bytes.
+     */
+    public long estimateRetainedBytes() {
+        final long rows = this.rowLabels.size();
+        final long labels = rows + this.knownColumnsCount + this.noveltyColumnsCount;
+        return rows * (this.knownColumnsCount + this.noveltyColumnsCount + 1) * 20 + labels * 96;
+    }
+
     private void addRow(final String label) {
         this.rowIndexByLabel.put(label, this.rowLabels.size());
         this.rowLabels.add(label);
@@ -0,0 +1,412 @@
+package br.ufu.facom.minas.core.datastructure;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Hierarchical navigable small world graph (Malkov and Yashunin, 2018) over
+ * the centroids of the micro-clusters of a {@link MicroClusterList}, used to
+ * answer approximate nearest micro-cluster searches in sublinear time. The
+ * graph is built incrementally: each micro-cluster is inserted when it is
+ * added to the list and deleted when it is removed, in which case the nodes
+ * linked to it are linked to its own neighbors to keep the graph navigable.
+ *
+ * <p>The distances are always computed against the current rows of the
+ * packed centroids of the list, so the links of a node whose centroid moved
+ * still lead to it. Only once the centroid has moved by more than a fraction
+ * of the distance to its closest neighbor (see {@link #RELINK_TOLERANCE}) is
+ * the node deleted and inserted again, so that its links follow it. A node
+ * lying on its closest neighbor uses the radius of its micro-cluster instead,
+ * and the first node of the graph, which had nothing to be linked to, is
+ * never relinked, since the nodes inserted after it link to it anyway.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+final class HnswIndex {
+
+    /**
+     * Maximum number of links of a node in the upper layers. The nodes of
+     * the bottom layer keep up to twice as many links.
+     */
+    static final int MAX_CONNECTIONS = 16;
+
+    /**
+     * Number of candidates kept while searching for the neighbors of a new
+     * node.
+     */
+    static final int CONSTRUCTION_EF = 100;
+
+    /**
+     * Fraction of the distance from a node to its closest neighbor, when it
+     * was linked, that its centroid may move before the node is relinked.
+     */
+    static final double RELINK_TOLERANCE = 0.25;
+
+    private static final Comparator<Candidate> CLOSEST_FIRST = new Comparator<Candidate>() {
+        @Override
+        public int compare(final Candidate c1, final Candidate c2) {
+            return Double.compare(c1.squaredDistance, c2.squaredDistance);
+        }
+    };
+
+    private static final Comparator<Candidate> FARTHEST_FIRST = new Comparator<Candidate>() {
+        @Override
+        public int compare(final Candidate c1, final Candidate c2) {
+            return Double.compare(c2.squaredDistance, c1.squaredDistance);
+        }
+    };
+
+    private final MicroClusterList list;
+    private final Map<MicroCluster, Node> nodes;
+    private final Random random;
+    private final double levelMultiplier;
+    private int efSearch;
+    private Node entryPoint;
+    private int visitStamp;
+
+    HnswIndex(final MicroClusterList list, final int efSearch) {
+        this.list = list;
+        this.nodes = new IdentityHashMap<>();
+        this.random = new Random(0);
+        this.levelMultiplier = 1 / Math.log(MAX_CONNECTIONS);
+        this.efSearch = efSearch;
+    }
+
+    int getEfSearch() {
+        return efSearch;
+    }
+
+    void setEfSearch(final int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    void insert(final MicroCluster microCluster) {
+
+        final int level = (int) (-Math.log(1 - this.random.nextDouble()) * this.levelMultiplier);
+        final Node node = new Node(microCluster, level);
+        this.nodes.put(microCluster, node);
+
+        final double[] x = microCluster.calculateCentroid().getValues();
+        node.linkedCentroid = x.clone();
+
+        if (this.entryPoint == null) {
+            node.relinkSquaredDistance = Double.POSITIVE_INFINITY;
+            this.entryPoint = node;
+            return;
+        }
+        Candidate entry = new Candidate(this.entryPoint, this.squaredDistance(x, this.entryPoint));
+
+        for (int layer = this.entryPoint.level; layer > level; --layer) {
+            entry = this.searchGreedy(x, entry, layer);
+        }
+
+        for (int layer = Math.min(level, this.entryPoint.level); layer >= 0; --layer) {
+
+            final List<Candidate> candidates = this.searchLayer(x, entry, CONSTRUCTION_EF, layer);
+            final int maxConnections = maxConnections(layer);
+            for (final Node neighbor : this.selectNeighbors(candidates, MAX_CONNECTIONS)) {
+                link(node, neighbor, layer);
+                link(neighbor, node, layer);
+                if (neighbor.links.get(layer).size() > maxConnections) {
+                    this.prune(neighbor, layer);
+                }
+            }
+            entry = candidates.get(0);
+        }
+
+        final double standardDeviation = microCluster.calculateStandardDeviation();
+        node.relinkSquaredDistance = RELINK_TOLERANCE * RELINK_TOLERANCE
+                * (entry.squaredDistance > 0 ? entry.squaredDistance : standardDeviation * standardDeviation);
+
+        if (level > this.entryPoint.level) {
+            this.entryPoint = node;
+        }
+    }
+
+    /**
+     * Relinks the node of a micro-cluster whose centroid has moved by more
+     * than the tolerance since it was linked.
+     *
+     * @param microCluster the micro-cluster whose centroid was updated.
+     */
+    void update(final MicroCluster microCluster) {
+
+        final Node node = this.nodes.get(microCluster);
+        final double[] x = microCluster.calculateCentroid().getValues();
+
+        double drift = 0;
+        for (int i = 0; i < x.length && drift <= node.relinkSquaredDistance; ++i) {
+            final double difference = x[i] - node.linkedCentroid[i];
+            drift += difference * difference;
+        }
+
+        if (drift > node.relinkSquaredDistance) {
+            this.delete(microCluster);
+            this.insert(microCluster);
+        }
+    }
+
+    void delete(final MicroCluster microCluster) {
+
+        final Node node = this.nodes.remove(microCluster);
+        if (node == null) {
+            return;
+        }
+
+        // Unlinks the node and links the nodes that pointed to it to the
+        // nodes it pointed to.
+        for (int layer = 0; layer <= node.level; ++layer) {
+            final List<Node> outgoing = new ArrayList<>(node.links.get(layer));
+            final List<Node> incoming = new ArrayList<>(node.incomingLinks.get(layer));
+            for (final Node neighbor : outgoing) {
+                unlink(node, neighbor, layer);
+            }
+            for (final Node neighbor : incoming) {
+                unlink(neighbor, node, layer);
+            }
+            for (final Node neighbor : incoming) {
+                for (final Node other : outgoing) {
+                    if (other != neighbor && !neighbor.links.get(layer).contains(other)) {
+                        link(neighbor, other, layer);
+                    }
+                }
+                if (neighbor.links.get(layer).size() > maxConnections(layer)) {
+                    this.prune(neighbor, layer);
+                }
+            }
+        }
+
+        // The new entry point is the highest node, the one with the smallest
+        // slot among the nodes at the same level, so that it doesn't depend
+        // on the iteration order of the identity map.
+        if (node == this.entryPoint) {
+            this.entryPoint = null;
+            for (final Node other : this.nodes.values()) {
+                if (this.entryPoint == null || other.level > this.entryPoint.level
+                        || (other.level == this.entryPoint.level
+                        && other.microCluster.getSlot() < this.entryPoint.microCluster.getSlot())) {
+                    this.entryPoint = other;
+                }
+            }
+        }
+    }
+
+    void clear() {
+        this.nodes.clear();
+        this.entryPoint = null;
+    }
+
+    /**
+     * Searches for the micro-cluster whose centroid is approximately the
+     * closest to the point.
+     *
+     * @param x the values of the point.
+     * @return the micro-cluster found, or {@code null} if the index is empty.
+     */
+    MicroCluster search(final double[] x) {
+
+        if (this.entryPoint == null) {
+            return null;
+        }
+
+        Candidate entry = new Candidate(this.entryPoint, this.squaredDistance(x, this.entryPoint));
+        for (int layer = this.entryPoint.level; layer > 0; --layer) {
+            entry = this.searchGreedy(x, entry, layer);
+        }
+
+        // Among candidates at the same distance, the one coming first in the
+        // list is returned, as in the exact search.
+        Candidate closest = null;
+        for (final Candidate candidate : this.searchLayer(x, entry, Math.max(this.efSearch, 1), 0)) {
+            if (closest == null || candidate.squaredDistance < closest.squaredDistance
+                    || (candidate.squaredDistance == closest.squaredDistance
+                    && candidate.node.microCluster.getSlot() < closest.node.microCluster.getSlot())) {
+                closest = candidate;
+            }
+        }
+        return closest.node.microCluster;
+    }
+
+    private Candidate searchGreedy(final double[] x, Candidate closest, final int layer) {
+
+        boolean isImproved = true;
+        while (isImproved) {
+            isImproved = false;
+            for (final Node neighbor : closest.node.links.get(layer)) {
+                final double squaredDistance = this.squaredDistance(x, neighbor);
+                if (squaredDistance < closest.squaredDistance) {
+                    closest = new Candidate(neighbor, squaredDistance);
+                    isImproved = true;
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Best-first search over a layer, keeping the {@code ef} closest nodes
+     * found.
+     *
+     * @return the nodes found, sorted by increasing distance.
+     */
+    private List<Candidate> searchLayer(final double[] x, final Candidate entry, final int ef, final int layer) {
+
+        ++this.visitStamp;
+        entry.node.visitStamp = this.visitStamp;
+
+        final PriorityQueue<Candidate> candidates = new PriorityQueue<>(ef, CLOSEST_FIRST);
+        final PriorityQueue<Candidate> results = new PriorityQueue<>(ef, FARTHEST_FIRST);
+        candidates.add(entry);
+        results.add(entry);
+
+        while (!candidates.isEmpty()) {
+
+            final Candidate candidate = candidates.poll();
+            if (candidate.squaredDistance > results.peek().squaredDistance) {
+                break;
+            }
+
+            for (final Node neighbor : candidate.node.links.get(layer)) {
+                if (neighbor.visitStamp == this.visitStamp) {
+                    continue;
+                }
+                neighbor.visitStamp = this.visitStamp;
+
+                final double squaredDistance = this.squaredDistance(x, neighbor);
+                if (results.size() < ef || squaredDistance < results.peek().squaredDistance) {
+                    final Candidate next = new Candidate(neighbor, squaredDistance);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        final List<Candidate> sorted = new ArrayList<>(results);
+        Collections.sort(sorted, CLOSEST_FIRST);
+        return sorted;
+    }
+
+    /**
+     * Keeps only the links of a node, exceeding the maximum number of links
+     * of the layer, chosen by {@link #selectNeighbors(List, int)}.
+     */
+    private void prune(final Node node, final int layer) {
+
+        final double[] x = node.microCluster.calculateCentroid().getValues();
+        final List<Candidate> candidates = new ArrayList<>();
+        for (final Node neighbor : node.links.get(layer)) {
+            candidates.add(new Candidate(neighbor, this.squaredDistance(x, neighbor)));
+        }
+        Collections.sort(candidates, CLOSEST_FIRST);
+
+        final List<Node> selected = this.selectNeighbors(candidates, maxConnections(layer));
+        for (final Candidate candidate : candidates) {
+            if (!selected.contains(candidate.node)) {
+                unlink(node, candidate.node, layer);
+            }
+        }
+    }
+
+    /**
+     * Selects up to {@code m} neighbors among candidates sorted by increasing
+     * distance, following the heuristic of the HNSW paper: a candidate is
+     * preferred only if it is closer to the base node than to every neighbor
+     * already selected, which keeps links towards different directions and
+     * the graph connected. The remaining slots are filled with the closest
+     * candidates left out.
+     */
+    private List<Node> selectNeighbors(final List<Candidate> candidates, final int m) {
+
+        final List<Node> selected = new ArrayList<>(m);
+        final List<Node> discarded = new ArrayList<>();
+        for (final Candidate candidate : candidates) {
+            if (selected.size() == m) {
+                break;
+            }
+            final double[] x = candidate.node.microCluster.calculateCentroid().getValues();
+            boolean isDiverse = true;
+            for (final Node neighbor : selected) {
+                if (this.squaredDistance(x, neighbor) < candidate.squaredDistance) {
+                    isDiverse = false;
+                    break;
+                }
+            }
+            if (isDiverse) {
+                selected.add(candidate.node);
+            } else {
+                discarded.add(candidate.node);
+            }
+        }
+
+        for (int i = 0; i < discarded.size() && selected.size() < m; ++i) {
+            selected.add(discarded.get(i));
+        }
+        return selected;
+    }
+
+    private static void link(final Node from, final Node to, final int layer) {
+        from.links.get(layer).add(to);
+        to.incomingLinks.get(layer).add(from);
+    }
+
+    private static void unlink(final Node from, final Node to, final int layer) {
+        from.links.get(layer).remove(to);
+        to.incomingLinks.get(layer).remove(from);
+    }
+
+    private double squaredDistance(final double[] x, final Node node) {
+        return this.list.squaredDistanceToRow(x, node.microCluster.getSlot());
+    }
+
+    private static int maxConnections(final int layer) {
+        return layer == 0 ? 2 * MAX_CONNECTIONS : MAX_CONNECTIONS;
+    }
+
+    private static final class Node {
+
+        private final MicroCluster microCluster;
+        private final int level;
+        // Links from and to this node, by layer. The links are not always
+        // symmetric, since the links of a node that exceeds the maximum are
+        // pruned.
+        private final List<List<Node>> links;
+        private final List<List<Node>> incomingLinks;
+        private int visitStamp;
+        // The centroid when the node was linked, and the squared distance it
+        // may move from it before the node is relinked.
+        private double[] linkedCentroid;
+        private double relinkSquaredDistance;
+
+        private Node(final MicroCluster microCluster, final int level) {
+            this.microCluster = microCluster;
+            this.level = level;
+            this.links = new ArrayList<>(level + 1);
+            this.incomingLinks = new ArrayList<>(level + 1);
+            for (int i = 0; i <= level; ++i) {
+                this.links.add(new ArrayList<Node>());
+                this.incomingLinks.add(new ArrayList<Node>());
+            }
+        }
+    }
+
+    private static final class Candidate {
+
+        private final Node node;
+        private final double squaredDistance;
+
+        private Candidate(final Node node, final double squaredDistance) {
+            this.node = node;
+            this.squaredDistance = squaredDistance;
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package br.ufu.facom.minas.core.datastructure;
 
+import br.ufu.facom.minas.core.distance.DistanceKernel;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import java.util.*;
 
 /**
@@ -10,22 +16,29 @@ import java.util.*;
  */
 public class MicroCluster {
 
-    private int timestamp;
+    private long timestamp;
     private String label;
     private Category category;
     private int n;
     private final double[] ls;
     private final double[] ss;
-    private final Set<Integer> timestamps;
-
-    public MicroCluster(final int timestamp,
+    private final TimestampSet timestamps;
+    private MicroClusterList owner;
+    private int slot;
+    private Point centroid;
+    private double standardDeviation;
+    private boolean isStandardDeviationCached;
+    private int reactivationCount;
+    private int heapIndex;
+
+    public MicroCluster(final long timestamp,
                         final String label,
                         final Category category,
                         final int n,
                         final double[] ls,
                         final double[] ss) {
 
-        this.timestamps = new HashSet<>();
+        this.timestamps = new TimestampSet();
         this.timestamp = timestamp;
         this.label = label;
         this.category = category;
@@ -38,7 +51,7 @@ public class MicroCluster {
 
         final int dimensions = instance.getLength();
 
-        this.timestamps = new HashSet<>();
+        this.timestamps = new TimestampSet();
         this.timestamp = 0;
         this.n = 0;
         this.ls = new double[dimensions];
@@ -49,7 +62,7 @@ public class MicroCluster {
 
     public MicroCluster(final List<DataInstance> instances) {
 
-        this.timestamps = new HashSet<>();
+        this.timestamps = new TimestampSet();
         this.timestamp = 0;
         final int dimensions = instances.get(0).getLength();
 
@@ -64,41 +77,113 @@ public class MicroCluster {
 
     public void updateTimestamp(final DataInstance instance) {
         this.timestamp = instance.getTimestamp();
+
+        if (this.owner != null) {
+            this.owner.onTimestampUpdate(this);
+        }
     }
 
     public void incrementAndUpdateTimestamp(final DataInstance instance) {
 
-
-        for (int i = 0; i < instance.getLength(); ++i) {
-            this.ls[i] += instance.get(i);
-            this.ss[i] += instance.get(i) * instance.get(i);
+        if (instance.isSparse()) {
+            final int[] indices = instance.getIndices();
+            final double[] values = instance.getNonZeroValues();
+            for (int k = 0; k < indices.length; ++k) {
+                this.ls[indices[k]] += values[k];
+                this.ss[indices[k]] += values[k] * values[k];
+            }
+        } else {
+            for (int i = 0; i < instance.getLength(); ++i) {
+                this.ls[i] += instance.get(i);
+                this.ss[i] += instance.get(i) * instance.get(i);
+            }
         }
 
         ++this.n;
+        this.centroid = null;
+        this.isStandardDeviationCached = false;
 
+        final long timestampBytes = this.timestamps.estimateRetainedBytes();
         this.timestamps.add(instance.getTimestamp());
+        if (this.owner != null) {
+            this.owner.onTimestampsResize(this.timestamps.estimateRetainedBytes() - timestampBytes);
+        }
         this.updateTimestamp(instance);
+
+        if (this.owner != null) {
+            this.owner.onUpdate(this);
+        }
+    }
+
+    /**
+     * Removes the data instance from the summary of this micro-cluster. The
+     * data instance must have been previously added to it through
+     * {@link #incrementAndUpdateTimestamp(DataInstance)}. The timestamp of the
+     * micro-cluster is not changed.
+     *
+     * @param instance the data instance to be removed.
+     */
+    public void decrement(final DataInstance instance) {
+
+        if (instance.isSparse()) {
+            final int[] indices = instance.getIndices();
+            final double[] values = instance.getNonZeroValues();
+            for (int k = 0; k < indices.length; ++k) {
+                this.ls[indices[k]] -= values[k];
+                this.ss[indices[k]] -= values[k] * values[k];
+            }
+        } else {
+            for (int i = 0; i < instance.getLength(); ++i) {
+                this.ls[i] -= instance.get(i);
+                this.ss[i] -= instance.get(i) * instance.get(i);
+            }
+        }
+
+        --this.n;
+        this.centroid = null;
+        this.isStandardDeviationCached = false;
+
+        final long timestampBytes = this.timestamps.estimateRetainedBytes();
+        this.timestamps.remove(instance.getTimestamp());
+        if (this.owner != null) {
+            this.owner.onTimestampsResize(this.timestamps.estimateRetainedBytes() - timestampBytes);
+            this.owner.onUpdate(this);
+        }
     }
 
     public Point calculateCentroid() {
 
-        final double[] x = this.ls.clone();
-        for (int i = 0; i < x.length; ++i) {
-            x[i] /= this.n;
+        // The centroid is cached until the summary changes.
+        if (this.centroid == null) {
+            final double[] x = this.ls.clone();
+            for (int i = 0; i < x.length; ++i) {
+                x[i] /= this.n;
+            }
+            this.centroid = new Point(x);
         }
 
-        return new Point(x);
+        return this.centroid;
     }
 
     public double calculateStandardDeviation() {
 
-        double sum = 0;
+        // The standard deviation is cached until the summary changes.
+        if (!this.isStandardDeviationCached) {
+
+            double sum = 0;
+
+            // The variance of each dimension is clamped at zero, since the
+            // rounding errors of the sums, which build up when data
+            // instances are removed, may make it slightly negative.
+            for (int i = 0; i < this.ss.length; ++i) {
+                sum += Math.max((this.ss[i] / this.n) - Math.pow(this.ls[i] / this.n, 2), 0);
+            }
 
-        for (int i = 0; i < this.ss.length; ++i) {
-            sum += (this.ss[i] / this.n) - Math.pow(this.ls[i] / this.n, 2);
+            this.standardDeviation = Math.sqrt(sum);
+            this.isStandardDeviationCached = true;
         }
 
-        return Math.sqrt(sum);
+        return this.standardDeviation;
 
     }
 
@@ -110,6 +195,14 @@ public class MicroCluster {
         return this.calculateCentroid().distance(point);
     }
 
+    public double squaredDistance(final MicroCluster microCluster) {
+        return this.calculateCentroid().squaredDistance(microCluster.calculateCentroid());
+    }
+
+    public double squaredDistance(final Point point) {
+        return this.calculateCentroid().squaredDistance(point);
+    }
+
     public MicroCluster calculateClosestMicroCluster(final List<MicroCluster> microClusters) {
         final Point centroid = this.calculateCentroid();
         return calculateClosestMicroCluster(centroid, microClusters);
@@ -118,25 +211,153 @@ public class MicroCluster {
     public static MicroCluster calculateClosestMicroCluster(final Point point,
                                                             final List<MicroCluster> microClusters) {
 
+        if (microClusters instanceof MicroClusterList) {
+            return ((MicroClusterList) microClusters).calculateClosestMicroCluster(point);
+        }
+
+        return calculateClosestMicroCluster(point, microClusters, null, null);
+    }
+
+    /**
+     * Searches for the micro-cluster whose centroid is the closest to the
+     * point. The squared distances are used to abandon the candidates as soon
+     * as they are known to be farther than the closest one found so far, but
+     * the closest micro-cluster is still decided by the distance itself, so
+     * that ties are resolved in favor of the first micro-cluster of the
+     * list.
+     *
+     * @param point the point.
+     * @param microClusters the micro-clusters to be searched.
+     * @param excluded a micro-cluster to be skipped, or {@code null}.
+     * @param order the order in which the dimensions are visited, or
+     *              {@code null} for the natural order.
+     * @return the closest micro-cluster, or {@code null} if there is none.
+     */
+    static MicroCluster calculateClosestMicroCluster(final Point point,
+                                                     final Iterable<MicroCluster> microClusters,
+                                                     final MicroCluster excluded,
+                                                     final int[] order) {
+
+        final double[] x = point.getValues();
+
         MicroCluster closest = null;
         double minDistance = Double.MAX_VALUE;
+        double minSquaredDistance = Double.POSITIVE_INFINITY;
         for (final MicroCluster microCluster : microClusters) {
-            final double distance = microCluster.distance(point);
-            if (distance < minDistance) {
-                minDistance = distance;
+
+            if (microCluster == excluded) {
+                continue;
+            }
+
+            final double[] centroid = microCluster.calculateCentroid().getValues();
+            final double squaredDistance = order == null
+                    ? DistanceKernel.squaredDistance(centroid, x, minSquaredDistance)
+                    : DistanceKernel.squaredDistance(centroid, x, order, minSquaredDistance);
+
+            if (squaredDistance < minSquaredDistance && Math.sqrt(squaredDistance) < minDistance) {
+                minDistance = Math.sqrt(squaredDistance);
+                minSquaredDistance = squaredDistance;
                 closest = microCluster;
             }
         }
         return closest;
     }
 
+    /**
+     * Searches for the micro-cluster, other than {@code excluded}, whose
+     * centroid is the closest to the centroid of {@code excluded}.
+     *
+     * @param excluded the reference micro-cluster.
+     * @param microClusters the micro-clusters to be searched.
+     * @return the closest micro-cluster, or {@code null} if there is none.
+     */
+    public static MicroCluster calculateClosestOtherMicroCluster(final MicroCluster excluded,
+                                                                 final List<MicroCluster> microClusters) {
+        if (microClusters instanceof MicroClusterList) {
+            return ((MicroClusterList) microClusters).calculateClosestMicroCluster(excluded.calculateCentroid(),
+                    excluded);
+        }
+        return calculateClosestMicroCluster(excluded.calculateCentroid(), microClusters, excluded, null);
+    }
+
+    /**
+     * Writes the summary of this micro-cluster, its timestamp, label and
+     * category, if it was already classified, and reactivation count, so that
+     * it can be read back by {@link #readFrom(DataInput)}. The timestamps of
+     * the data instances absorbed are not written, since they are only needed
+     * while the micro-cluster is being formed from the temporary memory (see
+     * {@link #readFrom(DataInput, List)}).
+     *
+     * @param out the output.
+     * @throws IOException if the micro-cluster could not be written.
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+        out.writeLong(this.timestamp);
+        out.writeBoolean(this.label != null);
+        if (this.label != null) {
+            out.writeUTF(this.label);
+            out.writeByte(this.category.ordinal());
+        }
+        out.writeInt(this.n);
+        out.writeInt(this.reactivationCount);
+        out.writeInt(this.ls.length);
+        for (int i = 0; i < this.ls.length; ++i) {
+            out.writeDouble(this.ls[i]);
+            out.writeDouble(this.ss[i]);
+        }
+    }
+
+    /**
+     * Reads a micro-cluster written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in the input.
+     * @return the micro-cluster.
+     * @throws IOException if the micro-cluster could not be read.
+     */
+    public static MicroCluster readFrom(final DataInput in) throws IOException {
+
+        final long timestamp = in.readLong();
+        final boolean isClassified = in.readBoolean();
+        final String label = isClassified ? in.readUTF() : null;
+        final Category category = isClassified ? Category.values()[in.readByte()] : null;
+        final int n = in.readInt();
+        final int reactivationCount = in.readInt();
+        final double[] ls = new double[in.readInt()];
+        final double[] ss = new double[ls.length];
+        for (int i = 0; i < ls.length; ++i) {
+            ls[i] = in.readDouble();
+            ss[i] = in.readDouble();
+        }
+
+        final MicroCluster microCluster = new MicroCluster(timestamp, label, category, n, ls, ss);
+        microCluster.reactivationCount = reactivationCount;
+        return microCluster;
+    }
+
+    /**
+     * Reads a micro-cluster written by {@link #writeTo(DataOutput)} and adds
+     * back the timestamps of the data instances it absorbed.
+     *
+     * @param in the input.
+     * @param instances the data instances absorbed by the micro-cluster.
+     * @return the micro-cluster.
+     * @throws IOException if the micro-cluster could not be read.
+     */
+    public static MicroCluster readFrom(final DataInput in, final List<DataInstance> instances) throws IOException {
+        final MicroCluster microCluster = readFrom(in);
+        for (final DataInstance instance : instances) {
+            microCluster.timestamps.add(instance.getTimestamp());
+        }
+        return microCluster;
+    }
+
     public static MicroCluster merge(final MicroCluster m1, final MicroCluster m2) {
 
         final int n = m1.n + m2.n;
         final double[] ss = m1.ss.clone();
         final double[] ls = m1.ls.clone();
 
-        final int timestamp = Math.max(m1.timestamp, m2.timestamp);
+        final long timestamp = Math.max(m1.timestamp, m2.timestamp);
 
         final String label = m1.label;
         final Category category = m1.getCategory();
@@ -146,26 +367,39 @@ public class MicroCluster {
             ls[i] += m2.ls[i];
         }
 
-        return new MicroCluster(timestamp, label, category, n, ls, ss);
+        // The timestamps are carried over, so that the data instances of
+        // both micro-clusters can still be removed from the merged one.
+        final MicroCluster merged = new MicroCluster(timestamp, label, category, n, ls, ss);
+        for (final Long instanceTimestamp : m1.timestamps) {
+            merged.timestamps.add(instanceTimestamp);
+        }
+        for (final Long instanceTimestamp : m2.timestamps) {
+            merged.timestamps.add(instanceTimestamp);
+        }
+        return merged;
     }
 
 
+    /**
+     * Calculates the simplified silhouette of a micro-cluster with respect to
+     * a list of micro-clusters, using the standard deviation of the
+     * micro-cluster as the cohesion and the distance from its centroid to the
+     * closest centroid of the list as the separation.
+     *
+     * @param microCluster the micro-cluster.
+     * @param microClusters the list of micro-clusters.
+     * @return the silhouette of the micro-cluster.
+     */
     public static double calculateSilhouette(final MicroCluster microCluster,
                                              final List<MicroCluster> microClusters) {
 
         final Point centroid = microCluster.calculateCentroid();
 
-        final List<Point> centroids = new ArrayList<>();
-        for (final MicroCluster cluster : microClusters) {
-            centroids.add(cluster.calculateCentroid());
-        }
-        Collections.sort(centroids, new PointDistanceComparator(centroid));
-
         final double a = microCluster.calculateStandardDeviation();
         final double b;
-        if (centroids.size() > 0) {
-            final Point closestCentroid = centroids.get(0);
-            b = centroid.distance(closestCentroid);
+        if (microClusters.size() > 0) {
+            final MicroCluster closestMicroCluster = calculateClosestMicroCluster(centroid, microClusters);
+            b = centroid.distance(closestMicroCluster.calculateCentroid());
         } else {
             b = Double.MAX_VALUE;
         }
@@ -173,7 +407,49 @@ public class MicroCluster {
         return (b - a) / Math.max(b, a);
     }
 
-    public int getTimestamp() {
+    /**
+     * Calculates the simplified silhouette of each micro-cluster of a batch
+     * with respect to a list of micro-clusters (see
+     * {@link #calculateSilhouette(MicroCluster, List)}). If the list is a
+     * {@link MicroClusterList}, the closest centroids of the whole batch are
+     * searched at once.
+     *
+     * @param candidates the micro-clusters whose silhouettes are calculated.
+     * @param microClusters the list of micro-clusters.
+     * @return the silhouettes, in the same order as the candidates.
+     */
+    public static double[] calculateSilhouettes(final List<MicroCluster> candidates,
+                                                final List<MicroCluster> microClusters) {
+
+        final double[] silhouettes = new double[candidates.size()];
+
+        if (microClusters instanceof MicroClusterList && !microClusters.isEmpty()) {
+
+            final List<Point> centroids = new ArrayList<>(candidates.size());
+            for (final MicroCluster candidate : candidates) {
+                centroids.add(candidate.calculateCentroid());
+            }
+
+            final MicroClusterList list = (MicroClusterList) microClusters;
+            list.precomputeClosestMicroClusters(centroids);
+            try {
+                for (int i = 0; i < silhouettes.length; ++i) {
+                    silhouettes[i] = calculateSilhouette(candidates.get(i), list);
+                }
+            } finally {
+                list.clearPrecomputedClosestMicroClusters();
+            }
+
+        } else {
+            for (int i = 0; i < silhouettes.length; ++i) {
+                silhouettes[i] = calculateSilhouette(candidates.get(i), microClusters);
+            }
+        }
+
+        return silhouettes;
+    }
+
+    public long getTimestamp() {
         return timestamp;
     }
 
@@ -182,6 +458,7 @@ public class MicroCluster {
     }
 
     public void setLabel(final String label) {
+        this.checkNotOwned();
         this.label = label;
     }
 
@@ -190,6 +467,7 @@ public class MicroCluster {
     }
 
     public void setCategory(final Category category) {
+        this.checkNotOwned();
         this.category = category;
     }
 
@@ -197,8 +475,91 @@ public class MicroCluster {
         return n;
     }
 
-    public Set<Integer> getTimestamps() {
+    public Set<Long> getTimestamps() {
         return Collections.unmodifiableSet(timestamps);
     }
 
+    /**
+     * Checks whether a data instance with the timestamp was added to this
+     * micro-cluster, without boxing the timestamp.
+     *
+     * @param timestamp the timestamp.
+     * @return {@code true} if the timestamp was added.
+     */
+    public boolean containsTimestamp(final long timestamp) {
+        return this.timestamps.contains(timestamp);
+    }
+
+    /**
+     * Estimates the number of bytes of heap retained by the timestamps of
+     * the data instances added to this micro-cluster.
+     *
+     * @return the estimated size, in bytes.
+     */
+    public long estimateTimestampBytes() {
+        return this.timestamps.estimateRetainedBytes();
+    }
+
+    /**
+     * Forgets the timestamps of the data instances added to this
+     * micro-cluster, which are only needed to find the members of a
+     * micro-cluster just formed from the temporary memory.
+     */
+    void clearTimestamps() {
+        this.timestamps.clear();
+    }
+
+    /**
+     * Returns how many times this micro-cluster was brought back from the
+     * sleep memory to the decision model.
+     *
+     * @return the number of reactivations.
+     */
+    public int getReactivationCount() {
+        return reactivationCount;
+    }
+
+    void setReactivationCount(final int reactivationCount) {
+        this.reactivationCount = reactivationCount;
+    }
+
+    double[] getLs() {
+        return ls;
+    }
+
+    double[] getSs() {
+        return ss;
+    }
+
+    MicroClusterList getOwner() {
+        return owner;
+    }
+
+    void setOwner(final MicroClusterList owner) {
+        this.owner = owner;
+    }
+
+    int getSlot() {
+        return slot;
+    }
+
+    void setSlot(final int slot) {
+        this.slot = slot;
+    }
+
+    int getHeapIndex() {
+        return heapIndex;
+    }
+
+    void setHeapIndex(final int heapIndex) {
+        this.heapIndex = heapIndex;
+    }
+
+    private void checkNotOwned() {
+        if (this.owner != null) {
+            throw new IllegalStateException("The label and category of a micro-cluster can't be changed while it "
+                    + "belongs to a MicroClusterList");
+        }
+    }
+
 }
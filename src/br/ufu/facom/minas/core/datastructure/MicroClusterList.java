@@ -0,0 +1,1515 @@
+package br.ufu.facom.minas.core.datastructure;
+
+import br.ufu.facom.minas.core.distance.DistanceBackend;
+import br.ufu.facom.minas.core.distance.DistanceKernel;
+import br.ufu.facom.minas.core.distance.ScalarDistanceBackend;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * List of micro-clusters that keeps its elements indexed by label and
+ * category. For each micro-cluster, the list also caches the aggregated
+ * distances between it and the other micro-clusters sharing its label and
+ * category (its peers), which are required by some of the micro-cluster
+ * decision rules.
+ *
+ * <p>The centroids of the micro-clusters are also kept packed in a single
+ * row-major matrix, which is scanned by the configured
+ * {@link DistanceBackend} during the nearest micro-cluster searches.
+ *
+ * <p>The micro-clusters are also kept in a min-heap keyed by their
+ * timestamps, so that the inactive ones can be found without scanning the
+ * list (see {@link #removeInactive(long, long)}).
+ *
+ * <p>Micro-clusters can only be appended to the end of the list, so that the
+ * order of the peers inside the index is always the same as their order
+ * inside the list. A micro-cluster can belong to a single list at a time, and
+ * its label and category must not be changed while it belongs to a list.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class MicroClusterList extends AbstractList<MicroCluster> {
+
+    /**
+     * Relative margin by which the triangle inequality bounds must exceed
+     * the distance of the closest micro-cluster found so far for a
+     * micro-cluster to be skipped, covering the rounding errors of the
+     * distances.
+     */
+    private static final double PIVOT_TOLERANCE = 1e-9;
+
+    // Rough sizes, in bytes, of the objects of a micro-cluster on a 64-bit
+    // JVM with compressed references, used by estimateRetainedBytes: the
+    // fields of the micro-cluster, of its timestamp set and of its centroid,
+    // and the entries of the indexes of the list.
+    private static final int MICRO_CLUSTER_FIELDS = 80 + 32 + 16 + 64;
+    private static final int ARRAY_OVERHEAD = 16;
+
+    private final List<MicroCluster> microClusters;
+    private final Map<PeerGroupKey, PeerGroup> peerGroups;
+    private final TimestampHeap timestampHeap;
+    private boolean dimensionOrdering;
+    private int[] dimensionOrder;
+    private int dimensionOrderModCount;
+
+    // Centroids of the micro-clusters packed in a row-major matrix, following
+    // the order of the list. Only one of the matrices is used, depending on
+    // the precision of the list.
+    private double[] centroids;
+    private float[] singlePrecisionCentroids;
+    private boolean isSinglePrecision;
+    private int dimensions;
+
+    // Squared norm of each packed centroid, used by the searches of sparse
+    // points.
+    private double[] squaredNorms;
+
+    // Radius of each micro-cluster according to the radius function, and the
+    // squared distance below which a point is certainly inside the radius.
+    private RadiusFunction radiusFunction;
+    private double[] radii;
+    private double[] innerSquaredRadii;
+
+    // Closest micro-clusters precomputed for a batch of points, valid while
+    // the list and its centroids are not changed.
+    private final Map<Point, MicroCluster> precomputedClosest;
+    private int precomputedModCount;
+
+    // Pivots of the triangle inequality pruning, packed in a row-major
+    // matrix, the distance between each packed centroid and each pivot, and
+    // the closest micro-cluster found by the last pruned search.
+    private int pivotCount;
+    private double[] pivots;
+    private double[] pivotDistances;
+    private MicroCluster lastClosest;
+
+    // Graph used by the approximate searches, and the counters of the
+    // approximate searches checked against the exact search.
+    private HnswIndex approximateIndex;
+    private int samplingInterval;
+    private long approximateSearchCount;
+    private long sampledSearchCount;
+    private long mismatchCount;
+
+    // Shards holding the centroids for the nearest micro-cluster searches.
+    private ShardedIndex shardedIndex;
+
+    // Bytes retained by the timestamp sets of the micro-clusters of the list.
+    private long timestampBytes;
+
+    public MicroClusterList() {
+        this.microClusters = new ArrayList<>();
+        this.peerGroups = new HashMap<>();
+        this.timestampHeap = new TimestampHeap();
+        this.centroids = new double[0];
+        this.singlePrecisionCentroids = new float[0];
+        this.dimensions = -1;
+        this.squaredNorms = new double[0];
+        this.radii = new double[0];
+        this.innerSquaredRadii = new double[0];
+        this.precomputedClosest = new IdentityHashMap<>();
+    }
+
+    public MicroClusterList(final Collection<MicroCluster> microClusters) {
+        this();
+        this.addAll(microClusters);
+    }
+
+    @Override
+    public MicroCluster get(final int index) {
+        return this.microClusters.get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.microClusters.size();
+    }
+
+    /**
+     * Returns the number of dimensions of the centroids of this list, which
+     * is given by the first micro-cluster added to it.
+     *
+     * @return the number of dimensions, or -1 if no micro-cluster was ever
+     * added.
+     */
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Appends the micro-cluster to the end of this list and indexes it.
+     *
+     * @throws UnsupportedOperationException if {@code index} is not equal to
+     * the size of the list.
+     * @throws IllegalStateException if the micro-cluster already belongs to a
+     * list.
+     */
+    @Override
+    public void add(final int index, final MicroCluster microCluster) {
+
+        if (index != this.microClusters.size()) {
+            throw new UnsupportedOperationException("Micro-clusters can only be appended to the list");
+        }
+
+        if (microCluster.getOwner() != null) {
+            throw new IllegalStateException("The micro-cluster already belongs to a list");
+        }
+
+        this.microClusters.add(microCluster);
+        microCluster.setOwner(this);
+        this.timestampBytes += microCluster.estimateTimestampBytes();
+        this.pack(microCluster, this.microClusters.size() - 1);
+        this.timestampHeap.add(microCluster);
+        if (this.approximateIndex != null) {
+            this.approximateIndex.insert(microCluster);
+        }
+        if (this.shardedIndex != null) {
+            this.shardedIndex.insert(microCluster);
+        }
+
+        final PeerGroupKey key = new PeerGroupKey(microCluster);
+        PeerGroup peerGroup = this.peerGroups.get(key);
+        if (peerGroup == null) {
+            peerGroup = new PeerGroup();
+            this.peerGroups.put(key, peerGroup);
+        }
+
+        // The aggregates of the other peers remain valid, since they are
+        // lazily extended to the peers appended after their last update.
+        peerGroup.members.add(microCluster);
+
+        ++this.modCount;
+    }
+
+    @Override
+    public MicroCluster remove(final int index) {
+        final MicroCluster microCluster = this.microClusters.remove(index);
+        this.unindex(microCluster);
+
+        this.moveRows(index + 1, index, this.microClusters.size() - index);
+        for (int i = index; i < this.microClusters.size(); ++i) {
+            this.microClusters.get(i).setSlot(i);
+        }
+
+        ++this.modCount;
+        return microCluster;
+    }
+
+    /**
+     * Removes the micro-cluster from this list, locating it through its slot
+     * instead of scanning the list.
+     */
+    @Override
+    public boolean remove(final Object o) {
+        if (o instanceof MicroCluster && ((MicroCluster) o).getOwner() == this) {
+            this.remove(((MicroCluster) o).getSlot());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof MicroCluster && ((MicroCluster) o).getOwner() == this;
+    }
+
+    @Override
+    public int indexOf(final Object o) {
+        return this.contains(o) ? ((MicroCluster) o).getSlot() : -1;
+    }
+
+    @Override
+    public int lastIndexOf(final Object o) {
+        return this.indexOf(o);
+    }
+
+    @Override
+    public boolean removeAll(final Collection<?> collection) {
+
+        final Set<Object> toBeRemoved = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        toBeRemoved.addAll(collection);
+
+        // Each run of remaining rows is moved over the removed ones as a
+        // block, so the packed data of the remaining micro-clusters doesn't
+        // need to be computed again. The slots are renumbered as the rows
+        // move, so that the indexes always see consistent rows.
+        final int size = this.microClusters.size();
+        int remaining = 0;
+        int row = 0;
+        while (row < size) {
+
+            final MicroCluster microCluster = this.microClusters.get(row);
+            if (toBeRemoved.contains(microCluster)) {
+                this.unindex(microCluster);
+                ++row;
+                continue;
+            }
+
+            int end = row + 1;
+            while (end < size && !toBeRemoved.contains(this.microClusters.get(end))) {
+                ++end;
+            }
+            if (remaining != row) {
+                this.moveRows(row, remaining, end - row);
+                for (int i = row; i < end; ++i) {
+                    final MicroCluster moved = this.microClusters.get(i);
+                    this.microClusters.set(remaining + i - row, moved);
+                    moved.setSlot(remaining + i - row);
+                }
+            }
+            remaining += end - row;
+            row = end;
+        }
+
+        if (remaining == size) {
+            return false;
+        }
+
+        this.microClusters.subList(remaining, size).clear();
+
+        ++this.modCount;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (final MicroCluster microCluster : this.microClusters) {
+            microCluster.setOwner(null);
+        }
+        this.microClusters.clear();
+        this.peerGroups.clear();
+        this.timestampHeap.clear();
+        this.timestampBytes = 0;
+        if (this.approximateIndex != null) {
+            this.approximateIndex.clear();
+        }
+        if (this.shardedIndex != null) {
+            this.shardedIndex.clear();
+        }
+        ++this.modCount;
+    }
+
+    /**
+     * Searches for the micro-cluster of this list whose centroid is the
+     * closest to the point. The result is the same as the one obtained by
+     * {@link MicroCluster#calculateClosestMicroCluster(Point, List)} over a
+     * plain list with the same elements.
+     *
+     * @param point the point.
+     * @return the closest micro-cluster, or {@code null} if the list is
+     * empty.
+     */
+    public MicroCluster calculateClosestMicroCluster(final Point point) {
+        return this.calculateClosestMicroCluster(point, null);
+    }
+
+    /**
+     * Searches for the micro-cluster of this list, other than
+     * {@code excluded}, whose centroid is the closest to the point.
+     *
+     * @param point the point.
+     * @param excluded a micro-cluster to be skipped, or {@code null}.
+     * @return the closest micro-cluster, or {@code null} if there is none.
+     */
+    public MicroCluster calculateClosestMicroCluster(final Point point, final MicroCluster excluded) {
+
+        if (excluded == null && !this.precomputedClosest.isEmpty()) {
+            if (this.precomputedModCount != this.modCount) {
+                this.precomputedClosest.clear();
+            } else if (this.precomputedClosest.containsKey(point)) {
+                return this.precomputedClosest.get(point);
+            }
+        }
+
+        if (point.isSparse()) {
+            return this.calculateClosestMicroClusterToSparse(point, excluded);
+        }
+
+        if (this.shardedIndex != null && excluded == null && !this.isSinglePrecision) {
+            return this.shardedIndex.search(point.getValues());
+        }
+
+        final int[] order = this.getDimensionOrder();
+        if (order != null) {
+            return MicroCluster.calculateClosestMicroCluster(point, this.microClusters, excluded, order);
+        }
+
+        final int excludedRow = excluded != null && excluded.getOwner() == this
+                ? excluded.getSlot()
+                : this.microClusters.size();
+
+        if (this.pivotCount > 0 && !this.isSinglePrecision && this.microClusters.size() > this.pivotCount) {
+            final int closest = this.calculateClosestRowWithPivots(point.getValues(), excludedRow);
+            return closest == -1 ? null : this.microClusters.get(closest);
+        }
+
+        // Searches the rows before and after the excluded one, keeping the
+        // first row in case of a tie.
+        final double[] x = point.getValues();
+        final int before = this.calculateClosestRow(x, 0, 0, excludedRow);
+        final int after = this.calculateClosestRow(x, 0, excludedRow + 1, this.microClusters.size());
+
+        final int closest;
+        if (before == -1 || after == -1) {
+            closest = Math.max(before, after);
+        } else {
+            closest = this.distanceToRow(x, 0, after) < this.distanceToRow(x, 0, before) ? after : before;
+        }
+
+        return closest == -1 ? null : this.microClusters.get(closest);
+    }
+
+    /**
+     * Searches for the row closest to the point, other than the excluded
+     * one, skipping the rows whose distance is known to be greater than the
+     * closest one found so far through the triangle inequality:
+     * {@code d(x, c) >= |d(x, p) - d(c, p)|} for every pivot {@code p}. The
+     * search starts from the closest row of the previous search, and the
+     * result is the row with the smallest distance, or the first one among
+     * rows at the same distance, as in the linear scan of the
+     * {@link ScalarDistanceBackend}.
+     */
+    private int calculateClosestRowWithPivots(final double[] x, final int excludedRow) {
+
+        if (this.pivots == null) {
+            this.choosePivots();
+        }
+
+        final double[] pointDistances = new double[this.pivotCount];
+        for (int p = 0; p < this.pivotCount; ++p) {
+            pointDistances[p] = Math.sqrt(DistanceKernel.squaredDistance(this.pivots, p * this.dimensions, x, 0,
+                    this.dimensions, Double.POSITIVE_INFINITY));
+        }
+
+        int closest = -1;
+        double minDistance = Double.POSITIVE_INFINITY;
+        double minSquaredDistance = Double.POSITIVE_INFINITY;
+        if (this.lastClosest != null && this.lastClosest.getOwner() == this
+                && this.lastClosest.getSlot() != excludedRow) {
+            closest = this.lastClosest.getSlot();
+            minSquaredDistance = DistanceKernel.squaredDistance(this.centroids, closest * this.dimensions, x, 0,
+                    this.dimensions, Double.POSITIVE_INFINITY);
+            minDistance = Math.sqrt(minSquaredDistance);
+        }
+
+        for (int row = 0; row < this.microClusters.size(); ++row) {
+
+            if (row == closest || row == excludedRow) {
+                continue;
+            }
+
+            // The bounds are only trusted by a margin above the rounding
+            // errors, so that a row at the same distance is never skipped.
+            if (closest != -1) {
+                boolean isPruned = false;
+                for (int p = 0; p < this.pivotCount && !isPruned; ++p) {
+                    final double a = pointDistances[p];
+                    final double b = this.pivotDistances[row * this.pivotCount + p];
+                    isPruned = Math.abs(a - b) > minDistance + PIVOT_TOLERANCE * (a + b);
+                }
+                if (isPruned) {
+                    continue;
+                }
+            }
+
+            final double squaredDistance = DistanceKernel.squaredDistance(this.centroids, row * this.dimensions,
+                    x, 0, this.dimensions, minSquaredDistance * (1 + PIVOT_TOLERANCE));
+            final double distance = Math.sqrt(squaredDistance);
+            if (closest == -1 || distance < minDistance || (distance == minDistance && row < closest)) {
+                closest = row;
+                minDistance = distance;
+                minSquaredDistance = squaredDistance;
+            }
+        }
+
+        this.lastClosest = closest == -1 ? null : this.microClusters.get(closest);
+        return closest;
+    }
+
+    /**
+     * Chooses the pivots among the centroids of this list, each one as far
+     * as possible from the ones already chosen, and computes the distances
+     * between every centroid and every pivot.
+     */
+    private void choosePivots() {
+
+        this.pivots = new double[this.pivotCount * this.dimensions];
+        final double[] minSquaredDistances = new double[this.microClusters.size()];
+        Arrays.fill(minSquaredDistances, Double.POSITIVE_INFINITY);
+
+        int pivotRow = 0;
+        for (int p = 0; p < this.pivotCount; ++p) {
+            System.arraycopy(this.centroids, pivotRow * this.dimensions, this.pivots, p * this.dimensions,
+                    this.dimensions);
+            int farthestRow = 0;
+            for (int row = 0; row < this.microClusters.size(); ++row) {
+                minSquaredDistances[row] = Math.min(minSquaredDistances[row], DistanceKernel.squaredDistance(
+                        this.pivots, p * this.dimensions, this.centroids, row * this.dimensions, this.dimensions,
+                        Double.POSITIVE_INFINITY));
+                if (minSquaredDistances[row] > minSquaredDistances[farthestRow]) {
+                    farthestRow = row;
+                }
+            }
+            pivotRow = farthestRow;
+        }
+
+        this.pivotDistances = new double[0];
+        for (int i = 0; i < this.microClusters.size(); ++i) {
+            this.pack(this.microClusters.get(i), i);
+        }
+    }
+
+    /**
+     * Sets the number of pivots used to prune the nearest micro-cluster
+     * searches through the triangle inequality, or zero to scan every
+     * micro-cluster. The distances between the centroids and the pivots are
+     * kept up to date as the list changes, and each search starts from the
+     * closest micro-cluster of the previous one, which pays off when
+     * consecutive points are close to the same micro-clusters. The results
+     * are the same as the ones of the linear scan with the
+     * {@link ScalarDistanceBackend}. The pruning is not used in single
+     * precision, nor together with the ordering of the dimensions.
+     *
+     * @param pivotCount the number of pivots.
+     */
+    public void setPivotCount(final int pivotCount) {
+        this.pivotCount = Math.max(pivotCount, 0);
+        this.pivots = null;
+        this.pivotDistances = null;
+        this.lastClosest = null;
+    }
+
+    public int getPivotCount() {
+        return pivotCount;
+    }
+
+    /**
+     * Searches for a micro-cluster of this list whose centroid is close to
+     * the point, through the approximate index if it is enabled (see
+     * {@link #setApproximateSearch(int, int)}), or through the exact search
+     * otherwise. The micro-cluster returned may not be the closest one, so
+     * any threshold must still be checked against it. Every
+     * {@code samplingInterval} approximate searches, the exact search is
+     * also executed, and the number of times they disagreed is counted.
+     *
+     * @param point the point.
+     * @return a micro-cluster close to the point, or {@code null} if the list
+     * is empty.
+     */
+    public MicroCluster calculateApproximateClosestMicroCluster(final Point point) {
+
+        if (this.approximateIndex == null
+                || (!this.precomputedClosest.isEmpty() && this.precomputedModCount == this.modCount)) {
+            return this.calculateClosestMicroCluster(point);
+        }
+
+        final MicroCluster closest = this.approximateIndex.search(point.getValues());
+
+        ++this.approximateSearchCount;
+        if (this.samplingInterval > 0 && this.approximateSearchCount % this.samplingInterval == 0) {
+            ++this.sampledSearchCount;
+            final MicroCluster exactClosest = this.calculateClosestMicroCluster(point);
+            if (exactClosest != closest && exactClosest.squaredDistance(point) < closest.squaredDistance(point)) {
+                ++this.mismatchCount;
+            }
+        }
+
+        return closest;
+    }
+
+    /**
+     * Enables or disables the approximate searches over a hierarchical
+     * navigable small world graph built over the centroids of this list (see
+     * {@link #calculateApproximateClosestMicroCluster(Point)}), which answer
+     * in sublinear time on large lists. The graph is kept up to date as
+     * micro-clusters are added and removed.
+     *
+     * @param efSearch the number of candidates kept by each search, which
+     *                 trades latency for recall, or zero to disable the
+     *                 approximate searches.
+     * @param samplingInterval the number of approximate searches between
+     *                         two checks against the exact search, or zero
+     *                         to never check.
+     */
+    public void setApproximateSearch(final int efSearch, final int samplingInterval) {
+
+        this.samplingInterval = samplingInterval;
+
+        if (efSearch <= 0) {
+            this.approximateIndex = null;
+        } else if (this.approximateIndex != null) {
+            this.approximateIndex.setEfSearch(efSearch);
+        } else {
+            this.approximateIndex = new HnswIndex(this, efSearch);
+            for (final MicroCluster microCluster : this.microClusters) {
+                this.approximateIndex.insert(microCluster);
+            }
+        }
+    }
+
+    public boolean isApproximateSearch() {
+        return this.approximateIndex != null;
+    }
+
+    /**
+     * Returns the number of approximate searches that were also executed
+     * exactly.
+     *
+     * @return the number of sampled searches.
+     */
+    public long getSampledSearchCount() {
+        return sampledSearchCount;
+    }
+
+    /**
+     * Returns the number of sampled approximate searches that returned a
+     * micro-cluster farther than the one returned by the exact search.
+     *
+     * @return the number of mismatches.
+     */
+    public long getMismatchCount() {
+        return mismatchCount;
+    }
+
+    /**
+     * Partitions the centroids of this list across several
+     * {@link br.ufu.facom.minas.core.shard.ShardServer} processes, which then
+     * answer the nearest micro-cluster searches of dense points, including
+     * the batch searches (see {@link #precomputeClosestMicroClusters(List)}).
+     * The results are the same as the ones of the local searches, since the
+     * shards also compute the distances in double precision. The searches
+     * that exclude a micro-cluster, the searches of sparse points and the
+     * searches of lists in single precision remain local. The micro-clusters
+     * are still kept by this list, so that everything else, such as the
+     * novelty detection, is not affected.
+     *
+     * <p>The current connections, if any, are closed.
+     *
+     * @param shards the addresses of the shards, or an empty list to search
+     *               locally.
+     * @param partitioning the strategy used to assign the micro-clusters to
+     *                     the shards.
+     * @throws IOException if a shard can't be reached.
+     */
+    public void setShards(final List<InetSocketAddress> shards, final ShardPartitioning partitioning)
+            throws IOException {
+
+        if (this.shardedIndex != null) {
+            this.shardedIndex.close();
+            this.shardedIndex = null;
+        }
+
+        if (!shards.isEmpty()) {
+            final ShardedIndex shardedIndex = new ShardedIndex(shards, partitioning);
+            for (final MicroCluster microCluster : this.microClusters) {
+                shardedIndex.insert(microCluster);
+            }
+            this.shardedIndex = shardedIndex;
+        }
+        this.precomputedClosest.clear();
+    }
+
+    public int getShardCount() {
+        return this.shardedIndex == null ? 0 : this.shardedIndex.getShardCount();
+    }
+
+    /**
+     * Returns the number of micro-clusters held by each shard (see
+     * {@link #setShards(List, ShardPartitioning)}).
+     *
+     * @return the number of micro-clusters of each shard.
+     */
+    public int[] getShardSizes() {
+        return this.shardedIndex == null ? new int[0] : this.shardedIndex.getShardSizes();
+    }
+
+    /**
+     * Searches for the micro-cluster closest to a sparse point, visiting only
+     * its non-zero values through the squared norms of the centroids (see
+     * {@link DistanceKernel#squaredDistance(int[], double[], double[], int,
+     * double)}). Since the distances carry the error of the expansion, a
+     * near tie may be resolved differently than by the dense search.
+     */
+    private MicroCluster calculateClosestMicroClusterToSparse(final Point point, final MicroCluster excluded) {
+
+        final int[] indices = point.getIndices();
+        final double[] values = point.getNonZeroValues();
+
+        MicroCluster closest = null;
+        double minDistance = Double.MAX_VALUE;
+        double minSquaredDistance = Double.POSITIVE_INFINITY;
+        for (int row = 0; row < this.microClusters.size(); ++row) {
+
+            final MicroCluster microCluster = this.microClusters.get(row);
+            if (microCluster == excluded) {
+                continue;
+            }
+
+            final double squaredDistance = this.isSinglePrecision
+                    ? DistanceKernel.squaredDistance(indices, values, this.singlePrecisionCentroids,
+                            row * this.dimensions, this.squaredNorms[row])
+                    : DistanceKernel.squaredDistance(indices, values, this.centroids, row * this.dimensions,
+                            this.squaredNorms[row]);
+
+            if (squaredDistance < minSquaredDistance && Math.sqrt(squaredDistance) < minDistance) {
+                minDistance = Math.sqrt(squaredDistance);
+                minSquaredDistance = squaredDistance;
+                closest = microCluster;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Removes from this list the micro-clusters whose age, that is, the
+     * difference between {@code lastTimestamp} and their timestamps, is
+     * greater than {@code lifespan}. Only the inactive micro-clusters are
+     * visited, since they are popped from the timestamp heap.
+     *
+     * @param lastTimestamp the current timestamp.
+     * @param lifespan the maximum age of an active micro-cluster.
+     * @return the removed micro-clusters, in the order they had inside the
+     * list.
+     */
+    public List<MicroCluster> removeInactive(final long lastTimestamp, final long lifespan) {
+
+        final List<MicroCluster> inactiveMicroClusters = new ArrayList<>();
+        MicroCluster oldest = this.timestampHeap.peek();
+        while (oldest != null && lastTimestamp - oldest.getTimestamp() > lifespan) {
+            this.timestampHeap.remove(oldest);
+            inactiveMicroClusters.add(oldest);
+            oldest = this.timestampHeap.peek();
+        }
+
+        if (inactiveMicroClusters.isEmpty()) {
+            return inactiveMicroClusters;
+        }
+
+        Collections.sort(inactiveMicroClusters, new Comparator<MicroCluster>() {
+            @Override
+            public int compare(final MicroCluster m1, final MicroCluster m2) {
+                return Integer.compare(m1.getSlot(), m2.getSlot());
+            }
+        });
+
+        this.removeAll(inactiveMicroClusters);
+        return inactiveMicroClusters;
+    }
+
+    /**
+     * Searches at once for the closest micro-cluster of each point of a
+     * batch, so that the subsequent calls to
+     * {@link #calculateClosestMicroCluster(Point)} with these points are
+     * answered without scanning the list. The precomputed results are
+     * discarded as soon as the list or any of its centroids changes. Batches
+     * of sparse points are not precomputed, since they are searched by a
+     * dedicated kernel.
+     *
+     * @param points the batch of points.
+     */
+    public void precomputeClosestMicroClusters(final List<? extends Point> points) {
+
+        this.precomputedClosest.clear();
+        if (points.isEmpty() || this.microClusters.isEmpty() || this.isSinglePrecision) {
+            return;
+        }
+
+        for (final Point point : points) {
+            if (point.isSparse()) {
+                return;
+            }
+        }
+
+        final double[] packedPoints = new double[points.size() * this.dimensions];
+        for (int i = 0; i < points.size(); ++i) {
+            System.arraycopy(points.get(i).getValues(), 0, packedPoints, i * this.dimensions, this.dimensions);
+        }
+
+        if (this.shardedIndex != null) {
+            final MicroCluster[] closest = this.shardedIndex.search(packedPoints, points.size());
+            for (int i = 0; i < points.size(); ++i) {
+                this.precomputedClosest.put(points.get(i), closest[i]);
+            }
+            this.precomputedModCount = this.modCount;
+            return;
+        }
+
+        final int[] closestRows = new int[points.size()];
+        DistanceKernel.getBackend().calculateClosestRows(packedPoints, points.size(), this.centroids,
+                this.microClusters.size(), this.dimensions, closestRows);
+
+        for (int i = 0; i < points.size(); ++i) {
+            final MicroCluster closest = closestRows[i] == -1 ? null : this.microClusters.get(closestRows[i]);
+            this.precomputedClosest.put(points.get(i), closest);
+        }
+        this.precomputedModCount = this.modCount;
+    }
+
+    /**
+     * Discards the closest micro-clusters precomputed by
+     * {@link #precomputeClosestMicroClusters(List)}.
+     */
+    public void clearPrecomputedClosestMicroClusters() {
+        this.precomputedClosest.clear();
+    }
+
+    /**
+     * Searches for the two micro-clusters of this list whose centroids are
+     * the closest to each other. In case of a tie, the first pair found when
+     * iterating over the pairs {@code (i, j)}, with {@code i < j}, in
+     * lexicographic order is returned.
+     *
+     * @return an array containing the two closest micro-clusters, or
+     * {@code null} if the list has less than two elements.
+     */
+    public MicroCluster[] calculateClosestPair() {
+
+        int m1 = -1;
+        int m2 = -1;
+        double minDistance = Double.MAX_VALUE;
+        for (int i = 0; i < this.microClusters.size() - 1; ++i) {
+
+            // The rows of the single-precision matrix are widened before
+            // being used as queries.
+            final double[] query;
+            final int queryOffset;
+            if (this.isSinglePrecision) {
+                query = new double[this.dimensions];
+                for (int k = 0; k < this.dimensions; ++k) {
+                    query[k] = this.singlePrecisionCentroids[i * this.dimensions + k];
+                }
+                queryOffset = 0;
+            } else {
+                query = this.centroids;
+                queryOffset = i * this.dimensions;
+            }
+
+            final int j = this.calculateClosestRow(query, queryOffset, i + 1, this.microClusters.size());
+            if (j != -1) {
+                final double distance = this.distanceToRow(query, queryOffset, j);
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    m1 = i;
+                    m2 = j;
+                }
+            }
+        }
+
+        if (m1 == -1) {
+            return null;
+        }
+        return new MicroCluster[]{this.microClusters.get(m1), this.microClusters.get(m2)};
+    }
+
+    /**
+     * Sets whether the packed centroids are stored in single precision,
+     * which halves the memory they take and the memory traffic of the
+     * nearest micro-cluster searches. The summaries of the micro-clusters and
+     * the distances are still computed in double precision, but since the
+     * centroids are rounded, the closest micro-cluster may differ from the
+     * one found in double precision when two candidates are nearly tied.
+     * The batch searches (see {@link #precomputeClosestMicroClusters(List)})
+     * are disabled in single precision.
+     *
+     * @param isSinglePrecision whether the centroids are stored in single
+     *                          precision.
+     */
+    public void setSinglePrecision(final boolean isSinglePrecision) {
+        this.isSinglePrecision = isSinglePrecision;
+        this.centroids = new double[0];
+        this.singlePrecisionCentroids = new float[0];
+        this.precomputedClosest.clear();
+        for (int i = 0; i < this.microClusters.size(); ++i) {
+            this.pack(this.microClusters.get(i), i);
+        }
+    }
+
+    public boolean isSinglePrecision() {
+        return isSinglePrecision;
+    }
+
+    /**
+     * Enables or disables the ordering of the dimensions by decreasing
+     * variance of the centroids during nearest micro-cluster searches.
+     * Visiting the most spread dimensions first makes the partial distances
+     * grow faster, so that distant candidates are abandoned earlier. The
+     * search results are not affected.
+     *
+     * @param dimensionOrdering whether the dimensions should be ordered.
+     */
+    public void setDimensionOrdering(final boolean dimensionOrdering) {
+        this.dimensionOrdering = dimensionOrdering;
+        this.dimensionOrder = null;
+    }
+
+    public boolean isDimensionOrdering() {
+        return dimensionOrdering;
+    }
+
+    /**
+     * Sets the function used to precompute the radius of each micro-cluster
+     * of this list. The radii are refreshed whenever the summary of a
+     * micro-cluster changes.
+     *
+     * @param radiusFunction the radius function, or {@code null} to disable
+     *                       the precomputation.
+     */
+    public void setRadiusFunction(final RadiusFunction radiusFunction) {
+        this.radiusFunction = radiusFunction;
+        for (int i = 0; i < this.microClusters.size(); ++i) {
+            this.pack(this.microClusters.get(i), i);
+        }
+    }
+
+    public RadiusFunction getRadiusFunction() {
+        return radiusFunction;
+    }
+
+    /**
+     * Returns whether the distance between a point and the centroid of a
+     * micro-cluster is less than or equal to the radius of the micro-cluster.
+     * If the micro-cluster belongs to a {@link MicroClusterList} whose radius
+     * function is the one passed as argument, the precomputed radius is used.
+     *
+     * @param microCluster the micro-cluster.
+     * @param squaredDistance the squared distance between the point and the
+     *                        centroid of the micro-cluster.
+     * @param radiusFunction the radius function.
+     * @return whether the point is inside the radius.
+     */
+    public static boolean isWithinRadius(final MicroCluster microCluster,
+                                         final double squaredDistance,
+                                         final RadiusFunction radiusFunction) {
+
+        final MicroClusterList owner = microCluster.getOwner();
+        if (owner != null && owner.radiusFunction == radiusFunction) {
+            final int slot = microCluster.getSlot();
+            return squaredDistance < owner.innerSquaredRadii[slot]
+                    || DistanceKernel.isWithin(squaredDistance, owner.radii[slot]);
+        }
+
+        return DistanceKernel.isWithin(squaredDistance, radiusFunction.calculateRadius(microCluster));
+    }
+
+    /**
+     * Returns whether the distance between a point and the centroid of a
+     * micro-cluster is strictly less than the radius of the micro-cluster.
+     * If the micro-cluster belongs to a {@link MicroClusterList} whose radius
+     * function is the one passed as argument, the precomputed radius is used.
+     *
+     * @param microCluster the micro-cluster.
+     * @param squaredDistance the squared distance between the point and the
+     *                        centroid of the micro-cluster.
+     * @param radiusFunction the radius function.
+     * @return whether the point is strictly inside the radius.
+     */
+    public static boolean isStrictlyWithinRadius(final MicroCluster microCluster,
+                                                 final double squaredDistance,
+                                                 final RadiusFunction radiusFunction) {
+
+        final MicroClusterList owner = microCluster.getOwner();
+        if (owner != null && owner.radiusFunction == radiusFunction) {
+            final int slot = microCluster.getSlot();
+            return squaredDistance < owner.innerSquaredRadii[slot]
+                    || DistanceKernel.isStrictlyWithin(squaredDistance, owner.radii[slot]);
+        }
+
+        return DistanceKernel.isStrictlyWithin(squaredDistance, radiusFunction.calculateRadius(microCluster));
+    }
+
+    /**
+     * Returns the micro-clusters of this list that have the same label and
+     * category as the micro-cluster passed as argument, in the order they
+     * appear in the list.
+     *
+     * @param microCluster the reference micro-cluster.
+     * @return an unmodifiable view of the peers of the micro-cluster, or an
+     * empty list if there is none.
+     */
+    public List<MicroCluster> getPeers(final MicroCluster microCluster) {
+        final PeerGroup peerGroup = this.peerGroups.get(new PeerGroupKey(microCluster));
+        if (peerGroup == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(peerGroup.members);
+    }
+
+    /**
+     * Returns the mean distance between a micro-cluster of this list and its
+     * peers, including itself.
+     *
+     * @param microCluster a micro-cluster that belongs to this list.
+     * @return the mean distance between the micro-cluster and its peers.
+     */
+    public double calculateMeanDistanceToPeers(final MicroCluster microCluster) {
+        final PeerAggregate aggregate = this.updateAggregate(microCluster);
+        return aggregate.distanceSum / aggregate.counted;
+    }
+
+    /**
+     * Returns the maximum distance between a micro-cluster of this list and
+     * its peers.
+     *
+     * @param microCluster a micro-cluster that belongs to this list.
+     * @return the maximum distance between the micro-cluster and its peers.
+     */
+    public double calculateMaxDistanceToPeers(final MicroCluster microCluster) {
+        return this.updateAggregate(microCluster).maxDistance;
+    }
+
+    /**
+     * Returns the micro-clusters that have the same label and category as the
+     * reference micro-cluster. If the list is a {@link MicroClusterList}, its
+     * index is used; otherwise, the list is scanned.
+     *
+     * @param reference the reference micro-cluster.
+     * @param microClusters the list of micro-clusters to be searched.
+     * @return the peers of the reference micro-cluster inside the list.
+     */
+    public static List<MicroCluster> filterPeers(final MicroCluster reference,
+                                                 final List<MicroCluster> microClusters) {
+
+        if (microClusters instanceof MicroClusterList) {
+            return ((MicroClusterList) microClusters).getPeers(reference);
+        }
+
+        final List<MicroCluster> peers = new ArrayList<>();
+        for (final MicroCluster microCluster : microClusters) {
+            if (reference.getLabel().equals(microCluster.getLabel())
+                    && reference.getCategory().equals(microCluster.getCategory())) {
+                peers.add(microCluster);
+            }
+        }
+        return peers;
+    }
+
+    /**
+     * Merges every pair of peers of this list whose centroids lie within the
+     * radius of each other, until no such pair is left. The radii are given
+     * by the radius function of this list or, if none is set, by the
+     * standard deviation of the micro-clusters. The merged micro-clusters are
+     * appended to the end of the list, so they may be merged again.
+     *
+     * @return the number of merges.
+     */
+    public int mergeOverlappingPeers() {
+
+        int mergeCount = 0;
+        int i = 0;
+        while (i < this.microClusters.size()) {
+
+            final MicroCluster m1 = this.microClusters.get(i);
+            MicroCluster m2 = null;
+            for (final MicroCluster peer : this.getPeers(m1)) {
+                if (peer != m1) {
+                    final double squaredDistance = m1.squaredDistance(peer);
+                    if (this.isWithinOwnRadius(m1, squaredDistance) && this.isWithinOwnRadius(peer, squaredDistance)) {
+                        m2 = peer;
+                        break;
+                    }
+                }
+            }
+
+            if (m2 == null) {
+                ++i;
+            } else {
+                // The micro-cluster at i is replaced by the next one, which
+                // moves one slot back if the peer was before it.
+                if (m2.getSlot() < i) {
+                    --i;
+                }
+                this.replaceByMerge(m1, m2);
+                ++mergeCount;
+            }
+        }
+
+        return mergeCount;
+    }
+
+    /**
+     * Merges the closest pairs of peers of each group of peers (micro-clusters
+     * with the same label and category) with more than the given number of
+     * micro-clusters, until the group is within the limit. Only peers can be
+     * merged, so a label split across categories may keep up to the given
+     * number of micro-clusters per category.
+     *
+     * <p>Each micro-cluster of a group keeps its closest peer among the ones
+     * after it in the list, so the closest pair of the group is found by
+     * scanning one candidate per micro-cluster, and the memory used stays
+     * linear in the size of the group. After a merge, only the candidates
+     * that pointed to one of the merged micro-clusters are searched again;
+     * the others are just compared with the new micro-cluster, which is
+     * appended to the end of the list. In case of a tie, the first pair in
+     * list order is chosen.
+     *
+     * @param maxPerGroup the maximum number of micro-clusters of a group of
+     *                    peers.
+     * @return the number of merges.
+     */
+    public int mergePeersDownTo(final int maxPerGroup) {
+
+        // The groups are visited in the order of their first micro-cluster,
+        // as merging appends to the end of the list.
+        final Map<PeerGroupKey, MicroCluster> groups = new LinkedHashMap<>();
+        for (final MicroCluster microCluster : this.microClusters) {
+            final PeerGroupKey key = new PeerGroupKey(microCluster);
+            if (!groups.containsKey(key) && this.peerGroups.get(key).members.size() > maxPerGroup) {
+                groups.put(key, microCluster);
+            }
+        }
+
+        int mergeCount = 0;
+        for (final MicroCluster first : groups.values()) {
+
+            // The candidates follow the order of the micro-clusters in the
+            // list, which is kept by the removals and by the appends.
+            final List<NearestPeer> candidates = new ArrayList<>();
+            for (final MicroCluster microCluster : this.getPeers(first)) {
+                candidates.add(new NearestPeer(microCluster));
+            }
+            for (int i = 0; i < candidates.size(); ++i) {
+                searchNearestPeer(candidates, i);
+            }
+
+            while (candidates.size() > maxPerGroup) {
+
+                int closest = -1;
+                for (int i = 0; i < candidates.size(); ++i) {
+                    final NearestPeer candidate = candidates.get(i);
+                    if (candidate.peer != null && (closest == -1
+                            || candidate.squaredDistance < candidates.get(closest).squaredDistance)) {
+                        closest = i;
+                    }
+                }
+
+                final MicroCluster m1 = candidates.get(closest).microCluster;
+                final MicroCluster m2 = candidates.get(closest).peer;
+                candidates.remove(closest);
+                for (int i = closest; i < candidates.size(); ++i) {
+                    if (candidates.get(i).microCluster == m2) {
+                        candidates.remove(i);
+                        break;
+                    }
+                }
+
+                final MicroCluster merged = this.replaceByMerge(m1, m2);
+                candidates.add(new NearestPeer(merged));
+                for (int i = 0; i < candidates.size() - 1; ++i) {
+                    final NearestPeer candidate = candidates.get(i);
+                    if (candidate.peer == m1 || candidate.peer == m2) {
+                        searchNearestPeer(candidates, i);
+                    } else {
+                        final double squaredDistance = candidate.microCluster.squaredDistance(merged);
+                        if (squaredDistance < candidate.squaredDistance) {
+                            candidate.peer = merged;
+                            candidate.squaredDistance = squaredDistance;
+                        }
+                    }
+                }
+                ++mergeCount;
+            }
+        }
+
+        return mergeCount;
+    }
+
+    private static void searchNearestPeer(final List<NearestPeer> candidates, final int index) {
+
+        final NearestPeer candidate = candidates.get(index);
+        candidate.peer = null;
+        candidate.squaredDistance = Double.MAX_VALUE;
+        for (int i = index + 1; i < candidates.size(); ++i) {
+            final MicroCluster peer = candidates.get(i).microCluster;
+            final double squaredDistance = candidate.microCluster.squaredDistance(peer);
+            if (candidate.peer == null || squaredDistance < candidate.squaredDistance) {
+                candidate.peer = peer;
+                candidate.squaredDistance = squaredDistance;
+            }
+        }
+    }
+
+    private boolean isWithinOwnRadius(final MicroCluster microCluster, final double squaredDistance) {
+        if (this.radiusFunction != null) {
+            return isWithinRadius(microCluster, squaredDistance, this.radiusFunction);
+        }
+        return DistanceKernel.isWithin(squaredDistance, microCluster.calculateStandardDeviation());
+    }
+
+    private MicroCluster replaceByMerge(final MicroCluster m1, final MicroCluster m2) {
+        final MicroCluster merged = MicroCluster.merge(m1, m2);
+        merged.setReactivationCount(Math.max(m1.getReactivationCount(), m2.getReactivationCount()));
+        this.remove(m1);
+        this.remove(m2);
+        this.add(merged);
+        return merged;
+    }
+
+    /**
+     * Estimates the number of bytes of heap retained by the micro-clusters
+     * of this list and by the indexes kept over them, except for the
+     * timestamps of their data instances (see
+     * {@link #estimateTimestampBytes()}). The estimate is computed in
+     * constant time from the number of micro-clusters, so the spare capacity
+     * of the packed matrices isn't counted.
+     *
+     * @return the estimated number of bytes.
+     */
+    public long estimateRetainedBytes() {
+
+        final long dimensions = Math.max(this.dimensions, 0);
+
+        // The linear and squared sums and the centroid of each micro-cluster,
+        // its row of the packed matrix, its squared norm and radii, and its
+        // distances to the pivots.
+        final long row = (this.isSinglePrecision ? 4 : 8) * dimensions + 24
+                + (this.pivotDistances == null ? 0 : 8L * this.pivotCount);
+        return this.microClusters.size() * (MICRO_CLUSTER_FIELDS + 3 * (ARRAY_OVERHEAD + 8 * dimensions) + row);
+    }
+
+    /**
+     * Returns the estimated number of bytes of heap retained by the
+     * timestamps of the data instances of the micro-clusters of this list,
+     * which is kept up to date as they change.
+     *
+     * @return the estimated number of bytes.
+     */
+    public long estimateTimestampBytes() {
+        return timestampBytes;
+    }
+
+    /**
+     * Forgets the timestamps of the data instances of the micro-clusters of
+     * this list. They are only needed to find the members of a micro-cluster
+     * formed from the temporary memory when it is added to the decision
+     * model, so forgetting them doesn't change the results.
+     */
+    public void compactTimestamps() {
+        for (final MicroCluster microCluster : this.microClusters) {
+            microCluster.clearTimestamps();
+        }
+        this.timestampBytes = 0;
+    }
+
+    /**
+     * Updates the bytes retained by the timestamps of the micro-clusters
+     * after those of a micro-cluster have grown.
+     */
+    void onTimestampsResize(final long delta) {
+        this.timestampBytes += delta;
+    }
+
+    /**
+     * Restores the position of a micro-cluster whose timestamp has changed
+     * inside the timestamp heap.
+     */
+    void onTimestampUpdate(final MicroCluster microCluster) {
+        this.timestampHeap.update(microCluster);
+    }
+
+    /**
+     * Invalidates the cached aggregates of the peers of a micro-cluster whose
+     * summary has changed.
+     */
+    void onUpdate(final MicroCluster microCluster) {
+        this.pack(microCluster, microCluster.getSlot());
+        if (this.approximateIndex != null) {
+            this.approximateIndex.update(microCluster);
+        }
+        if (this.shardedIndex != null) {
+            this.shardedIndex.update(microCluster);
+        }
+        this.precomputedClosest.clear();
+        final PeerGroup peerGroup = this.peerGroups.get(new PeerGroupKey(microCluster));
+        if (peerGroup != null) {
+            peerGroup.aggregates.clear();
+        }
+    }
+
+    /**
+     * Moves a block of rows of the packed data, without renumbering the
+     * slots of their micro-clusters.
+     */
+    private void moveRows(final int fromRow, final int toRow, final int count) {
+        if (this.isSinglePrecision) {
+            System.arraycopy(this.singlePrecisionCentroids, fromRow * this.dimensions,
+                    this.singlePrecisionCentroids, toRow * this.dimensions, count * this.dimensions);
+        } else {
+            System.arraycopy(this.centroids, fromRow * this.dimensions, this.centroids, toRow * this.dimensions,
+                    count * this.dimensions);
+        }
+        System.arraycopy(this.squaredNorms, fromRow, this.squaredNorms, toRow, count);
+        if (this.pivots != null) {
+            System.arraycopy(this.pivotDistances, fromRow * this.pivotCount, this.pivotDistances,
+                    toRow * this.pivotCount, count * this.pivotCount);
+        }
+        System.arraycopy(this.radii, fromRow, this.radii, toRow, count);
+        System.arraycopy(this.innerSquaredRadii, fromRow, this.innerSquaredRadii, toRow, count);
+    }
+
+    private void pack(final MicroCluster microCluster, final int slot) {
+
+        final double[] centroid = microCluster.calculateCentroid().getValues();
+        if (this.dimensions == -1) {
+            this.dimensions = centroid.length;
+        }
+
+        final int required = (slot + 1) * this.dimensions;
+        if (this.isSinglePrecision && required > this.singlePrecisionCentroids.length) {
+            this.singlePrecisionCentroids = Arrays.copyOf(this.singlePrecisionCentroids,
+                    Math.max(required, this.singlePrecisionCentroids.length * 2));
+        } else if (!this.isSinglePrecision && required > this.centroids.length) {
+            this.centroids = Arrays.copyOf(this.centroids, Math.max(required, this.centroids.length * 2));
+        }
+        if (slot >= this.radii.length) {
+            this.radii = Arrays.copyOf(this.radii, Math.max(slot + 1, this.radii.length * 2));
+            this.innerSquaredRadii = Arrays.copyOf(this.innerSquaredRadii, this.radii.length);
+            this.squaredNorms = Arrays.copyOf(this.squaredNorms, this.radii.length);
+        }
+
+        if (this.pivots != null) {
+            if ((slot + 1) * this.pivotCount > this.pivotDistances.length) {
+                this.pivotDistances = Arrays.copyOf(this.pivotDistances,
+                        Math.max((slot + 1) * this.pivotCount, this.pivotDistances.length * 2));
+            }
+            for (int p = 0; p < this.pivotCount; ++p) {
+                this.pivotDistances[slot * this.pivotCount + p] = Math.sqrt(DistanceKernel.squaredDistance(
+                        this.pivots, p * this.dimensions, centroid, 0, this.dimensions, Double.POSITIVE_INFINITY));
+            }
+        }
+
+        if (this.isSinglePrecision) {
+            for (int i = 0; i < this.dimensions; ++i) {
+                this.singlePrecisionCentroids[slot * this.dimensions + i] = (float) centroid[i];
+            }
+            this.squaredNorms[slot] = DistanceKernel.squaredNorm(this.singlePrecisionCentroids,
+                    slot * this.dimensions, this.dimensions);
+        } else {
+            System.arraycopy(centroid, 0, this.centroids, slot * this.dimensions, this.dimensions);
+            this.squaredNorms[slot] = DistanceKernel.squaredNorm(this.centroids, slot * this.dimensions,
+                    this.dimensions);
+        }
+        if (this.radiusFunction != null) {
+            this.radii[slot] = this.radiusFunction.calculateRadius(microCluster);
+            this.innerSquaredRadii[slot] = DistanceKernel.calculateInnerSquaredThreshold(this.radii[slot]);
+        }
+        microCluster.setSlot(slot);
+    }
+
+    /**
+     * Searches for the row of the packed centroids, between {@code fromRow}
+     * (inclusive) and {@code toRow} (exclusive), closest to the point. The
+     * double-precision matrix is scanned by the configured backend.
+     */
+    private int calculateClosestRow(final double[] point, final int pointOffset, final int fromRow, final int toRow) {
+
+        if (!this.isSinglePrecision) {
+            return DistanceKernel.getBackend().calculateClosestRow(point, pointOffset, this.centroids, fromRow, toRow,
+                    this.dimensions);
+        }
+
+        int closest = -1;
+        double minDistance = Double.MAX_VALUE;
+        double minSquaredDistance = Double.POSITIVE_INFINITY;
+        for (int row = fromRow; row < toRow; ++row) {
+            final double squaredDistance = DistanceKernel.squaredDistance(point, pointOffset,
+                    this.singlePrecisionCentroids, row * this.dimensions, this.dimensions, minSquaredDistance);
+            if (squaredDistance < minSquaredDistance && Math.sqrt(squaredDistance) < minDistance) {
+                minDistance = Math.sqrt(squaredDistance);
+                minSquaredDistance = squaredDistance;
+                closest = row;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Calculates the squared distance between the point and the centroid
+     * packed in the row.
+     */
+    double squaredDistanceToRow(final double[] x, final int row) {
+        if (this.isSinglePrecision) {
+            return DistanceKernel.squaredDistance(x, 0, this.singlePrecisionCentroids, row * this.dimensions,
+                    this.dimensions, Double.POSITIVE_INFINITY);
+        }
+        return DistanceKernel.squaredDistance(this.centroids, row * this.dimensions, x, 0, this.dimensions,
+                Double.POSITIVE_INFINITY);
+    }
+
+    private double distanceToRow(final double[] points, final int pointOffset, final int row) {
+        if (this.isSinglePrecision) {
+            return Math.sqrt(DistanceKernel.squaredDistance(points, pointOffset, this.singlePrecisionCentroids,
+                    row * this.dimensions, this.dimensions, Double.POSITIVE_INFINITY));
+        }
+        return Math.sqrt(DistanceKernel.squaredDistance(this.centroids, row * this.dimensions, points, pointOffset,
+                this.dimensions, Double.POSITIVE_INFINITY));
+    }
+
+    private int[] getDimensionOrder() {
+
+        if (!this.dimensionOrdering || this.microClusters.isEmpty()) {
+            return null;
+        }
+
+        // The order is only recomputed when micro-clusters are added or
+        // removed, since any order leads to the same results.
+        if (this.dimensionOrder == null || this.dimensionOrderModCount != this.modCount) {
+            this.dimensionOrder = calculateDimensionOrder(this.microClusters);
+            this.dimensionOrderModCount = this.modCount;
+        }
+
+        return this.dimensionOrder;
+    }
+
+    private static int[] calculateDimensionOrder(final List<MicroCluster> microClusters) {
+
+        final int dimensions = microClusters.get(0).calculateCentroid().getLength();
+        final double[] sum = new double[dimensions];
+        final double[] squaredSum = new double[dimensions];
+
+        for (final MicroCluster microCluster : microClusters) {
+            final double[] centroid = microCluster.calculateCentroid().getValues();
+            for (int i = 0; i < dimensions; ++i) {
+                sum[i] += centroid[i];
+                squaredSum[i] += centroid[i] * centroid[i];
+            }
+        }
+
+        final List<Integer> dimensionIndices = new ArrayList<>(dimensions);
+        final double[] variance = new double[dimensions];
+        for (int i = 0; i < dimensions; ++i) {
+            final double mean = sum[i] / microClusters.size();
+            variance[i] = squaredSum[i] / microClusters.size() - mean * mean;
+            dimensionIndices.add(i);
+        }
+
+        Collections.sort(dimensionIndices, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer i1, final Integer i2) {
+                return Double.compare(variance[i2], variance[i1]);
+            }
+        });
+
+        final int[] order = new int[dimensions];
+        for (int i = 0; i < dimensions; ++i) {
+            order[i] = dimensionIndices.get(i);
+        }
+        return order;
+    }
+
+    private void unindex(final MicroCluster microCluster) {
+
+        final PeerGroupKey key = new PeerGroupKey(microCluster);
+        final PeerGroup peerGroup = this.peerGroups.get(key);
+
+        // Removing a peer invalidates every aggregate of the group, since the
+        // sums can't be decremented without changing the summation order.
+        peerGroup.members.remove(microCluster);
+        peerGroup.aggregates.clear();
+        if (peerGroup.members.isEmpty()) {
+            this.peerGroups.remove(key);
+        }
+
+        if (microCluster.getHeapIndex() != -1) {
+            this.timestampHeap.remove(microCluster);
+        }
+        if (this.approximateIndex != null) {
+            this.approximateIndex.delete(microCluster);
+        }
+        if (this.shardedIndex != null) {
+            this.shardedIndex.delete(microCluster);
+        }
+        this.timestampBytes -= microCluster.estimateTimestampBytes();
+        microCluster.setOwner(null);
+    }
+
+    private PeerAggregate updateAggregate(final MicroCluster microCluster) {
+
+        if (microCluster.getOwner() != this) {
+            throw new IllegalArgumentException("The micro-cluster does not belong to this list");
+        }
+
+        final PeerGroup peerGroup = this.peerGroups.get(new PeerGroupKey(microCluster));
+
+        PeerAggregate aggregate = peerGroup.aggregates.get(microCluster);
+        if (aggregate == null) {
+            aggregate = new PeerAggregate();
+            peerGroup.aggregates.put(microCluster, aggregate);
+        }
+
+        // Extends the aggregate with the peers appended since its last update,
+        // following the order of the list.
+        for (int i = aggregate.counted; i < peerGroup.members.size(); ++i) {
+            final double distance = microCluster.distance(peerGroup.members.get(i));
+            aggregate.distanceSum += distance;
+            if (distance > aggregate.maxDistance) {
+                aggregate.maxDistance = distance;
+            }
+        }
+        aggregate.counted = peerGroup.members.size();
+
+        return aggregate;
+    }
+
+    private static final class PeerGroupKey {
+
+        private final String label;
+        private final Category category;
+
+        private PeerGroupKey(final MicroCluster microCluster) {
+            this.label = microCluster.getLabel();
+            this.category = microCluster.getCategory();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final PeerGroupKey key = (PeerGroupKey) o;
+            return Objects.equals(label, key.label) && category == key.category;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(label, category);
+        }
+    }
+
+    private static final class PeerGroup {
+        private final List<MicroCluster> members = new ArrayList<>();
+        private final Map<MicroCluster, PeerAggregate> aggregates = new HashMap<>();
+    }
+
+    private static final class PeerAggregate {
+        private int counted;
+        private double distanceSum;
+        private double maxDistance;
+    }
+
+    private static final class NearestPeer {
+
+        private final MicroCluster microCluster;
+        private MicroCluster peer;
+        private double squaredDistance;
+
+        private NearestPeer(final MicroCluster microCluster) {
+            this.microCluster = microCluster;
+            this.squaredDistance = Double.MAX_VALUE;
+        }
+    }
+
+}
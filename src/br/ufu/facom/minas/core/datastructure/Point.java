@@ -1,20 +1,65 @@
 package br.ufu.facom.minas.core.datastructure;
 
+import br.ufu.facom.minas.core.distance.DistanceKernel;
+
 import java.util.Arrays;
 import java.util.List;
 
 /**
- * Class representing a point.
+ * Class representing a point. The values of a point are stored either in
+ * double precision or, to halve its memory footprint, in single precision
+ * (see {@link #toSinglePrecision()}). Points made mostly of zeros can also be
+ * stored in sparse form, keeping only the indices and the values of their
+ * non-zero elements.
  *
  * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
  * @since 1.0
  */
 public class Point {
 
+    // Exactly one of x, singlePrecisionX and indices is not null. The
+    // non-zero values of a sparse point are kept in nonZeroValues.
     private final double[] x;
+    private final float[] singlePrecisionX;
+    private final int[] indices;
+    private final double[] nonZeroValues;
+    private final int length;
 
     public Point(final double[] x) {
         this.x = x;
+        this.singlePrecisionX = null;
+        this.indices = null;
+        this.nonZeroValues = null;
+        this.length = x.length;
+    }
+
+    public Point(final float[] x) {
+        this.x = null;
+        this.singlePrecisionX = x;
+        this.indices = null;
+        this.nonZeroValues = null;
+        this.length = x.length;
+    }
+
+    /**
+     * Creates a sparse point. The arrays are not copied.
+     *
+     * @param length the number of dimensions of the point.
+     * @param indices the indices of the non-zero values, in increasing order.
+     * @param values the non-zero values.
+     * @throws IllegalArgumentException if the arrays have different lengths.
+     */
+    public Point(final int length, final int[] indices, final double[] values) {
+
+        if (indices.length != values.length) {
+            throw new IllegalArgumentException("The indices and the values must have the same length");
+        }
+
+        this.x = null;
+        this.singlePrecisionX = null;
+        this.indices = indices;
+        this.nonZeroValues = values;
+        this.length = length;
     }
 
     @Override
@@ -22,12 +67,15 @@ public class Point {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         final Point point = (Point) o;
-        return Arrays.equals(x, point.x);
+        if (x != null && point.x != null) {
+            return Arrays.equals(x, point.x);
+        }
+        return Arrays.equals(getValues(), point.getValues());
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(x);
+        return Arrays.hashCode(getValues());
     }
 
     public static Point calculateCentroid(final List<? extends Point> points) {
@@ -57,21 +105,67 @@ public class Point {
     }
 
     public double distance(final Point point) {
+        return Math.sqrt(this.squaredDistance(point));
+    }
+
+    public double squaredDistance(final Point point) {
+        if (this.x != null && point.x != null) {
+            return DistanceKernel.squaredDistance(this.x, point.x);
+        }
+        return squaredDistance(this, point, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Calculates the squared distance between two points of any precision or
+     * form, stopping as soon as the partial sum exceeds {@code bound}.
+     */
+    private static double squaredDistance(final Point p1, final Point p2, final double bound) {
+        if (p1.indices != null && p2.indices != null) {
+            return DistanceKernel.squaredDistance(p1.indices, p1.nonZeroValues, p2.indices, p2.nonZeroValues);
+        } else if (p1.indices != null || p2.indices != null) {
+            return p1.indices != null ? squaredDistanceToSparse(p1, p2) : squaredDistanceToSparse(p2, p1);
+        } else if (p1.x != null && p2.x != null) {
+            return DistanceKernel.squaredDistance(p1.x, p2.x, bound);
+        } else if (p1.x != null) {
+            return DistanceKernel.squaredDistance(p1.x, 0, p2.singlePrecisionX, 0, p1.x.length, bound);
+        } else if (p2.x != null) {
+            return DistanceKernel.squaredDistance(p2.x, 0, p1.singlePrecisionX, 0, p2.x.length, bound);
+        } else {
+            return DistanceKernel.squaredDistance(p1.singlePrecisionX, p2.singlePrecisionX, bound);
+        }
+    }
+
+    /**
+     * Calculates the squared distance between a sparse point and a dense
+     * point, visiting every dimension so that the result does not carry the
+     * error of the expansion used by the sparse kernels.
+     */
+    private static double squaredDistanceToSparse(final Point sparse, final Point dense) {
         double sum = 0;
-        for (int i = 0; i < this.x.length; ++i) {
-            sum += (this.x[i] - point.get(i)) * (this.x[i] - point.get(i));
+        int k = 0;
+        for (int i = 0; i < dense.length; ++i) {
+            double difference = -dense.get(i);
+            if (k < sparse.indices.length && sparse.indices[k] == i) {
+                difference += sparse.nonZeroValues[k++];
+            }
+            sum += difference * difference;
         }
-        return Math.sqrt(sum);
+        return sum;
     }
 
     public Point calculateClosestPoint(final List<Point> points) {
 
+        // The squared distances are used to prune the candidates, but the
+        // closest point is still decided by the distance itself, so that ties
+        // are resolved exactly as before.
         Point closest = null;
         double minDistance = Double.MAX_VALUE;
+        double minSquaredDistance = Double.POSITIVE_INFINITY;
         for (final Point point : points) {
-            final double distance = point.distance(this);
-            if (distance < minDistance) {
-                minDistance = distance;
+            final double squaredDistance = squaredDistance(point, this, minSquaredDistance);
+            if (squaredDistance < minSquaredDistance && Math.sqrt(squaredDistance) < minDistance) {
+                minDistance = Math.sqrt(squaredDistance);
+                minSquaredDistance = squaredDistance;
                 closest = point;
             }
         }
@@ -79,10 +173,90 @@ public class Point {
     }
 
     public int getLength() {
-        return this.x.length;
+        return this.length;
     }
 
     public double get(final int i) {
-        return x[i];
+        if (this.x != null) {
+            return this.x[i];
+        } else if (this.singlePrecisionX != null) {
+            return this.singlePrecisionX[i];
+        }
+        final int k = Arrays.binarySearch(this.indices, i);
+        return k < 0 ? 0 : this.nonZeroValues[k];
+    }
+
+    /**
+     * Returns the array backing this point. The array is not copied, so it
+     * must not be modified. If the point is stored in single precision or in
+     * sparse form, a new dense array is returned instead.
+     *
+     * @return the values of the point.
+     */
+    public double[] getValues() {
+        if (this.x != null) {
+            return this.x;
+        }
+        final double[] values = new double[this.length];
+        if (this.singlePrecisionX != null) {
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = this.singlePrecisionX[i];
+            }
+        } else {
+            for (int k = 0; k < this.indices.length; ++k) {
+                values[this.indices[k]] = this.nonZeroValues[k];
+            }
+        }
+        return values;
+    }
+
+    public boolean isSinglePrecision() {
+        return this.singlePrecisionX != null;
+    }
+
+    public boolean isSparse() {
+        return this.indices != null;
+    }
+
+    /**
+     * Returns the indices of the non-zero values of a sparse point. The
+     * array is not copied, so it must not be modified.
+     *
+     * @return the indices of the non-zero values, or {@code null} if the
+     * point is not sparse.
+     */
+    public int[] getIndices() {
+        return this.indices;
+    }
+
+    /**
+     * Returns the non-zero values of a sparse point, following the order of
+     * {@link #getIndices()}. The array is not copied, so it must not be
+     * modified.
+     *
+     * @return the non-zero values, or {@code null} if the point is not
+     * sparse.
+     */
+    public double[] getNonZeroValues() {
+        return this.nonZeroValues;
+    }
+
+    /**
+     * Returns a copy of this point stored in single precision, or this point
+     * itself if it is already stored in single precision. Sparse points are
+     * already compact and are also returned as they are.
+     *
+     * @return the point stored in single precision.
+     */
+    public Point toSinglePrecision() {
+        return this.x == null ? this : new Point(toFloatArray(this.x));
+    }
+
+    static float[] toFloatArray(final double[] x) {
+        final float[] values = new float[x.length];
+        for (int i = 0; i < x.length; ++i) {
+            values[i] = (float) x[i];
+        }
+        return values;
     }
 }
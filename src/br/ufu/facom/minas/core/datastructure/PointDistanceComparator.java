@@ -25,8 +25,8 @@ public class PointDistanceComparator implements Comparator<Point> {
      */
     @Override
     public int compare(final Point p1, final Point p2) {
-        final double d1 = p1.distance(this.target);
-        final double d2 = p2.distance(this.target);
+        final double d1 = p1.squaredDistance(this.target);
+        final double d2 = p2.squaredDistance(this.target);
         return Double.compare(d1, d2);
     }
 
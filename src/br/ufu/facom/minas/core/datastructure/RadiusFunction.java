@@ -0,0 +1,15 @@
+package br.ufu.facom.minas.core.datastructure;
+
+/**
+ * This interface represents a radius that depends only on the summary of a
+ * micro-cluster, such as the thresholds used by some decision rules. Since
+ * such a radius only changes when the summary of the micro-cluster changes,
+ * a {@link MicroClusterList} can precompute it for each of its elements (see
+ * {@link MicroClusterList#setRadiusFunction(RadiusFunction)}).
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public interface RadiusFunction {
+    double calculateRadius(final MicroCluster microCluster);
+}
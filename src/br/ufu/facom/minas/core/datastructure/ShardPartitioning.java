@@ -0,0 +1,29 @@
+package br.ufu.facom.minas.core.datastructure;
+
+/**
+ * Strategies to assign the micro-clusters of a sharded
+ * {@link MicroClusterList} to the shards (see
+ * {@link MicroClusterList#setShards(java.util.List, ShardPartitioning)}).
+ * The strategy only affects how the micro-clusters are balanced among the
+ * shards, not the results of the searches.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public enum ShardPartitioning {
+
+    /**
+     * The micro-clusters are assigned to the shards in turns, in the order
+     * they are added to the list.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Each shard takes as reference the centroid of the first micro-cluster
+     * assigned to it, and every later micro-cluster is assigned to the shard
+     * whose reference is the closest to its centroid, so that each shard
+     * holds a region of the space.
+     */
+    CENTROID_SPACE
+
+}
@@ -0,0 +1,278 @@
+package br.ufu.facom.minas.core.datastructure;
+
+import br.ufu.facom.minas.core.distance.DistanceKernel;
+import br.ufu.facom.minas.core.shard.ShardProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Centroids of the micro-clusters of a {@link MicroClusterList} partitioned
+ * across several {@link br.ufu.facom.minas.core.shard.ShardServer}
+ * processes. Each nearest micro-cluster search is sent to every shard, and
+ * the closest of the answers is chosen.
+ *
+ * <p>Each micro-cluster receives an id when it is inserted, in increasing
+ * order, so that the ids follow the order of the list. Since every shard
+ * keeps its centroids in the order of their ids and breaks ties by the
+ * smallest one, choosing the smallest distance and, among equal distances,
+ * the smallest id gives the same result as scanning the whole list.
+ *
+ * <p>The changes are buffered and only sent along with the next search, so
+ * that the updates of the micro-clusters don't wait for the shards. A search
+ * is sent to every shard before any answer is read, so the shards work in
+ * parallel.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+final class ShardedIndex {
+
+    private final List<Socket> sockets;
+    private final List<DataOutputStream> outputs;
+    private final List<DataInputStream> inputs;
+    private final ShardPartitioning partitioning;
+
+    private final Map<MicroCluster, Integer> ids;
+    private final Map<MicroCluster, Integer> shardOf;
+    private final Map<Integer, MicroCluster> microClustersById;
+    private final List<double[]> references;
+    private int nextId;
+    private int nextShard;
+    private int dimensions;
+
+    ShardedIndex(final List<InetSocketAddress> addresses, final ShardPartitioning partitioning) throws IOException {
+
+        this.sockets = new ArrayList<>();
+        this.outputs = new ArrayList<>();
+        this.inputs = new ArrayList<>();
+        this.partitioning = partitioning;
+        this.ids = new IdentityHashMap<>();
+        this.shardOf = new IdentityHashMap<>();
+        this.microClustersById = new HashMap<>();
+        this.references = new ArrayList<>();
+        this.dimensions = -1;
+
+        try {
+            for (final InetSocketAddress address : addresses) {
+                final Socket socket = new Socket(address.getAddress(), address.getPort());
+                this.sockets.add(socket);
+                socket.setTcpNoDelay(true);
+                this.outputs.add(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+                this.inputs.add(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+            }
+        } catch (final IOException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    int getShardCount() {
+        return this.sockets.size();
+    }
+
+    void insert(final MicroCluster microCluster) {
+
+        final double[] centroid = microCluster.calculateCentroid().getValues();
+        if (this.dimensions == -1) {
+            this.dimensions = centroid.length;
+        }
+
+        final int id = this.nextId++;
+        final int shard = this.chooseShard(centroid);
+        this.ids.put(microCluster, id);
+        this.shardOf.put(microCluster, shard);
+        this.microClustersById.put(id, microCluster);
+
+        try {
+            final DataOutputStream out = this.outputs.get(shard);
+            out.writeByte(ShardProtocol.ADD);
+            out.writeInt(id);
+            out.writeInt(this.dimensions);
+            writeValues(out, centroid);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not send the micro-cluster to shard " + shard, e);
+        }
+    }
+
+    void update(final MicroCluster microCluster) {
+
+        final int shard = this.shardOf.get(microCluster);
+
+        try {
+            final DataOutputStream out = this.outputs.get(shard);
+            out.writeByte(ShardProtocol.UPDATE);
+            out.writeInt(this.ids.get(microCluster));
+            writeValues(out, microCluster.calculateCentroid().getValues());
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not send the micro-cluster to shard " + shard, e);
+        }
+    }
+
+    void delete(final MicroCluster microCluster) {
+
+        final int shard = this.shardOf.remove(microCluster);
+        final int id = this.ids.remove(microCluster);
+        this.microClustersById.remove(id);
+
+        try {
+            final DataOutputStream out = this.outputs.get(shard);
+            out.writeByte(ShardProtocol.REMOVE);
+            out.writeInt(id);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not remove the micro-cluster from shard " + shard, e);
+        }
+    }
+
+    void clear() {
+
+        this.ids.clear();
+        this.shardOf.clear();
+        this.microClustersById.clear();
+
+        for (int shard = 0; shard < this.outputs.size(); ++shard) {
+            try {
+                this.outputs.get(shard).writeByte(ShardProtocol.CLEAR);
+            } catch (final IOException e) {
+                throw new IllegalStateException("Could not clear shard " + shard, e);
+            }
+        }
+    }
+
+    /**
+     * Searches for the micro-cluster closest to the point.
+     *
+     * @param x the values of the point.
+     * @return the closest micro-cluster, or {@code null} if there is none.
+     */
+    MicroCluster search(final double[] x) {
+        return this.search(x, 1)[0];
+    }
+
+    /**
+     * Searches for the micro-cluster closest to each point of a batch, in a
+     * single round trip to each shard.
+     *
+     * @param packedPoints the values of the points, packed in a row-major
+     *                     matrix.
+     * @param count the number of points.
+     * @return the closest micro-cluster of each point, or {@code null} if
+     * there is none.
+     */
+    MicroCluster[] search(final double[] packedPoints, final int count) {
+
+        final MicroCluster[] closest = new MicroCluster[count];
+        if (this.microClustersById.isEmpty()) {
+            return closest;
+        }
+
+        for (int shard = 0; shard < this.outputs.size(); ++shard) {
+            try {
+                final DataOutputStream out = this.outputs.get(shard);
+                out.writeByte(ShardProtocol.QUERY);
+                out.writeInt(count);
+                out.writeInt(this.dimensions);
+                for (int i = 0; i < count * this.dimensions; ++i) {
+                    out.writeDouble(packedPoints[i]);
+                }
+                out.flush();
+            } catch (final IOException e) {
+                throw new IllegalStateException("Could not send the search to shard " + shard, e);
+            }
+        }
+
+        final int[] closestIds = new int[count];
+        final double[] minDistances = new double[count];
+        for (int i = 0; i < count; ++i) {
+            closestIds[i] = -1;
+            minDistances[i] = Double.MAX_VALUE;
+        }
+
+        for (int shard = 0; shard < this.inputs.size(); ++shard) {
+            try {
+                final DataInputStream in = this.inputs.get(shard);
+                for (int i = 0; i < count; ++i) {
+                    final int id = in.readInt();
+                    final double distance = Math.sqrt(in.readDouble());
+                    if (id != -1 && (closestIds[i] == -1 || distance < minDistances[i]
+                            || (distance == minDistances[i] && id < closestIds[i]))) {
+                        closestIds[i] = id;
+                        minDistances[i] = distance;
+                    }
+                }
+            } catch (final IOException e) {
+                throw new IllegalStateException("Could not read the answer of shard " + shard, e);
+            }
+        }
+
+        for (int i = 0; i < count; ++i) {
+            closest[i] = closestIds[i] == -1 ? null : this.microClustersById.get(closestIds[i]);
+        }
+        return closest;
+    }
+
+    /**
+     * Returns the number of micro-clusters assigned to each shard.
+     *
+     * @return the number of micro-clusters of each shard.
+     */
+    int[] getShardSizes() {
+        final int[] sizes = new int[this.sockets.size()];
+        for (final int shard : this.shardOf.values()) {
+            ++sizes[shard];
+        }
+        return sizes;
+    }
+
+    void close() {
+        for (final Socket socket : this.sockets) {
+            try {
+                socket.close();
+            } catch (final IOException ignored) {
+                // The shard keeps no state for a closed connection.
+            }
+        }
+    }
+
+    private int chooseShard(final double[] centroid) {
+
+        if (this.partitioning == ShardPartitioning.ROUND_ROBIN) {
+            final int shard = this.nextShard;
+            this.nextShard = (this.nextShard + 1) % this.sockets.size();
+            return shard;
+        }
+
+        if (this.references.size() < this.sockets.size()) {
+            this.references.add(centroid.clone());
+            return this.references.size() - 1;
+        }
+
+        int closest = 0;
+        double minSquaredDistance = Double.POSITIVE_INFINITY;
+        for (int shard = 0; shard < this.references.size(); ++shard) {
+            final double squaredDistance = DistanceKernel.squaredDistance(this.references.get(shard), 0, centroid,
+                    0, this.dimensions, minSquaredDistance);
+            if (squaredDistance < minSquaredDistance) {
+                minSquaredDistance = squaredDistance;
+                closest = shard;
+            }
+        }
+        return closest;
+    }
+
+    private static void writeValues(final DataOutputStream out, final double[] values) throws IOException {
+        for (final double value : values) {
+            out.writeDouble(value);
+        }
+    }
+}
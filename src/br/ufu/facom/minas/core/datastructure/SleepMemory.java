@@ -0,0 +1,276 @@
+package br.ufu.facom.minas.core.datastructure;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The sleep memory of a MINAS model, holding the micro-clusters removed from
+ * the decision model for being inactive. The micro-clusters are kept in a
+ * {@link MicroClusterList}, which is the list searched by the decision rules,
+ * and the reactivated ones are removed from it through their slots.
+ *
+ * <p>The number of micro-clusters kept in memory can be bounded (see
+ * {@link #setCapacity(int)}). When the capacity is exceeded, the
+ * micro-clusters that were reactivated the fewest times are evicted first,
+ * the oldest-slept first among those with the same count. The evicted
+ * micro-clusters are discarded, unless a spill file is set (see
+ * {@link #setSpillFile(File)}), in which case they are moved to a
+ * memory-mapped on-disk tier. Before a micro-cluster is classified against
+ * the sleep memory, the on-disk micro-cluster closest to it is brought back
+ * to memory if it is closer than all the ones already there (see
+ * {@link #loadClosestMicroCluster(Point)}).
+ *
+ * <p>The micro-clusters held in memory are searched through their packed
+ * centroids, which can be pruned with a pivot table (see
+ * {@link #setPivotCount(int)}). The approximate index of
+ * {@link MicroClusterList} is not used, since the novelty detection needs the
+ * exact closest micro-cluster. The on-disk tier has no index: every record is
+ * scanned, although each one is abandoned as soon as it is farther than the
+ * closest micro-cluster found so far.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class SleepMemory {
+
+    /**
+     * Eviction order: the fewest reactivations first and, since the list is
+     * ordered by the time the micro-clusters were put to sleep, the smallest
+     * slot among equal counts. Removing micro-clusters from the list shifts
+     * the slots of the following ones without changing their relative order,
+     * so the order of the set stays valid.
+     */
+    private static final Comparator<MicroCluster> EVICTION_ORDER = new Comparator<MicroCluster>() {
+        @Override
+        public int compare(final MicroCluster m1, final MicroCluster m2) {
+            final int comparison = Integer.compare(m1.getReactivationCount(), m2.getReactivationCount());
+            return comparison != 0 ? comparison : Integer.compare(m1.getSlot(), m2.getSlot());
+        }
+    };
+
+    private final MicroClusterList microClusters;
+    private final TreeSet<MicroCluster> evictionQueue;
+    private int capacity;
+    private SleepMemoryDiskTier diskTier;
+
+    public SleepMemory() {
+        this.microClusters = new MicroClusterList();
+        this.evictionQueue = new TreeSet<>(EVICTION_ORDER);
+        this.capacity = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the micro-clusters held in memory, which are the ones searched
+     * by the decision rules. The list should not be modified directly.
+     *
+     * @return the micro-clusters held in memory.
+     */
+    public MicroClusterList getMicroClusters() {
+        return microClusters;
+    }
+
+    /**
+     * Returns the number of micro-clusters in the sleep memory, including
+     * the ones spilled to disk.
+     *
+     * @return the number of micro-clusters.
+     */
+    public int size() {
+        return this.microClusters.size() + (this.diskTier == null ? 0 : this.diskTier.size());
+    }
+
+    /**
+     * Returns the number of micro-clusters spilled to disk.
+     *
+     * @return the number of micro-clusters spilled to disk.
+     */
+    public int getSpilledCount() {
+        return this.diskTier == null ? 0 : this.diskTier.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the maximum number of micro-clusters held in memory, evicting the
+     * exceeding ones right away.
+     *
+     * @param capacity the maximum number of micro-clusters held in memory.
+     * @throws IllegalArgumentException if the capacity is negative.
+     */
+    public void setCapacity(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity must be non-negative");
+        }
+        this.capacity = capacity;
+        this.evict(this.microClusters.size() - this.capacity);
+    }
+
+    /**
+     * Sets the file used by the on-disk tier, which receives the
+     * micro-clusters evicted from memory. The file is overwritten.
+     *
+     * @param file the file, or {@code null} to discard the evicted
+     *             micro-clusters.
+     * @throws IOException if the file could not be opened, or the current
+     * file could not be closed.
+     * @throws IllegalStateException if there are micro-clusters spilled to
+     * the current file.
+     */
+    public void setSpillFile(final File file) throws IOException {
+
+        if (this.diskTier != null) {
+            if (this.diskTier.size() > 0) {
+                throw new IllegalStateException("The sleep memory has micro-clusters spilled to disk");
+            }
+            this.diskTier.close();
+            this.diskTier = null;
+        }
+
+        if (file != null) {
+            this.diskTier = new SleepMemoryDiskTier(file);
+        }
+    }
+
+    /**
+     * Releases the spill file, discarding the micro-clusters spilled to it.
+     *
+     * @throws IOException if the file could not be closed.
+     */
+    public void close() throws IOException {
+        if (this.diskTier != null) {
+            this.diskTier.close();
+            this.diskTier = null;
+        }
+    }
+
+    /**
+     * Puts the micro-clusters to sleep, evicting the exceeding ones if the
+     * capacity is exceeded.
+     *
+     * @param microClusters the micro-clusters.
+     */
+    public void addAll(final Collection<MicroCluster> microClusters) {
+        this.microClusters.addAll(microClusters);
+        this.evictionQueue.addAll(microClusters);
+        this.evict(this.microClusters.size() - this.capacity);
+    }
+
+    /**
+     * Removes a micro-cluster from the sleep memory so that it can be added
+     * back to the decision model.
+     *
+     * @param microCluster the micro-cluster, which must be held in memory.
+     * @throws IllegalArgumentException if the micro-cluster is not held in
+     * memory.
+     */
+    public void reactivate(final MicroCluster microCluster) {
+        if (microCluster.getOwner() != this.microClusters) {
+            throw new IllegalArgumentException("The micro-cluster is not in the sleep memory");
+        }
+        this.evictionQueue.remove(microCluster);
+        this.microClusters.remove(microCluster);
+        microCluster.setReactivationCount(microCluster.getReactivationCount() + 1);
+    }
+
+    /**
+     * Brings back to memory the on-disk micro-cluster whose centroid is the
+     * closest to the point, if it is strictly closer than the centroids of
+     * all the micro-clusters held in memory. After this method returns, the
+     * closest micro-cluster of the whole sleep memory is held in memory.
+     *
+     * @param point the point.
+     * @return the micro-cluster brought back to memory, or {@code null} if
+     * none was.
+     */
+    public MicroCluster loadClosestMicroCluster(final Point point) {
+
+        if (this.diskTier == null || this.diskTier.size() == 0) {
+            return null;
+        }
+
+        final MicroCluster closestInMemory = this.microClusters.calculateClosestMicroCluster(point);
+        final double bound = closestInMemory == null
+                ? Double.POSITIVE_INFINITY
+                : closestInMemory.squaredDistance(point);
+
+        final int record = this.diskTier.calculateClosestRecord(point, bound);
+        if (record == -1) {
+            return null;
+        }
+
+        final MicroCluster microCluster = this.diskTier.remove(record);
+        this.microClusters.add(microCluster);
+        // The micro-cluster brought back is only queued for eviction after
+        // the exceeding ones are evicted, so that it stays in memory.
+        this.evict(this.microClusters.size() - this.capacity);
+        this.evictionQueue.add(microCluster);
+        return microCluster;
+    }
+
+    /**
+     * Estimates the number of bytes of heap retained by the micro-clusters
+     * held in memory, except for the timestamps of their data instances, and
+     * by the labels of the ones spilled to disk.
+     *
+     * @return the estimated number of bytes.
+     */
+    public long estimateRetainedBytes() {
+        return this.microClusters.estimateRetainedBytes() + 16L * this.getSpilledCount();
+    }
+
+    public void setDimensionOrdering(final boolean dimensionOrdering) {
+        this.microClusters.setDimensionOrdering(dimensionOrdering);
+    }
+
+    public void setRadiusFunction(final RadiusFunction radiusFunction) {
+        this.microClusters.setRadiusFunction(radiusFunction);
+    }
+
+    public void setSinglePrecision(final boolean isSinglePrecision) {
+        this.microClusters.setSinglePrecision(isSinglePrecision);
+    }
+
+    /**
+     * Sets the number of pivots used to prune the nearest micro-cluster
+     * searches over the micro-clusters held in memory (see
+     * {@link MicroClusterList#setPivotCount(int)}). The on-disk tier is not
+     * affected.
+     *
+     * @param pivotCount the number of pivots, or zero to scan every
+     *                   micro-cluster.
+     */
+    public void setPivotCount(final int pivotCount) {
+        this.microClusters.setPivotCount(pivotCount);
+    }
+
+    /**
+     * Evicts micro-clusters from memory, in the same order as when the
+     * capacity is exceeded, spilling them to disk if a spill file is set.
+     *
+     * @param count the number of micro-clusters to be evicted.
+     * @return the number of micro-clusters evicted, which is smaller than
+     * {@code count} if there weren't enough micro-clusters in memory.
+     */
+    public int evict(final int count) {
+
+        if (count <= 0) {
+            return 0;
+        }
+
+        final List<MicroCluster> evicted = new ArrayList<>(Math.min(count, this.evictionQueue.size()));
+        while (evicted.size() < count && !this.evictionQueue.isEmpty()) {
+            evicted.add(this.evictionQueue.pollFirst());
+        }
+
+        if (this.diskTier != null) {
+            for (final MicroCluster microCluster : evicted) {
+                this.diskTier.add(microCluster);
+            }
+        }
+        this.microClusters.removeAll(evicted);
+        return evicted.size();
+    }
+}
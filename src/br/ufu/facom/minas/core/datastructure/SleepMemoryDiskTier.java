@@ -0,0 +1,207 @@
+package br.ufu.facom.minas.core.datastructure;
+
+import br.ufu.facom.minas.core.distance.DistanceKernel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * On-disk tier of the {@link SleepMemory}. The summaries of the spilled
+ * micro-clusters are stored in fixed-size records of a memory-mapped file,
+ * so that they can still be searched for the closest centroid without being
+ * loaded back into the heap. Each record holds the number of instances, the
+ * timestamp, the centroid, the linear sum and the squared sum of a
+ * micro-cluster. The labels, categories and reactivation counts, which are
+ * small, are kept in memory.
+ *
+ * <p>The file is mapped in segments of {@value #RECORDS_PER_SEGMENT} records,
+ * and the records freed by the micro-clusters loaded back are reused. The
+ * record size is fixed by the dimensionality of the first micro-cluster
+ * stored.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+final class SleepMemoryDiskTier {
+
+    private static final int RECORDS_PER_SEGMENT = 1024;
+
+    // Number of doubles preceding the centroid: n and timestamp, whose bits
+    // are stored as they are, so that any long fits.
+    private static final int HEADER_SIZE = 2;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final List<DoubleBuffer> segments;
+    private int dimensions;
+    private int recordSize;
+    private double[] scratch;
+
+    private String[] labels;
+    private Category[] categories;
+    private int[] reactivationCounts;
+    private int[] freeRecords;
+    private int freeCount;
+    private int recordCount;
+    private int size;
+
+    SleepMemoryDiskTier(final File file) throws IOException {
+        this.file = file;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.randomAccessFile.setLength(0);
+        this.channel = this.randomAccessFile.getChannel();
+        this.segments = new ArrayList<>();
+        this.dimensions = -1;
+        this.labels = new String[0];
+        this.categories = new Category[0];
+        this.reactivationCounts = new int[0];
+        this.freeRecords = new int[0];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Writes the summary of the micro-cluster to a free record.
+     *
+     * @param microCluster the micro-cluster to be stored.
+     */
+    void add(final MicroCluster microCluster) {
+
+        if (this.dimensions == -1) {
+            this.dimensions = microCluster.getLs().length;
+            this.recordSize = HEADER_SIZE + 3 * this.dimensions;
+            this.scratch = new double[this.dimensions];
+        }
+
+        final int record;
+        if (this.freeCount > 0) {
+            record = this.freeRecords[--this.freeCount];
+        } else {
+            record = this.recordCount++;
+            if (record == this.labels.length) {
+                this.grow();
+            }
+        }
+
+        final DoubleBuffer segment = this.segments.get(record / RECORDS_PER_SEGMENT);
+        segment.position((record % RECORDS_PER_SEGMENT) * this.recordSize);
+        segment.put(microCluster.getN());
+        segment.put(Double.longBitsToDouble(microCluster.getTimestamp()));
+        segment.put(microCluster.calculateCentroid().getValues());
+        segment.put(microCluster.getLs());
+        segment.put(microCluster.getSs());
+
+        this.labels[record] = microCluster.getLabel();
+        this.categories[record] = microCluster.getCategory();
+        this.reactivationCounts[record] = microCluster.getReactivationCount();
+        ++this.size;
+    }
+
+    /**
+     * Searches for the stored micro-cluster whose centroid is the closest to
+     * the point.
+     *
+     * @param point the point.
+     * @param bound the squared distance beyond which the records are
+     *              abandoned.
+     * @return the record of the closest micro-cluster, or {@code -1} if no
+     * record is closer than the bound.
+     */
+    int calculateClosestRecord(final Point point, final double bound) {
+
+        final double[] x = point.getValues();
+        double minSquaredDistance = bound;
+        int closest = -1;
+
+        for (int record = 0; record < this.recordCount; ++record) {
+            if (this.categories[record] == null) {
+                continue;
+            }
+            final DoubleBuffer segment = this.segments.get(record / RECORDS_PER_SEGMENT);
+            segment.position((record % RECORDS_PER_SEGMENT) * this.recordSize + HEADER_SIZE);
+            segment.get(this.scratch);
+            final double squaredDistance = DistanceKernel.squaredDistance(x, this.scratch, minSquaredDistance);
+            if (squaredDistance < minSquaredDistance) {
+                minSquaredDistance = squaredDistance;
+                closest = record;
+            }
+        }
+
+        return closest;
+    }
+
+    /**
+     * Loads the micro-cluster stored in the record back into the heap and
+     * frees the record.
+     *
+     * @param record the record.
+     * @return the micro-cluster.
+     */
+    MicroCluster remove(final int record) {
+
+        final DoubleBuffer segment = this.segments.get(record / RECORDS_PER_SEGMENT);
+        segment.position((record % RECORDS_PER_SEGMENT) * this.recordSize);
+        final int n = (int) segment.get();
+        final long timestamp = Double.doubleToRawLongBits(segment.get());
+        segment.position(segment.position() + this.dimensions);
+        final double[] ls = new double[this.dimensions];
+        final double[] ss = new double[this.dimensions];
+        segment.get(ls);
+        segment.get(ss);
+
+        final MicroCluster microCluster = new MicroCluster(timestamp, this.labels[record], this.categories[record],
+                n, ls, ss);
+        microCluster.setReactivationCount(this.reactivationCounts[record]);
+
+        this.labels[record] = null;
+        this.categories[record] = null;
+        if (this.freeCount == this.freeRecords.length) {
+            this.freeRecords = Arrays.copyOf(this.freeRecords, Math.max(16, this.freeRecords.length * 2));
+        }
+        this.freeRecords[this.freeCount++] = record;
+        --this.size;
+
+        return microCluster;
+    }
+
+    /**
+     * Releases the file. The mapped segments remain valid until they are
+     * garbage collected, so the file is only deleted on exit.
+     *
+     * @throws IOException if the file could not be closed.
+     */
+    void close() throws IOException {
+        this.segments.clear();
+        this.channel.close();
+        this.randomAccessFile.close();
+        this.file.deleteOnExit();
+    }
+
+    private void grow() {
+
+        final long segmentBytes = (long) RECORDS_PER_SEGMENT * this.recordSize * Double.SIZE / Byte.SIZE;
+        try {
+            final MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_WRITE,
+                    this.segments.size() * segmentBytes, segmentBytes);
+            this.segments.add(buffer.order(ByteOrder.nativeOrder()).asDoubleBuffer());
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not extend the sleep memory file " + this.file, e);
+        }
+
+        final int capacity = this.segments.size() * RECORDS_PER_SEGMENT;
+        this.labels = Arrays.copyOf(this.labels, capacity);
+        this.categories = Arrays.copyOf(this.categories, capacity);
+        this.reactivationCounts = Arrays.copyOf(this.reactivationCounts, capacity);
+    }
+}
@@ -0,0 +1,121 @@
+package br.ufu.facom.minas.core.datastructure;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of micro-clusters keyed by their timestamps. Each
+ * micro-cluster stores its position inside the heap, so that it can be
+ * removed, or repositioned after its timestamp changes, in logarithmic time.
+ * A micro-cluster can belong to a single heap at a time.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+final class TimestampHeap {
+
+    private MicroCluster[] heap;
+    private int size;
+
+    TimestampHeap() {
+        this.heap = new MicroCluster[16];
+        this.size = 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the micro-cluster with the smallest timestamp, without removing
+     * it.
+     *
+     * @return the micro-cluster with the smallest timestamp, or {@code null}
+     * if the heap is empty.
+     */
+    MicroCluster peek() {
+        return this.size == 0 ? null : this.heap[0];
+    }
+
+    void add(final MicroCluster microCluster) {
+        if (this.size == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, this.heap.length * 2);
+        }
+        this.heap[this.size] = microCluster;
+        microCluster.setHeapIndex(this.size);
+        ++this.size;
+        this.siftUp(this.size - 1);
+    }
+
+    void remove(final MicroCluster microCluster) {
+
+        final int index = microCluster.getHeapIndex();
+        --this.size;
+
+        if (index != this.size) {
+            this.heap[index] = this.heap[this.size];
+            this.heap[index].setHeapIndex(index);
+            this.heap[this.size] = null;
+            this.update(this.heap[index]);
+        } else {
+            this.heap[this.size] = null;
+        }
+
+        microCluster.setHeapIndex(-1);
+    }
+
+    /**
+     * Restores the heap order after the timestamp of the micro-cluster has
+     * changed.
+     *
+     * @param microCluster the micro-cluster.
+     */
+    void update(final MicroCluster microCluster) {
+        final int index = microCluster.getHeapIndex();
+        if (index > 0 && this.heap[(index - 1) / 2].getTimestamp() > microCluster.getTimestamp()) {
+            this.siftUp(index);
+        } else {
+            this.siftDown(index);
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < this.size; ++i) {
+            this.heap[i].setHeapIndex(-1);
+            this.heap[i] = null;
+        }
+        this.size = 0;
+    }
+
+    private void siftUp(int index) {
+        final MicroCluster microCluster = this.heap[index];
+        while (index > 0) {
+            final int parent = (index - 1) / 2;
+            if (this.heap[parent].getTimestamp() <= microCluster.getTimestamp()) {
+                break;
+            }
+            this.heap[index] = this.heap[parent];
+            this.heap[index].setHeapIndex(index);
+            index = parent;
+        }
+        this.heap[index] = microCluster;
+        microCluster.setHeapIndex(index);
+    }
+
+    private void siftDown(int index) {
+        final MicroCluster microCluster = this.heap[index];
+        while (2 * index + 1 < this.size) {
+            int child = 2 * index + 1;
+            if (child + 1 < this.size && this.heap[child + 1].getTimestamp() < this.heap[child].getTimestamp()) {
+                ++child;
+            }
+            if (this.heap[child].getTimestamp() >= microCluster.getTimestamp()) {
+                break;
+            }
+            this.heap[index] = this.heap[child];
+            this.heap[index].setHeapIndex(index);
+            index = child;
+        }
+        this.heap[index] = microCluster;
+        microCluster.setHeapIndex(index);
+    }
+}
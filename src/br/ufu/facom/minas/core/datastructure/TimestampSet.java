@@ -0,0 +1,206 @@
+package br.ufu.facom.minas.core.datastructure;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact set of timestamps, kept sorted in a primitive array. While the
+ * timestamps are close to each other, which is the common case since they
+ * come from nearby data instances of the stream, each one is stored as an
+ * {@code int} offset from the smallest one, so that a timestamp costs four
+ * bytes, whatever its magnitude. Once the timestamps span more than
+ * {@link Integer#MAX_VALUE}, they are stored as {@code long}s.
+ *
+ * <p>Timestamps are usually added in increasing order, which is done in
+ * constant time. The other insertions and the removals shift the following
+ * timestamps, and the searches are binary.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class TimestampSet extends AbstractSet<Long> {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    // Either the offsets from the base or the timestamps themselves are
+    // used, the other array being null.
+    private long base;
+    private int[] offsets;
+    private long[] values;
+    private int size;
+
+    public TimestampSet() {
+        this.offsets = new int[0];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof Long && this.contains((long) (Long) o);
+    }
+
+    public boolean contains(final long timestamp) {
+        return this.indexOf(timestamp) >= 0;
+    }
+
+    @Override
+    public boolean add(final Long timestamp) {
+        return this.add((long) timestamp);
+    }
+
+    public boolean add(final long timestamp) {
+
+        if (this.size == 0) {
+            this.offsets = this.offsets == null ? new int[INITIAL_CAPACITY] : this.offsets;
+            this.values = null;
+            this.base = timestamp;
+        } else if (this.offsets != null && !this.fits(timestamp)) {
+            this.rebase(timestamp);
+        }
+
+        // Appending is the common case, so it is checked first.
+        final int index;
+        if (this.size == 0 || timestamp > this.get(this.size - 1)) {
+            index = this.size;
+        } else {
+            final int found = this.indexOf(timestamp);
+            if (found >= 0) {
+                return false;
+            }
+            index = -found - 1;
+        }
+
+        if (this.offsets != null) {
+            if (this.size == this.offsets.length) {
+                this.offsets = Arrays.copyOf(this.offsets, Math.max(INITIAL_CAPACITY, this.size * 2));
+            }
+            System.arraycopy(this.offsets, index, this.offsets, index + 1, this.size - index);
+            this.offsets[index] = (int) (timestamp - this.base);
+        } else {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, Math.max(INITIAL_CAPACITY, this.size * 2));
+            }
+            System.arraycopy(this.values, index, this.values, index + 1, this.size - index);
+            this.values[index] = timestamp;
+        }
+
+        ++this.size;
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        return o instanceof Long && this.remove((long) (Long) o);
+    }
+
+    public boolean remove(final long timestamp) {
+
+        final int index = this.indexOf(timestamp);
+        if (index < 0) {
+            return false;
+        }
+
+        if (this.offsets != null) {
+            System.arraycopy(this.offsets, index + 1, this.offsets, index, this.size - index - 1);
+        } else {
+            System.arraycopy(this.values, index + 1, this.values, index, this.size - index - 1);
+        }
+        --this.size;
+        return true;
+    }
+
+    /**
+     * Removes every timestamp, releasing the arrays that held them.
+     */
+    @Override
+    public void clear() {
+        this.offsets = new int[0];
+        this.values = null;
+        this.size = 0;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return this.next < size;
+            }
+
+            @Override
+            public Long next() {
+                if (this.next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(this.next++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Estimates the number of bytes of heap retained by the array holding
+     * the timestamps of this set, which is zero once the set is cleared.
+     *
+     * @return the estimated size, in bytes.
+     */
+    public long estimateRetainedBytes() {
+        final long payload = this.offsets != null ? 4L * this.offsets.length : 8L * this.values.length;
+        return payload == 0 ? 0 : 16 + payload;
+    }
+
+    private long get(final int index) {
+        return this.offsets != null ? this.base + this.offsets[index] : this.values[index];
+    }
+
+    private int indexOf(final long timestamp) {
+        if (this.offsets != null) {
+            return this.fits(timestamp)
+                    ? Arrays.binarySearch(this.offsets, 0, this.size, (int) (timestamp - this.base))
+                    : (timestamp < this.base ? -1 : -this.size - 1);
+        }
+        return Arrays.binarySearch(this.values, 0, this.size, timestamp);
+    }
+
+    private boolean fits(final long timestamp) {
+        return timestamp >= this.base && timestamp - this.base <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Moves the base down to a timestamp smaller than the current one, or
+     * switches to {@code long}s if the timestamps would no longer fit.
+     */
+    private void rebase(final long timestamp) {
+
+        final long first = timestamp < this.base ? timestamp : this.base;
+        final long last = Math.max(timestamp, this.get(this.size - 1));
+
+        if (last - first <= Integer.MAX_VALUE) {
+            final int shift = (int) (this.base - first);
+            for (int i = 0; i < this.size; ++i) {
+                this.offsets[i] += shift;
+            }
+            this.base = first;
+            return;
+        }
+
+        this.values = new long[Math.max(INITIAL_CAPACITY, this.offsets.length)];
+        for (int i = 0; i < this.size; ++i) {
+            this.values[i] = this.base + this.offsets[i];
+        }
+        this.offsets = null;
+    }
+}
@@ -3,6 +3,8 @@ package br.ufu.facom.minas.core.decisionrule.datainstance;
 import br.ufu.facom.minas.core.decisionrule.Classification;
 import br.ufu.facom.minas.core.datastructure.DataInstance;
 import br.ufu.facom.minas.core.datastructure.MicroCluster;
+import br.ufu.facom.minas.core.datastructure.MicroClusterList;
+import br.ufu.facom.minas.core.datastructure.RadiusFunction;
 
 import java.util.List;
 
@@ -15,7 +17,7 @@ import java.util.List;
  * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
  * @since 1.0
  */
-public class DataInstanceDecisionRule_1 implements DataInstanceDecisionRule {
+public class DataInstanceDecisionRule_1 implements DataInstanceDecisionRule, RadiusFunction {
 
     private final double factor;
 
@@ -30,12 +32,22 @@ public class DataInstanceDecisionRule_1 implements DataInstanceDecisionRule {
             return new Classification(null, false);
         }
 
-        final MicroCluster closestMicroCluster = MicroCluster.calculateClosestMicroCluster(target, microClusters);
-        final double distance = target.distance(closestMicroCluster.calculateCentroid());
+        // The approximate search, if enabled, may return a micro-cluster other
+        // than the closest one, but the threshold is always checked exactly
+        // against the micro-cluster returned.
+        final MicroCluster closestMicroCluster = microClusters instanceof MicroClusterList
+                ? ((MicroClusterList) microClusters).calculateApproximateClosestMicroCluster(target)
+                : MicroCluster.calculateClosestMicroCluster(target, microClusters);
+        final double squaredDistance = closestMicroCluster.squaredDistance(target);
 
-        if (distance <= closestMicroCluster.calculateStandardDeviation() * this.factor) {
+        if (MicroClusterList.isWithinRadius(closestMicroCluster, squaredDistance, this)) {
             return new Classification(closestMicroCluster, true);
         }
         return new Classification(closestMicroCluster, false);
     }
+
+    @Override
+    public double calculateRadius(final MicroCluster microCluster) {
+        return microCluster.calculateStandardDeviation() * this.factor;
+    }
 }
\ No newline at end of file
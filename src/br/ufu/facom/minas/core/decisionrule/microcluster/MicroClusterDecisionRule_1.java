@@ -2,6 +2,8 @@ package br.ufu.facom.minas.core.decisionrule.microcluster;
 
 import br.ufu.facom.minas.core.decisionrule.Classification;
 import br.ufu.facom.minas.core.datastructure.MicroCluster;
+import br.ufu.facom.minas.core.datastructure.MicroClusterList;
+import br.ufu.facom.minas.core.datastructure.RadiusFunction;
 
 import java.util.List;
 
@@ -13,7 +15,7 @@ import java.util.List;
  * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
  * @since 1.0
  */
-public class MicroClusterDecisionRule_1 implements MicroClusterDecisionRule {
+public class MicroClusterDecisionRule_1 implements MicroClusterDecisionRule, RadiusFunction {
 
     private final double factor;
 
@@ -29,13 +31,17 @@ public class MicroClusterDecisionRule_1 implements MicroClusterDecisionRule {
         }
 
         final MicroCluster closestMicroCluster = target.calculateClosestMicroCluster(microClusters);
-        final double distance = closestMicroCluster.distance(target);
-        final double threshold = closestMicroCluster.calculateStandardDeviation() * this.factor;
+        final double squaredDistance = closestMicroCluster.squaredDistance(target);
 
-        if (distance < threshold) {
+        if (MicroClusterList.isStrictlyWithinRadius(closestMicroCluster, squaredDistance, this)) {
             return new Classification(closestMicroCluster, true);
         } else {
             return new Classification(closestMicroCluster, false);
         }
     }
+
+    @Override
+    public double calculateRadius(final MicroCluster microCluster) {
+        return microCluster.calculateStandardDeviation() * this.factor;
+    }
 }
@@ -1,10 +1,9 @@
 package br.ufu.facom.minas.core.decisionrule.microcluster;
 
 import br.ufu.facom.minas.core.decisionrule.Classification;
-import br.ufu.facom.minas.core.datastructure.Category;
 import br.ufu.facom.minas.core.datastructure.MicroCluster;
+import br.ufu.facom.minas.core.datastructure.MicroClusterList;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -17,6 +16,8 @@ import java.util.List;
  */
 public class MicroClusterDecisionRule_2 implements MicroClusterDecisionRule {
 
+    private static final double TRIANGLE_INEQUALITY_TOLERANCE = 1e-9;
+
     private final double factor;
 
     public MicroClusterDecisionRule_2(final double factor) {
@@ -31,25 +32,35 @@ public class MicroClusterDecisionRule_2 implements MicroClusterDecisionRule {
         }
 
         final MicroCluster closestMicroCluster = target.calculateClosestMicroCluster(microClusters);
+        final double distance = closestMicroCluster.distance(target);
 
-        final List<MicroCluster> sameLabelAsClosest = new ArrayList<>();
-        for (final MicroCluster microCluster : microClusters) {
-
-            final Category category = microCluster.getCategory();
-            final String label = microCluster.getLabel();
-
-            if (closestMicroCluster.getLabel().equals(label) && closestMicroCluster.getCategory().equals(category)) {
-                sameLabelAsClosest.add(microCluster);
+        // By the triangle inequality, if a peer of the closest micro-cluster
+        // is farther than twice the distance from it to the target, the peer
+        // is also farther from the target than the closest micro-cluster,
+        // and therefore the threshold is greater than the distance.
+        if (microClusters instanceof MicroClusterList) {
+            final double maxDistanceToPeers = ((MicroClusterList) microClusters)
+                    .calculateMaxDistanceToPeers(closestMicroCluster);
+            if (maxDistanceToPeers > 2 * distance * (1 + TRIANGLE_INEQUALITY_TOLERANCE)) {
+                return new Classification(closestMicroCluster, true);
             }
         }
 
+        final List<MicroCluster> sameLabelAsClosest = MicroClusterList.filterPeers(closestMicroCluster,
+                microClusters);
+
         boolean seen = false;
         double maxDistance = 0;
         for (final MicroCluster microCluster : sameLabelAsClosest) {
-            final double distance = microCluster.distance(target);
-            if (distance > maxDistance) {
+            final double peerDistance = microCluster.distance(target);
+            if (peerDistance > maxDistance) {
                 seen = true;
-                maxDistance = distance;
+                maxDistance = peerDistance;
+                // The threshold can only grow, so once it exceeds the distance
+                // the result is already known.
+                if (maxDistance > distance) {
+                    break;
+                }
             }
         }
 
@@ -60,7 +71,7 @@ public class MicroClusterDecisionRule_2 implements MicroClusterDecisionRule {
             threshold = closestMicroCluster.calculateStandardDeviation() * this.factor;
         }
 
-        if (closestMicroCluster.distance(target) < threshold) {
+        if (distance < threshold) {
             return new Classification(closestMicroCluster, true);
         } else {
             return new Classification(closestMicroCluster, false);
@@ -1,8 +1,9 @@
 package br.ufu.facom.minas.core.decisionrule.microcluster;
 
 import br.ufu.facom.minas.core.decisionrule.Classification;
-import br.ufu.facom.minas.core.datastructure.Category;
 import br.ufu.facom.minas.core.datastructure.MicroCluster;
+import br.ufu.facom.minas.core.datastructure.MicroClusterList;
+import br.ufu.facom.minas.core.distance.DistanceKernel;
 
 import java.util.List;
 
@@ -31,29 +32,30 @@ public class MicroClusterDecisionRule_3 implements MicroClusterDecisionRule {
 
         final MicroCluster closestMicroCluster = target.calculateClosestMicroCluster(microClusters);
 
-        int sameLabelAsClosestCount = 0;
-        double distanceSum = 0;
-        boolean seen = false;
-        for (final MicroCluster microCluster : microClusters) {
+        final double threshold;
+        if (microClusters instanceof MicroClusterList) {
+
+            // The list keeps the mean distance between each micro-cluster and
+            // its peers, and the closest micro-cluster is always one of them.
+            threshold = ((MicroClusterList) microClusters).calculateMeanDistanceToPeers(closestMicroCluster);
 
-            final Category category = microCluster.getCategory();
-            final String label = microCluster.getLabel();
+        } else {
 
-            if (closestMicroCluster.getLabel().equals(label) && closestMicroCluster.getCategory().equals(category)) {
+            int sameLabelAsClosestCount = 0;
+            double distanceSum = 0;
+            for (final MicroCluster microCluster : MicroClusterList.filterPeers(closestMicroCluster, microClusters)) {
                 ++sameLabelAsClosestCount;
                 distanceSum += closestMicroCluster.distance(microCluster);
-                seen = true;
             }
-        }
 
-        final double threshold;
-        if (seen) {
-            threshold = distanceSum / sameLabelAsClosestCount;
-        } else {
-            threshold = closestMicroCluster.calculateStandardDeviation() * this.factor;
+            if (sameLabelAsClosestCount > 0) {
+                threshold = distanceSum / sameLabelAsClosestCount;
+            } else {
+                threshold = closestMicroCluster.calculateStandardDeviation() * this.factor;
+            }
         }
 
-        if (closestMicroCluster.distance(target) < threshold) {
+        if (DistanceKernel.isStrictlyWithin(closestMicroCluster.squaredDistance(target), threshold)) {
             return new Classification(closestMicroCluster, true);
         } else {
             return new Classification(closestMicroCluster, false);
@@ -2,6 +2,7 @@ package br.ufu.facom.minas.core.decisionrule.microcluster;
 
 import br.ufu.facom.minas.core.decisionrule.Classification;
 import br.ufu.facom.minas.core.datastructure.MicroCluster;
+import br.ufu.facom.minas.core.distance.DistanceKernel;
 
 import java.util.List;
 
@@ -24,10 +25,10 @@ public class MicroClusterDecisionRule_4 implements MicroClusterDecisionRule {
         }
 
         final MicroCluster closestMicroCluster = target.calculateClosestMicroCluster(microClusters);
-        final double distance = closestMicroCluster.distance(target);
+        final double squaredDistance = closestMicroCluster.squaredDistance(target);
         final double threshold = closestMicroCluster.calculateStandardDeviation() + target.calculateStandardDeviation();
 
-        if (distance < threshold) {
+        if (DistanceKernel.isStrictlyWithin(squaredDistance, threshold)) {
             return new Classification(closestMicroCluster, true);
         } else {
             return new Classification(closestMicroCluster, false);
@@ -0,0 +1,78 @@
+package br.ufu.facom.minas.core.distance;
+
+/**
+ * This interface represents the bulk distance computations used by the
+ * nearest centroid searches. The centroids are packed in a row-major matrix,
+ * where the row {@code i} occupies the positions
+ * {@code [i * dimensions, (i + 1) * dimensions)} of the array.
+ *
+ * <p>The implementations must resolve ties in favor of the first row, and
+ * must compare the candidates by their distance (not squared), so that the
+ * closest row is the same one found by a linear scan computing the full
+ * Euclidean distances. Only the {@link ScalarDistanceBackend} is guaranteed
+ * to accumulate the squared differences in the natural order of the
+ * dimensions; other backends may produce results that differ in the last
+ * bits.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public interface DistanceBackend {
+
+    /**
+     * Calculates the squared distances between a point and each row of a
+     * matrix.
+     *
+     * @param point the point.
+     * @param matrix the packed matrix.
+     * @param rows the number of rows of the matrix.
+     * @param dimensions the number of dimensions of the point and the rows.
+     * @param result the array where the squared distances are stored.
+     */
+    void calculateSquaredDistances(final double[] point,
+                                   final double[] matrix,
+                                   final int rows,
+                                   final int dimensions,
+                                   final double[] result);
+
+    /**
+     * Searches for the row of the matrix, between {@code fromRow} (inclusive)
+     * and {@code toRow} (exclusive), that is the closest to a point.
+     *
+     * @param points the array containing the point.
+     * @param pointOffset the position of the point inside {@code points}.
+     * @param matrix the packed matrix.
+     * @param fromRow the first row to be searched.
+     * @param toRow the row after the last one to be searched.
+     * @param dimensions the number of dimensions of the point and the rows.
+     * @return the index of the closest row, or -1 if there is none.
+     */
+    int calculateClosestRow(final double[] points,
+                            final int pointOffset,
+                            final double[] matrix,
+                            final int fromRow,
+                            final int toRow,
+                            final int dimensions);
+
+    /**
+     * Searches, for each row of a batch of points, the closest row of the
+     * matrix.
+     *
+     * @param points the packed batch of points.
+     * @param pointRows the number of points in the batch.
+     * @param matrix the packed matrix.
+     * @param rows the number of rows of the matrix.
+     * @param dimensions the number of dimensions of the points and the rows.
+     * @param result the array where the index of the closest row of each
+     *               point is stored.
+     */
+    void calculateClosestRows(final double[] points,
+                              final int pointRows,
+                              final double[] matrix,
+                              final int rows,
+                              final int dimensions,
+                              final int[] result);
+
+    String getName();
+
+}
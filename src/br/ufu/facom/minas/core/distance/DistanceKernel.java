@@ -0,0 +1,472 @@
+package br.ufu.facom.minas.core.distance;
+
+/**
+ * Kernels used to compute squared Euclidean distances between feature
+ * vectors. Most of the MINAS procedures only need to find the closest point
+ * or to compare a distance against a threshold, so the square root can be
+ * avoided by working with squared distances and squared thresholds.
+ *
+ * <p>All the kernels accumulate the squared differences following the order
+ * of the dimensions, so that the results are identical to the ones obtained
+ * by computing the full Euclidean distance. The threshold comparisons fall
+ * back to the square root whenever the squared values are too close to be
+ * decided safely.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public final class DistanceKernel {
+
+    /**
+     * Number of dimensions accumulated between two checks of the bound in the
+     * early-abandon kernels.
+     */
+    private static final int BLOCK_SIZE = 8;
+
+    /**
+     * Relative tolerance used to decide threshold comparisons without
+     * computing the square root. It is several orders of magnitude larger
+     * than the rounding error of the squared values.
+     */
+    private static final double THRESHOLD_TOLERANCE = 1e-12;
+
+    /**
+     * Name of the system property used to choose the distance backend. The
+     * accepted values are {@code scalar} (the default) and {@code vector}.
+     */
+    public static final String BACKEND_PROPERTY = "minas.distance.backend";
+
+    private static final String VECTOR_BACKEND_CLASS = "br.ufu.facom.minas.core.distance.VectorDistanceBackend";
+
+    private static final DistanceBackend BACKEND = loadBackend();
+
+    private DistanceKernel() {
+    }
+
+    /**
+     * Returns the distance backend chosen at startup through the
+     * {@value #BACKEND_PROPERTY} system property. If the vector backend is
+     * requested but is not available in the running JVM, the scalar backend
+     * is used instead.
+     *
+     * @return the distance backend.
+     */
+    public static DistanceBackend getBackend() {
+        return BACKEND;
+    }
+
+    /**
+     * Loads the vector backend, if available in the running JVM.
+     *
+     * @return the vector backend, or {@code null} if it is not available.
+     */
+    public static DistanceBackend loadVectorBackend() {
+        try {
+            return (DistanceBackend) Class.forName(VECTOR_BACKEND_CLASS).getDeclaredConstructor().newInstance();
+        } catch (final ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static DistanceBackend loadBackend() {
+        if ("vector".equals(System.getProperty(BACKEND_PROPERTY))) {
+            final DistanceBackend backend = loadVectorBackend();
+            if (backend != null) {
+                return backend;
+            }
+        }
+        return new ScalarDistanceBackend();
+    }
+
+    /**
+     * Calculates the squared Euclidean distance between two vectors.
+     *
+     * @param a the first vector.
+     * @param b the second vector, at least as long as the first one.
+     * @return the squared Euclidean distance.
+     */
+    public static double squaredDistance(final double[] a, final double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; ++i) {
+            final double difference = a[i] - b[i];
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    /**
+     * Calculates the squared Euclidean distance between two vectors, stopping
+     * as soon as the partial sum exceeds {@code bound}. The result is exact
+     * whenever it is less than or equal to {@code bound}; otherwise, only the
+     * fact that it is greater than {@code bound} is guaranteed.
+     *
+     * @param a the first vector.
+     * @param b the second vector, at least as long as the first one.
+     * @param bound the value above which the computation may be abandoned.
+     * @return the squared Euclidean distance, or a partial sum greater than
+     * {@code bound}.
+     */
+    public static double squaredDistance(final double[] a, final double[] b, final double bound) {
+
+        double sum = 0;
+        int i = 0;
+
+        while (i < a.length) {
+
+            final int end = Math.min(i + BLOCK_SIZE, a.length);
+            for (; i < end; ++i) {
+                final double difference = a[i] - b[i];
+                sum += difference * difference;
+            }
+
+            if (sum > bound) {
+                return sum;
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Calculates the squared Euclidean distance between two vectors stored
+     * inside larger arrays, stopping as soon as the partial sum exceeds
+     * {@code bound}.
+     *
+     * @param a the array containing the first vector.
+     * @param aOffset the position of the first vector inside {@code a}.
+     * @param b the array containing the second vector.
+     * @param bOffset the position of the second vector inside {@code b}.
+     * @param length the number of dimensions of the vectors.
+     * @param bound the value above which the computation may be abandoned.
+     * @return the squared Euclidean distance, or a partial sum greater than
+     * {@code bound}.
+     */
+    public static double squaredDistance(final double[] a,
+                                         final int aOffset,
+                                         final double[] b,
+                                         final int bOffset,
+                                         final int length,
+                                         final double bound) {
+
+        double sum = 0;
+        int i = 0;
+
+        while (i < length) {
+
+            final int end = Math.min(i + BLOCK_SIZE, length);
+            for (; i < end; ++i) {
+                final double difference = a[aOffset + i] - b[bOffset + i];
+                sum += difference * difference;
+            }
+
+            if (sum > bound) {
+                return sum;
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Calculates the squared Euclidean distance between a vector and a
+     * single-precision vector stored inside larger arrays, stopping as soon
+     * as the partial sum exceeds {@code bound}. The single-precision values
+     * are widened, and the differences are accumulated in double precision.
+     *
+     * @param a the array containing the first vector.
+     * @param aOffset the position of the first vector inside {@code a}.
+     * @param b the array containing the second vector.
+     * @param bOffset the position of the second vector inside {@code b}.
+     * @param length the number of dimensions of the vectors.
+     * @param bound the value above which the computation may be abandoned.
+     * @return the squared Euclidean distance, or a partial sum greater than
+     * {@code bound}.
+     */
+    public static double squaredDistance(final double[] a,
+                                         final int aOffset,
+                                         final float[] b,
+                                         final int bOffset,
+                                         final int length,
+                                         final double bound) {
+
+        double sum = 0;
+        int i = 0;
+
+        while (i < length) {
+
+            final int end = Math.min(i + BLOCK_SIZE, length);
+            for (; i < end; ++i) {
+                final double difference = a[aOffset + i] - b[bOffset + i];
+                sum += difference * difference;
+            }
+
+            if (sum > bound) {
+                return sum;
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Calculates the squared Euclidean distance between two single-precision
+     * vectors, accumulating the differences in double precision and stopping
+     * as soon as the partial sum exceeds {@code bound}.
+     *
+     * @param a the first vector.
+     * @param b the second vector, at least as long as the first one.
+     * @param bound the value above which the computation may be abandoned.
+     * @return the squared Euclidean distance, or a partial sum greater than
+     * {@code bound}.
+     */
+    public static double squaredDistance(final float[] a, final float[] b, final double bound) {
+
+        double sum = 0;
+        int i = 0;
+
+        while (i < a.length) {
+
+            final int end = Math.min(i + BLOCK_SIZE, a.length);
+            for (; i < end; ++i) {
+                final double difference = (double) a[i] - b[i];
+                sum += difference * difference;
+            }
+
+            if (sum > bound) {
+                return sum;
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Calculates the squared Euclidean norm of a vector stored inside a
+     * larger array.
+     *
+     * @param a the array holding the vector.
+     * @param offset the index of the first element of the vector.
+     * @param length the length of the vector.
+     * @return the squared Euclidean norm.
+     */
+    public static double squaredNorm(final double[] a, final int offset, final int length) {
+        double sum = 0;
+        for (int i = 0; i < length; ++i) {
+            sum += a[offset + i] * a[offset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * Calculates the squared Euclidean norm of a single-precision vector
+     * stored inside a larger array, accumulating in double precision.
+     *
+     * @param a the array holding the vector.
+     * @param offset the index of the first element of the vector.
+     * @param length the length of the vector.
+     * @return the squared Euclidean norm.
+     */
+    public static double squaredNorm(final float[] a, final int offset, final int length) {
+        double sum = 0;
+        for (int i = 0; i < length; ++i) {
+            sum += (double) a[offset + i] * a[offset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * Calculates the squared Euclidean distance between a sparse vector and a
+     * dense vector stored inside a larger array, given the squared norm of
+     * the dense vector. Only the non-zero elements of the sparse vector are
+     * visited, through the expansion
+     * {@code |a - b|^2 = |b|^2 + sum(a_i * (a_i - 2 * b_i))}, so the result
+     * carries the cancellation error of the expansion and is clamped at
+     * zero.
+     *
+     * @param indices the indices of the non-zero elements of the sparse
+     *                vector, in increasing order.
+     * @param values the non-zero elements of the sparse vector.
+     * @param b the array holding the dense vector.
+     * @param bOffset the index of the first element of the dense vector.
+     * @param bSquaredNorm the squared Euclidean norm of the dense vector.
+     * @return the squared Euclidean distance.
+     */
+    public static double squaredDistance(final int[] indices,
+                                         final double[] values,
+                                         final double[] b,
+                                         final int bOffset,
+                                         final double bSquaredNorm) {
+
+        double sum = bSquaredNorm;
+        for (int k = 0; k < indices.length; ++k) {
+            sum += values[k] * (values[k] - 2 * b[bOffset + indices[k]]);
+        }
+        return Math.max(sum, 0);
+    }
+
+    /**
+     * Calculates the squared Euclidean distance between a sparse vector and a
+     * single-precision dense vector, in the same way as
+     * {@link #squaredDistance(int[], double[], double[], int, double)}.
+     *
+     * @param indices the indices of the non-zero elements of the sparse
+     *                vector, in increasing order.
+     * @param values the non-zero elements of the sparse vector.
+     * @param b the array holding the dense vector.
+     * @param bOffset the index of the first element of the dense vector.
+     * @param bSquaredNorm the squared Euclidean norm of the dense vector.
+     * @return the squared Euclidean distance.
+     */
+    public static double squaredDistance(final int[] indices,
+                                         final double[] values,
+                                         final float[] b,
+                                         final int bOffset,
+                                         final double bSquaredNorm) {
+
+        double sum = bSquaredNorm;
+        for (int k = 0; k < indices.length; ++k) {
+            sum += values[k] * (values[k] - 2 * (double) b[bOffset + indices[k]]);
+        }
+        return Math.max(sum, 0);
+    }
+
+    /**
+     * Calculates the squared Euclidean distance between two sparse vectors,
+     * merging their non-zero elements.
+     *
+     * @param aIndices the indices of the non-zero elements of the first
+     *                 vector, in increasing order.
+     * @param aValues the non-zero elements of the first vector.
+     * @param bIndices the indices of the non-zero elements of the second
+     *                 vector, in increasing order.
+     * @param bValues the non-zero elements of the second vector.
+     * @return the squared Euclidean distance.
+     */
+    public static double squaredDistance(final int[] aIndices,
+                                         final double[] aValues,
+                                         final int[] bIndices,
+                                         final double[] bValues) {
+
+        double sum = 0;
+        int i = 0;
+        int j = 0;
+        while (i < aIndices.length || j < bIndices.length) {
+            final double difference;
+            if (j == bIndices.length || (i < aIndices.length && aIndices[i] < bIndices[j])) {
+                difference = aValues[i++];
+            } else if (i == aIndices.length || bIndices[j] < aIndices[i]) {
+                difference = bValues[j++];
+            } else {
+                difference = aValues[i++] - bValues[j++];
+            }
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    /**
+     * Calculates the squared Euclidean distance between two vectors, visiting
+     * the dimensions in the order given and stopping as soon as the partial
+     * sum is certainly greater than {@code bound}. Since the summation order
+     * differs from the natural one, the partial sum is only compared against
+     * the bound with a safety margin, and whenever the computation is not
+     * abandoned, the distance is recomputed following the natural order.
+     *
+     * @param a the first vector.
+     * @param b the second vector, at least as long as the first one.
+     * @param order a permutation of the dimensions of the vectors.
+     * @param bound the value above which the computation may be abandoned.
+     * @return the squared Euclidean distance, or a partial sum greater than
+     * {@code bound}.
+     */
+    public static double squaredDistance(final double[] a,
+                                         final double[] b,
+                                         final int[] order,
+                                         final double bound) {
+
+        final double safeBound = bound * (1 + 4.0 * a.length * Math.ulp(1.0));
+
+        double sum = 0;
+        int i = 0;
+
+        while (i < order.length) {
+
+            final int end = Math.min(i + BLOCK_SIZE, order.length);
+            for (; i < end; ++i) {
+                final double difference = a[order[i]] - b[order[i]];
+                sum += difference * difference;
+            }
+
+            if (sum > safeBound) {
+                return sum;
+            }
+        }
+
+        return squaredDistance(a, b);
+    }
+
+    /**
+     * Calculates a value below which any squared distance is certainly
+     * strictly less than the squared threshold, regardless of rounding
+     * errors. It can be precomputed for thresholds that are used repeatedly.
+     *
+     * @param threshold the threshold on the (non squared) distance.
+     * @return the inner squared threshold, or negative infinity if the
+     * threshold is not positive.
+     */
+    public static double calculateInnerSquaredThreshold(final double threshold) {
+        if (threshold > 0) {
+            return threshold * threshold * (1 - THRESHOLD_TOLERANCE);
+        }
+        return Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Returns whether {@code Math.sqrt(squaredDistance) <= threshold}, without
+     * computing the square root unless the values are too close to be
+     * compared safely.
+     *
+     * @param squaredDistance the squared distance.
+     * @param threshold the threshold on the (non squared) distance.
+     * @return whether the distance is less than or equal to the threshold.
+     */
+    public static boolean isWithin(final double squaredDistance, final double threshold) {
+
+        if (threshold > 0) {
+            final double squaredThreshold = threshold * threshold;
+            if (squaredDistance < calculateInnerSquaredThreshold(threshold)) {
+                return true;
+            }
+            if (squaredDistance > squaredThreshold * (1 + THRESHOLD_TOLERANCE)) {
+                return false;
+            }
+        }
+
+        return Math.sqrt(squaredDistance) <= threshold;
+    }
+
+    /**
+     * Returns whether {@code Math.sqrt(squaredDistance) < threshold}, without
+     * computing the square root unless the values are too close to be
+     * compared safely.
+     *
+     * @param squaredDistance the squared distance.
+     * @param threshold the threshold on the (non squared) distance.
+     * @return whether the distance is less than the threshold.
+     */
+    public static boolean isStrictlyWithin(final double squaredDistance, final double threshold) {
+
+        if (threshold > 0) {
+            final double squaredThreshold = threshold * threshold;
+            if (squaredDistance < calculateInnerSquaredThreshold(threshold)) {
+                return true;
+            }
+            if (squaredDistance > squaredThreshold * (1 + THRESHOLD_TOLERANCE)) {
+                return false;
+            }
+        }
+
+        return Math.sqrt(squaredDistance) < threshold;
+    }
+
+}
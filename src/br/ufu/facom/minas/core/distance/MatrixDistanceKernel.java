@@ -0,0 +1,193 @@
+package br.ufu.facom.minas.core.distance;
+
+import java.util.Arrays;
+
+/**
+ * Kernel used to search, for each point of a batch, its closest row of a
+ * matrix of centroids. The squared distances are first approximated by the
+ * decomposition {@code ||x||^2 + ||c||^2 - 2 * x . c}, computed over
+ * cache-sized tiles of points and centroids with precomputed norms.
+ *
+ * <p>Since the decomposition is subject to cancellation, the approximated
+ * distances are only used to discard the rows that are certainly not the
+ * closest ones. The remaining candidates, whose approximated distance is
+ * within the rounding error bound of the minimum, are compared using the
+ * exact distance, so that the result is the same one obtained by a linear
+ * scan.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public final class MatrixDistanceKernel {
+
+    private static final int POINT_BLOCK_SIZE = 32;
+    private static final int ROW_BLOCK_SIZE = 64;
+
+    private MatrixDistanceKernel() {
+    }
+
+    /**
+     * Searches, for each point of a batch, the closest row of the matrix. In
+     * case of a tie, the first row is chosen.
+     *
+     * @param points the packed batch of points.
+     * @param pointRows the number of points in the batch.
+     * @param matrix the packed matrix.
+     * @param rows the number of rows of the matrix.
+     * @param dimensions the number of dimensions of the points and the rows.
+     * @param result the array where the index of the closest row of each
+     *               point is stored, or -1 if there is none.
+     */
+    public static void calculateClosestRows(final double[] points,
+                                            final int pointRows,
+                                            final double[] matrix,
+                                            final int rows,
+                                            final int dimensions,
+                                            final int[] result) {
+
+        if (rows == 0) {
+            Arrays.fill(result, 0, pointRows, -1);
+            return;
+        }
+
+        final double[] rowNorms = calculateSquaredNorms(matrix, rows, dimensions);
+        double maxRowNorm = 0;
+        for (final double rowNorm : rowNorms) {
+            maxRowNorm = Math.max(maxRowNorm, rowNorm);
+        }
+
+        final double[] pointNorms = calculateSquaredNorms(points, pointRows, dimensions);
+        final double[][] approximations = new double[Math.min(POINT_BLOCK_SIZE, pointRows)][rows];
+
+        // Relative rounding error bound of the approximated squared
+        // distances, with a safety factor.
+        final double relativeError = 4 * (dimensions + 4) * Math.ulp(1.0);
+
+        for (int pointStart = 0; pointStart < pointRows; pointStart += POINT_BLOCK_SIZE) {
+
+            final int pointEnd = Math.min(pointStart + POINT_BLOCK_SIZE, pointRows);
+
+            for (int rowStart = 0; rowStart < rows; rowStart += ROW_BLOCK_SIZE) {
+                final int rowEnd = Math.min(rowStart + ROW_BLOCK_SIZE, rows);
+                for (int point = pointStart; point < pointEnd; ++point) {
+
+                    final double[] approximation = approximations[point - pointStart];
+
+                    int row = rowStart;
+                    for (; row + 3 < rowEnd; row += 4) {
+                        dot4(points, point * dimensions, matrix, row * dimensions, dimensions, approximation, row);
+                    }
+                    for (; row < rowEnd; ++row) {
+                        approximation[row] = dot(points, point * dimensions, matrix, row * dimensions, dimensions);
+                    }
+
+                    for (row = rowStart; row < rowEnd; ++row) {
+                        approximation[row] = pointNorms[point] + rowNorms[row] - 2 * approximation[row];
+                    }
+                }
+            }
+
+            for (int point = pointStart; point < pointEnd; ++point) {
+                final double errorBound = relativeError * (pointNorms[point] + maxRowNorm);
+                result[point] = refine(points, point * dimensions, matrix, rows, dimensions,
+                        approximations[point - pointStart], errorBound);
+            }
+        }
+    }
+
+    private static int refine(final double[] points,
+                              final int pointOffset,
+                              final double[] matrix,
+                              final int rows,
+                              final int dimensions,
+                              final double[] approximation,
+                              final double errorBound) {
+
+        double minApproximation = Double.POSITIVE_INFINITY;
+        for (int row = 0; row < rows; ++row) {
+            minApproximation = Math.min(minApproximation, approximation[row]);
+        }
+
+        // If the approximation is not reliable (overflow or NaN values), all
+        // the rows are compared using the exact distance.
+        final double candidateBound = minApproximation + 2 * errorBound;
+        final boolean isReliable = !Double.isNaN(candidateBound) && !Double.isInfinite(candidateBound);
+
+        int closest = -1;
+        double minDistance = Double.MAX_VALUE;
+        double minSquaredDistance = Double.POSITIVE_INFINITY;
+        for (int row = 0; row < rows; ++row) {
+
+            if (isReliable && !(approximation[row] <= candidateBound)) {
+                continue;
+            }
+
+            final double squaredDistance = DistanceKernel.squaredDistance(matrix, row * dimensions, points,
+                    pointOffset, dimensions, minSquaredDistance);
+            if (squaredDistance < minSquaredDistance && Math.sqrt(squaredDistance) < minDistance) {
+                minDistance = Math.sqrt(squaredDistance);
+                minSquaredDistance = squaredDistance;
+                closest = row;
+            }
+        }
+
+        return closest;
+    }
+
+    private static double[] calculateSquaredNorms(final double[] matrix, final int rows, final int dimensions) {
+        final double[] norms = new double[rows];
+        for (int row = 0; row < rows; ++row) {
+            norms[row] = dot(matrix, row * dimensions, matrix, row * dimensions, dimensions);
+        }
+        return norms;
+    }
+
+    private static double dot(final double[] a,
+                              final int aOffset,
+                              final double[] b,
+                              final int bOffset,
+                              final int length) {
+
+        double sum = 0;
+        for (int i = 0; i < length; ++i) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * Calculates the dot products between a point and four consecutive rows
+     * of the matrix at once, so that each value of the point is loaded only
+     * once and the four accumulations proceed independently.
+     */
+    private static void dot4(final double[] points,
+                             final int pointOffset,
+                             final double[] matrix,
+                             final int rowOffset,
+                             final int dimensions,
+                             final double[] result,
+                             final int resultOffset) {
+
+        final int rowOffset1 = rowOffset + dimensions;
+        final int rowOffset2 = rowOffset1 + dimensions;
+        final int rowOffset3 = rowOffset2 + dimensions;
+
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+        for (int i = 0; i < dimensions; ++i) {
+            final double x = points[pointOffset + i];
+            sum0 += x * matrix[rowOffset + i];
+            sum1 += x * matrix[rowOffset1 + i];
+            sum2 += x * matrix[rowOffset2 + i];
+            sum3 += x * matrix[rowOffset3 + i];
+        }
+
+        result[resultOffset] = sum0;
+        result[resultOffset + 1] = sum1;
+        result[resultOffset + 2] = sum2;
+        result[resultOffset + 3] = sum3;
+    }
+
+}
@@ -0,0 +1,67 @@
+package br.ufu.facom.minas.core.distance;
+
+/**
+ * Implementation of the {@link DistanceBackend} interface that accumulates
+ * the squared differences sequentially, following the natural order of the
+ * dimensions, and abandons the rows as soon as they are known to be farther
+ * than the closest one found so far. Batches of points are handled by the
+ * {@link MatrixDistanceKernel}, which produces the same results.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class ScalarDistanceBackend implements DistanceBackend {
+
+    @Override
+    public void calculateSquaredDistances(final double[] point,
+                                          final double[] matrix,
+                                          final int rows,
+                                          final int dimensions,
+                                          final double[] result) {
+
+        for (int row = 0; row < rows; ++row) {
+            result[row] = DistanceKernel.squaredDistance(point, 0, matrix, row * dimensions, dimensions,
+                    Double.POSITIVE_INFINITY);
+        }
+    }
+
+    @Override
+    public int calculateClosestRow(final double[] points,
+                                   final int pointOffset,
+                                   final double[] matrix,
+                                   final int fromRow,
+                                   final int toRow,
+                                   final int dimensions) {
+
+        int closest = -1;
+        double minDistance = Double.MAX_VALUE;
+        double minSquaredDistance = Double.POSITIVE_INFINITY;
+        for (int row = fromRow; row < toRow; ++row) {
+            final double squaredDistance = DistanceKernel.squaredDistance(matrix, row * dimensions, points,
+                    pointOffset, dimensions, minSquaredDistance);
+            if (squaredDistance < minSquaredDistance && Math.sqrt(squaredDistance) < minDistance) {
+                minDistance = Math.sqrt(squaredDistance);
+                minSquaredDistance = squaredDistance;
+                closest = row;
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    public void calculateClosestRows(final double[] points,
+                                     final int pointRows,
+                                     final double[] matrix,
+                                     final int rows,
+                                     final int dimensions,
+                                     final int[] result) {
+
+        MatrixDistanceKernel.calculateClosestRows(points, pointRows, matrix, rows, dimensions, result);
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+}
@@ -0,0 +1,474 @@
+package br.ufu.facom.minas.core.pipeline;
+
+import br.ufu.facom.minas.core.MINAS;
+import br.ufu.facom.minas.core.MINASConfiguration;
+import br.ufu.facom.minas.core.MINASModel;
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+import br.ufu.facom.minas.core.datastructure.Labeling;
+import br.ufu.facom.minas.core.server.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue in front of a model, which decouples the producers of the
+ * data instances from the processing by MINAS. The data instances offered
+ * are taken from the queue, in order, by a single thread, which processes
+ * them in micro-batches and hands each processed batch to a
+ * {@link PipelineSink}.
+ *
+ * <p>MINAS processes the data instances much more slowly while it detects
+ * novelties, so bursts of the stream may fill the queue. What happens then
+ * is set by the {@link OverloadPolicy}: the producers may wait, data
+ * instances may be shed, or the data instances may be processed in degraded
+ * mode until the queue drains. The data instances shed never reach the
+ * model, so they are neither labeled nor counted by the confusion matrix.
+ *
+ * <p>The latency of each data instance, from the moment it is queued to the
+ * moment its batch is handed to the sink, is recorded, so that it can be
+ * checked against a latency objective along with the number of data
+ * instances shed and degraded.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class IngestionFrontEnd implements AutoCloseable {
+
+    /**
+     * Fraction of the capacity above which the data instances start being
+     * processed in degraded mode, under {@link OverloadPolicy#CLASSIFY_ONLY}.
+     */
+    public static final double HIGH_WATERMARK = 0.75;
+
+    /**
+     * Fraction of the capacity below which the data instances stop being
+     * processed in degraded mode.
+     */
+    public static final double LOW_WATERMARK = 0.25;
+
+    private static final long SAMPLING_SEED = 0;
+
+    private final MINASModel model;
+    private final MINASConfiguration config;
+    private final PipelineSink sink;
+    private final OverloadPolicy policy;
+    private final int maxBatchSize;
+
+    // Queued data instances and the times they were queued, in a circular
+    // array. Under the sample policy, the data instances shed from the
+    // middle of the queue leave empty slots instead of shifting the
+    // following ones, so the array has room for twice the capacity and is
+    // compacted when its slots run out.
+    private final int capacity;
+    private final DataInstance[] instances;
+    private final long[] arrivals;
+    private int head;
+    private int span;
+    private int size;
+
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    private final Random random;
+    private long burstArrivalCount;
+    private boolean isClosed;
+    private volatile Throwable failure;
+
+    private final Thread thread;
+    private volatile boolean isDegraded;
+    private final LatencyHistogram latencies;
+    private long offeredCount;
+    private long shedCount;
+    private volatile long processedCount;
+    private volatile long degradedCount;
+    private volatile long batchCount;
+
+    /**
+     * @param model the model initialized in the offline phase.
+     * @param config the MINAS configuration to be used.
+     * @param capacity the number of data instances the queue holds.
+     * @param maxBatchSize the maximum number of queued data instances
+     *                     processed at once.
+     * @param policy what to do when the queue is full.
+     * @param sink the sink of the processed batches, called by the
+     *             processing thread.
+     */
+    public IngestionFrontEnd(final MINASModel model,
+                             final MINASConfiguration config,
+                             final int capacity,
+                             final int maxBatchSize,
+                             final OverloadPolicy policy,
+                             final PipelineSink sink) {
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be positive");
+        }
+
+        this.model = model;
+        this.config = config;
+        this.sink = sink;
+        this.policy = policy;
+        this.maxBatchSize = maxBatchSize;
+
+        this.capacity = capacity;
+        final int slots = policy == OverloadPolicy.SAMPLE ? 2 * capacity : capacity;
+        this.instances = new DataInstance[slots];
+        this.arrivals = new long[slots];
+        this.lock = new ReentrantLock();
+        this.notEmpty = this.lock.newCondition();
+        this.notFull = this.lock.newCondition();
+        this.random = new Random(SAMPLING_SEED);
+        this.latencies = new LatencyHistogram();
+
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    consume();
+                } catch (final Throwable t) {
+                    fail(t);
+                }
+            }
+        }, "minas-ingestion");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the processing thread.
+     */
+    public void start() {
+        this.thread.start();
+    }
+
+    /**
+     * Queues a data instance to be processed after the ones already queued,
+     * applying the overload policy if the queue is full. The timestamps of
+     * the data instances offered must be increasing, but may have gaps.
+     *
+     * @param instance the data instance.
+     * @return {@code true} if the data instance was queued, or {@code false}
+     * if it was shed.
+     * @throws InterruptedException if interrupted while waiting for room in
+     * the queue.
+     * @throws IllegalStateException if the front-end is closed or the
+     * processing has failed.
+     */
+    public boolean offer(final DataInstance instance) throws InterruptedException {
+
+        this.lock.lock();
+        try {
+
+            this.checkOpen();
+            ++this.offeredCount;
+
+            if (this.size < this.capacity) {
+                this.burstArrivalCount = 0;
+                this.enqueue(instance);
+                return true;
+            }
+
+            if (this.policy == OverloadPolicy.DROP_OLDEST) {
+
+                this.removeFirst();
+                ++this.shedCount;
+                this.enqueue(instance);
+                return true;
+
+            } else if (this.policy == OverloadPolicy.SAMPLE) {
+
+                // Reservoir sampling over the data instances arrived since
+                // the queue filled up, keeping their order.
+                ++this.burstArrivalCount;
+                ++this.shedCount;
+                if (this.random.nextDouble() * (this.capacity + this.burstArrivalCount) < this.capacity) {
+                    this.removeRandom();
+                    this.enqueue(instance);
+                    return true;
+                }
+                return false;
+
+            } else {
+
+                while (this.size == this.capacity) {
+                    this.notFull.await();
+                    this.checkOpen();
+                }
+                this.enqueue(instance);
+                return true;
+            }
+
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting data instances and waits until the queued ones are
+     * processed. If interrupted while waiting, it returns right away, with
+     * the interrupt status of the thread set.
+     *
+     * @throws ExecutionException if the processing or the sink failed with
+     * a checked exception, which is its cause. Unchecked exceptions and
+     * errors are thrown as is.
+     */
+    @Override
+    public void close() throws ExecutionException {
+
+        this.lock.lock();
+        try {
+            this.isClosed = true;
+            this.notEmpty.signalAll();
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+
+        try {
+            if (this.thread.isAlive()) {
+                this.thread.join();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        final Throwable throwable = this.failure;
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        } else if (throwable != null) {
+            throw new ExecutionException(throwable);
+        }
+    }
+
+    public long getOfferedCount() {
+        this.lock.lock();
+        try {
+            return this.offeredCount;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of data instances shed, either when they were
+     * offered or later, to make room for others.
+     *
+     * @return the number of data instances shed.
+     */
+    public long getShedCount() {
+        this.lock.lock();
+        try {
+            return this.shedCount;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public long getProcessedCount() {
+        return processedCount;
+    }
+
+    /**
+     * Returns the number of data instances processed in degraded mode.
+     *
+     * @return the number of degraded data instances.
+     */
+    public long getDegradedCount() {
+        return degradedCount;
+    }
+
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    public boolean isDegraded() {
+        return isDegraded;
+    }
+
+    public int getQueueLength() {
+        this.lock.lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the latencies, in microseconds, between the queueing of each
+     * data instance processed and the hand off of its batch to the sink.
+     *
+     * @return the latency histogram.
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    private void consume() throws Exception {
+
+        while (true) {
+
+            final List<DataInstance> batch;
+            final long[] batchArrivals;
+            final boolean isBatchDegraded;
+
+            this.lock.lock();
+            try {
+
+                while (this.size == 0 && !this.isClosed) {
+                    this.notEmpty.await();
+                }
+                if (this.size == 0) {
+                    return;
+                }
+
+                // The degraded mode has a hysteresis, so that it doesn't
+                // flip on every batch around a single threshold.
+                if (this.policy == OverloadPolicy.CLASSIFY_ONLY) {
+                    if (this.size >= HIGH_WATERMARK * this.capacity) {
+                        this.isDegraded = true;
+                    } else if (this.size <= LOW_WATERMARK * this.capacity) {
+                        this.isDegraded = false;
+                    }
+                }
+                isBatchDegraded = this.isDegraded;
+
+                final int count = Math.min(this.size, this.maxBatchSize);
+                batch = new ArrayList<>(count);
+                batchArrivals = new long[count];
+                for (int i = 0; i < count; ++i) {
+                    batchArrivals[i] = this.arrivals[this.skipEmptySlots()];
+                    batch.add(this.removeFirst());
+                }
+                this.notFull.signalAll();
+
+            } finally {
+                this.lock.unlock();
+            }
+
+            final List<Labeling> labelings = isBatchDegraded
+                    ? MINAS.processDegraded(batch, this.model, this.config)
+                    : MINAS.process(batch, this.model, this.config);
+
+            this.sink.accept(new ProcessedBatch(
+                    labelings,
+                    this.model.getLastTimestamp(),
+                    this.model.getNoveltyCount(),
+                    this.model.getConfusionMatrix().measureUnkR(),
+                    this.model.getConfusionMatrix().measureCER()));
+
+            final long now = System.nanoTime();
+            for (final long arrival : batchArrivals) {
+                this.latencies.record((now - arrival) / 1000);
+            }
+
+            this.processedCount += batch.size();
+            if (isBatchDegraded) {
+                this.degradedCount += batch.size();
+            }
+            ++this.batchCount;
+        }
+    }
+
+    private void fail(final Throwable t) {
+        this.lock.lock();
+        try {
+            this.failure = t;
+            this.isClosed = true;
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (this.failure != null) {
+            throw new IllegalStateException("The processing has failed", this.failure);
+        }
+        if (this.isClosed) {
+            throw new IllegalStateException("The front-end is closed");
+        }
+    }
+
+    private void enqueue(final DataInstance instance) {
+        if (this.span == this.instances.length) {
+            this.compact();
+        }
+        final int tail = (this.head + this.span) % this.instances.length;
+        this.instances[tail] = instance;
+        this.arrivals[tail] = System.nanoTime();
+        ++this.span;
+        ++this.size;
+        this.notEmpty.signal();
+    }
+
+    /**
+     * Moves the head past the empty slots left by the data instances shed
+     * from the middle of the queue, returning it.
+     */
+    private int skipEmptySlots() {
+        while (this.instances[this.head] == null) {
+            this.head = (this.head + 1) % this.instances.length;
+            --this.span;
+        }
+        return this.head;
+    }
+
+    private DataInstance removeFirst() {
+        final DataInstance instance = this.instances[this.skipEmptySlots()];
+        this.instances[this.head] = null;
+        this.head = (this.head + 1) % this.instances.length;
+        --this.span;
+        if (--this.size == 0) {
+            this.span = 0;
+        }
+        return instance;
+    }
+
+    /**
+     * Removes a queued data instance chosen uniformly at random, leaving its
+     * slot empty. It is only called when the queue is full, in which case at
+     * least half of the slots in use hold a data instance, so a random slot
+     * is drawn again until it isn't empty in less than two draws on average.
+     */
+    private void removeRandom() {
+        int slot;
+        do {
+            slot = (this.head + this.random.nextInt(this.span)) % this.instances.length;
+        } while (this.instances[slot] == null);
+        this.instances[slot] = null;
+        --this.size;
+    }
+
+    /**
+     * Moves the queued data instances over the empty slots, keeping their
+     * order. Since the array has room for twice the capacity, at least as
+     * many data instances as the capacity are queued between two
+     * compactions.
+     */
+    private void compact() {
+        int queued = 0;
+        for (int i = 0; i < this.span; ++i) {
+            final int from = (this.head + i) % this.instances.length;
+            if (this.instances[from] != null) {
+                final int to = (this.head + queued) % this.instances.length;
+                if (to != from) {
+                    this.instances[to] = this.instances[from];
+                    this.arrivals[to] = this.arrivals[from];
+                    this.instances[from] = null;
+                }
+                ++queued;
+            }
+        }
+        this.span = queued;
+    }
+}
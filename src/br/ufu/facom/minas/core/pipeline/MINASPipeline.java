@@ -0,0 +1,355 @@
+package br.ufu.facom.minas.core.pipeline;
+
+import br.ufu.facom.minas.core.DatasetFileReader;
+import br.ufu.facom.minas.core.MINAS;
+import br.ufu.facom.minas.core.MINASConfiguration;
+import br.ufu.facom.minas.core.MINASModel;
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+import br.ufu.facom.minas.core.datastructure.Labeling;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the online phase of MINAS as a pipeline of stages, each one on its own
+ * thread, connected by bounded {@link RingBuffer}s:
+ *
+ * <ol>
+ *     <li>the parse stage reads the data instances from a
+ *     {@link DatasetFileReader} and groups them in batches;</li>
+ *     <li>the classify stage processes the batches, in the order of the
+ *     stream, with {@link MINAS#process(List, MINASModel, MINASConfiguration)}
+ *     and takes a snapshot of the measures of the model after each one;</li>
+ *     <li>each one of the {@link PipelineSink}s receives every processed
+ *     batch.</li>
+ * </ol>
+ *
+ * <p>The model is only accessed by the classify stage, so the labelings are
+ * the same as the ones of the serial execution over the same batches. The
+ * measures, however, are taken once per batch instead of once per data
+ * instance.
+ *
+ * <p>When a buffer is full, the stage feeding it waits, so the slowest stage
+ * sets the pace of the pipeline and the memory used stays bounded. The
+ * bottleneck can be found from {@link #getReport()}: it is the stage that
+ * is busy most of the time, with its input buffer usually full and its output
+ * buffer usually empty.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class MINASPipeline {
+
+    private final DatasetFileReader reader;
+    private final MINASModel model;
+    private final MINASConfiguration config;
+    private final PipelineSink[] sinks;
+    private final int batchSize;
+
+    private final RingBuffer<List<DataInstance>> parsedBatches;
+    private final List<RingBuffer<ProcessedBatch>> processedBatches;
+
+    private final Stage parseStage;
+    private final Stage classifyStage;
+    private final List<Stage> sinkStages;
+
+    private final AtomicReference<Throwable> failure;
+    private boolean hasRun;
+
+    /**
+     * @param reader the reader of the data instances of the online phase.
+     * @param model the model initialized in the offline phase.
+     * @param config the MINAS configuration to be used.
+     * @param batchSize the number of data instances handed from one stage to
+     *                  the next at once.
+     * @param bufferCapacity the number of batches each buffer between two
+     *                       stages holds, rounded up to a power of two.
+     * @param sinks the sinks of the processed batches.
+     */
+    public MINASPipeline(final DatasetFileReader reader,
+                         final MINASModel model,
+                         final MINASConfiguration config,
+                         final int batchSize,
+                         final int bufferCapacity,
+                         final PipelineSink... sinks) {
+
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be positive");
+        }
+        if (bufferCapacity < 1) {
+            throw new IllegalArgumentException("The buffer capacity must be positive");
+        }
+
+        this.reader = reader;
+        this.model = model;
+        this.config = config;
+        this.sinks = sinks.clone();
+        this.batchSize = batchSize;
+
+        this.parsedBatches = new RingBuffer<>(bufferCapacity);
+        this.processedBatches = new ArrayList<>(sinks.length);
+        this.parseStage = new Stage("parse");
+        this.classifyStage = new Stage("classify");
+        this.sinkStages = new ArrayList<>(sinks.length);
+        for (int i = 0; i < sinks.length; ++i) {
+            this.processedBatches.add(new RingBuffer<ProcessedBatch>(bufferCapacity));
+            this.sinkStages.add(new Stage("sink-" + i));
+        }
+
+        this.failure = new AtomicReference<>();
+    }
+
+    /**
+     * Runs the pipeline until the end of the stream, returning once every
+     * sink has consumed the last batch. If any stage fails, the other ones
+     * are stopped and the failure is thrown. A pipeline can only be run once.
+     *
+     * @throws Exception the first failure of a stage.
+     */
+    public void run() throws Exception {
+
+        if (this.hasRun) {
+            throw new IllegalStateException("The pipeline has already been run");
+        }
+        this.hasRun = true;
+
+        final List<Thread> threads = new ArrayList<>();
+        threads.add(this.newThread(this.parseStage, new Runnable() {
+            @Override
+            public void run() {
+                parse();
+            }
+        }));
+        threads.add(this.newThread(this.classifyStage, new Runnable() {
+            @Override
+            public void run() {
+                classify();
+            }
+        }));
+        for (int i = 0; i < this.sinks.length; ++i) {
+            final int index = i;
+            threads.add(this.newThread(this.sinkStages.get(i), new Runnable() {
+                @Override
+                public void run() {
+                    sink(index);
+                }
+            }));
+        }
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final Throwable throwable = this.failure.get();
+        if (throwable instanceof Exception) {
+            throw (Exception) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+    }
+
+    /**
+     * Returns, for each stage, the time it spent working and waiting for its
+     * input and output buffers and, for each buffer, the mean number of
+     * batches it held and how many times it was found full or empty.
+     *
+     * @return the report, one line per stage and per buffer.
+     */
+    public String getReport() {
+
+        final StringBuilder report = new StringBuilder();
+        report.append(this.parseStage).append('\n');
+        appendBuffer(report, "parse->classify", this.parsedBatches);
+        report.append(this.classifyStage).append('\n');
+        for (int i = 0; i < this.sinks.length; ++i) {
+            appendBuffer(report, "classify->" + this.sinkStages.get(i).name, this.processedBatches.get(i));
+            report.append(this.sinkStages.get(i)).append('\n');
+        }
+        return report.toString();
+    }
+
+    private void parse() {
+
+        List<DataInstance> batch = new ArrayList<>(this.batchSize);
+        long start = System.nanoTime();
+        DataInstance instance;
+
+        try {
+            while ((instance = this.reader.getNext()) != null) {
+                batch.add(instance);
+                if (batch.size() == this.batchSize) {
+                    start = this.parseStage.work(start);
+                    this.parsedBatches.put(batch);
+                    start = this.parseStage.waitOutput(start);
+                    batch = new ArrayList<>(this.batchSize);
+                }
+            }
+        } catch (final IOException e) {
+            throw new StageFailure(e);
+        }
+
+        if (!batch.isEmpty()) {
+            start = this.parseStage.work(start);
+            this.parsedBatches.put(batch);
+            this.parseStage.waitOutput(start);
+        } else {
+            this.parseStage.work(start);
+        }
+        this.parsedBatches.close();
+    }
+
+    private void classify() {
+
+        long start = System.nanoTime();
+        List<DataInstance> batch;
+
+        while ((batch = this.parsedBatches.take()) != null) {
+
+            start = this.classifyStage.waitInput(start);
+
+            final List<Labeling> labelings = MINAS.process(batch, this.model, this.config);
+            final ProcessedBatch processedBatch = new ProcessedBatch(
+                    labelings,
+                    this.model.getLastTimestamp(),
+                    this.model.getNoveltyCount(),
+                    this.model.getConfusionMatrix().measureUnkR(),
+                    this.model.getConfusionMatrix().measureCER());
+
+            start = this.classifyStage.work(start);
+            for (final RingBuffer<ProcessedBatch> buffer : this.processedBatches) {
+                buffer.put(processedBatch);
+            }
+            start = this.classifyStage.waitOutput(start);
+        }
+
+        this.classifyStage.waitInput(start);
+        for (final RingBuffer<ProcessedBatch> buffer : this.processedBatches) {
+            buffer.close();
+        }
+    }
+
+    private void sink(final int index) {
+
+        final PipelineSink sink = this.sinks[index];
+        final Stage stage = this.sinkStages.get(index);
+        final RingBuffer<ProcessedBatch> buffer = this.processedBatches.get(index);
+
+        long start = System.nanoTime();
+        ProcessedBatch batch;
+
+        while ((batch = buffer.take()) != null) {
+            start = stage.waitInput(start);
+            try {
+                sink.accept(batch);
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new StageFailure(e);
+            }
+            start = stage.work(start);
+        }
+        stage.waitInput(start);
+    }
+
+    private Thread newThread(final Stage stage, final Runnable task) {
+
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (final Throwable t) {
+                    // Keeps the first failure only, since the other stages
+                    // fail with a cancellation once the buffers are
+                    // cancelled.
+                    if (failure.compareAndSet(null, unwrap(t))) {
+                        cancel();
+                    }
+                }
+            }
+        }, "minas-" + stage.name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void cancel() {
+        this.parsedBatches.cancel();
+        for (final RingBuffer<ProcessedBatch> buffer : this.processedBatches) {
+            buffer.cancel();
+        }
+    }
+
+    private static Throwable unwrap(final Throwable t) {
+        return t instanceof StageFailure ? t.getCause() : t;
+    }
+
+    private static void appendBuffer(final StringBuilder report,
+                                     final String name,
+                                     final RingBuffer<?> buffer) {
+
+        report.append(String.format(Locale.ROOT,
+                "buffer %s: capacity=%d; mean_occupancy=%.2f; full=%d; empty=%d%n",
+                name, buffer.getCapacity(), buffer.getMeanOccupancy(),
+                buffer.getFullCount(), buffer.getEmptyCount()));
+    }
+
+    /**
+     * Carries a checked exception thrown inside a stage up to
+     * {@link #run()}, where it is thrown as is.
+     */
+    private static final class StageFailure extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private StageFailure(final Exception cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Times spent by a stage, each one written only by the thread of the
+     * stage.
+     */
+    private static final class Stage {
+
+        private final String name;
+        private volatile long workNanos;
+        private volatile long inputWaitNanos;
+        private volatile long outputWaitNanos;
+
+        private Stage(final String name) {
+            this.name = name;
+        }
+
+        private long work(final long start) {
+            final long now = System.nanoTime();
+            this.workNanos += now - start;
+            return now;
+        }
+
+        private long waitInput(final long start) {
+            final long now = System.nanoTime();
+            this.inputWaitNanos += now - start;
+            return now;
+        }
+
+        private long waitOutput(final long start) {
+            final long now = System.nanoTime();
+            this.outputWaitNanos += now - start;
+            return now;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "stage %s: work_ms=%d; input_wait_ms=%d; output_wait_ms=%d",
+                    this.name, this.workNanos / 1000000, this.inputWaitNanos / 1000000,
+                    this.outputWaitNanos / 1000000);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package br.ufu.facom.minas.core.pipeline;
+
+/**
+ * What an {@link IngestionFrontEnd} does when the data instances arrive
+ * faster than MINAS processes them.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public enum OverloadPolicy {
+
+    /**
+     * The producers wait for room in the queue, so nothing is lost, but the
+     * latency grows with the backlog and the backpressure reaches the
+     * source.
+     */
+    BLOCK,
+
+    /**
+     * When the queue is full, the oldest queued data instance is shed to
+     * make room for the arriving one, so the latency stays bounded by the
+     * capacity of the queue.
+     */
+    DROP_OLDEST,
+
+    /**
+     * When the queue is full, the data instances kept are a uniform sample
+     * of the ones arrived since it filled up: the {@code n}-th arriving data
+     * instance is kept with probability {@code capacity / (capacity + n)},
+     * replacing a random queued one, or shed otherwise.
+     */
+    SAMPLE,
+
+    /**
+     * Nothing is shed, but while the queue is above its high watermark the
+     * data instances are processed in degraded mode (see
+     * {@link br.ufu.facom.minas.core.MINAS#processDegraded(java.util.List,
+     * br.ufu.facom.minas.core.MINASModel,
+     * br.ufu.facom.minas.core.MINASConfiguration)}), skipping the temporary
+     * memory and the novelty detection until the queue drains below its low
+     * watermark. When the queue is full, the producers wait.
+     */
+    CLASSIFY_ONLY
+
+}
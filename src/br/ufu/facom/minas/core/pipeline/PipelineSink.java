@@ -0,0 +1,21 @@
+package br.ufu.facom.minas.core.pipeline;
+
+/**
+ * This interface represents the last stage of a {@link MINASPipeline}, which
+ * receives the processed batches, in the order of the stream, on its own
+ * thread. It is where the labelings and the measures are written out.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public interface PipelineSink {
+
+    /**
+     * Consumes a processed batch.
+     *
+     * @param batch the processed batch.
+     * @throws Exception if the batch could not be consumed, in which case the
+     * pipeline is stopped.
+     */
+    void accept(final ProcessedBatch batch) throws Exception;
+}
@@ -0,0 +1,54 @@
+package br.ufu.facom.minas.core.pipeline;
+
+import br.ufu.facom.minas.core.datastructure.Labeling;
+
+import java.util.List;
+
+/**
+ * Result of the processing of a batch of data instances by a
+ * {@link MINASPipeline}: the labelings returned by MINAS for the batch and a
+ * snapshot of the measures of the model taken right after it.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class ProcessedBatch {
+
+    private final List<Labeling> labelings;
+    private final long lastTimestamp;
+    private final int noveltyCount;
+    private final double unkR;
+    private final double cer;
+
+    ProcessedBatch(final List<Labeling> labelings,
+                   final long lastTimestamp,
+                   final int noveltyCount,
+                   final double unkR,
+                   final double cer) {
+        this.labelings = labelings;
+        this.lastTimestamp = lastTimestamp;
+        this.noveltyCount = noveltyCount;
+        this.unkR = unkR;
+        this.cer = cer;
+    }
+
+    public List<Labeling> getLabelings() {
+        return labelings;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public int getNoveltyCount() {
+        return noveltyCount;
+    }
+
+    public double getUnkR() {
+        return unkR;
+    }
+
+    public double getCER() {
+        return cer;
+    }
+}
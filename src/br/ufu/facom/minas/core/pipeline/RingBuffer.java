@@ -0,0 +1,162 @@
+package br.ufu.facom.minas.core.pipeline;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free ring buffer connecting two stages of a
+ * {@link MINASPipeline}, with a single producer thread and a single consumer
+ * thread. The producer waits while the buffer is full, which propagates the
+ * backpressure to the previous stages, and the consumer waits while it is
+ * empty. The waits spin briefly before parking the thread.
+ *
+ * <p>The buffer also keeps the statistics used to find the bottleneck of the
+ * pipeline: the mean occupancy seen by the consumer and the number of times
+ * each side had to wait.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+final class RingBuffer<E> {
+
+    private static final int SPINS = 100;
+    private static final long PARK_NANOS = 10000;
+
+    private final Object[] elements;
+    private final int mask;
+
+    // Index of the next element to be taken, written by the consumer, and
+    // index of the next element to be put, written by the producer.
+    private final AtomicLong head;
+    private final AtomicLong tail;
+
+    private volatile boolean isClosed;
+    private volatile boolean isCancelled;
+
+    // Statistics, each one written by a single thread.
+    private volatile long fullCount;
+    private volatile long emptyCount;
+    private volatile long takeCount;
+    private volatile long occupancySum;
+
+    /**
+     * @param capacity the minimum capacity of the buffer, which is rounded up
+     *                 to a power of two.
+     */
+    RingBuffer(final int capacity) {
+        final int size = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1);
+        this.elements = new Object[size];
+        this.mask = size - 1;
+        this.head = new AtomicLong();
+        this.tail = new AtomicLong();
+    }
+
+    int getCapacity() {
+        return this.elements.length;
+    }
+
+    /**
+     * Puts an element at the end of the buffer, waiting while it is full.
+     * Must only be called by the producer thread.
+     *
+     * @param element the element.
+     * @throws CancellationException if the buffer was cancelled.
+     */
+    void put(final E element) {
+
+        final long t = this.tail.get();
+        if (t - this.head.get() == this.elements.length) {
+            ++this.fullCount;
+            int spins = 0;
+            while (t - this.head.get() == this.elements.length) {
+                this.await(spins++);
+            }
+        }
+
+        this.elements[(int) t & this.mask] = element;
+        this.tail.lazySet(t + 1);
+    }
+
+    /**
+     * Takes the element at the beginning of the buffer, waiting while it is
+     * empty. Must only be called by the consumer thread.
+     *
+     * @return the element, or {@code null} if the buffer is empty and was
+     * closed by the producer.
+     * @throws CancellationException if the buffer was cancelled.
+     */
+    @SuppressWarnings("unchecked")
+    E take() {
+
+        final long h = this.head.get();
+        if (h == this.tail.get()) {
+            ++this.emptyCount;
+            int spins = 0;
+            while (h == this.tail.get()) {
+                // The tail is read again after the flag, since the last
+                // element may have been put right before the buffer was
+                // closed.
+                if (this.isClosed && h == this.tail.get()) {
+                    return null;
+                }
+                this.await(spins++);
+            }
+        }
+
+        this.occupancySum += this.tail.get() - h;
+        ++this.takeCount;
+
+        final int index = (int) h & this.mask;
+        final E element = (E) this.elements[index];
+        this.elements[index] = null;
+        this.head.lazySet(h + 1);
+        return element;
+    }
+
+    /**
+     * Signals that no more elements will be put. Must only be called by the
+     * producer thread.
+     */
+    void close() {
+        this.isClosed = true;
+    }
+
+    /**
+     * Makes any current or future wait fail, so that the stages stop when
+     * one of them fails.
+     */
+    void cancel() {
+        this.isCancelled = true;
+    }
+
+    long getFullCount() {
+        return fullCount;
+    }
+
+    long getEmptyCount() {
+        return emptyCount;
+    }
+
+    /**
+     * Returns the mean number of elements inside the buffer when the
+     * consumer took an element, including that element.
+     *
+     * @return the mean occupancy.
+     */
+    double getMeanOccupancy() {
+        final long takes = this.takeCount;
+        return takes == 0 ? 0 : (double) this.occupancySum / takes;
+    }
+
+    private void await(final int spins) {
+        if (this.isCancelled) {
+            throw new CancellationException("The pipeline was cancelled");
+        }
+        if (spins < SPINS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+}
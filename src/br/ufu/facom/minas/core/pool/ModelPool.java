@@ -0,0 +1,458 @@
+package br.ufu.facom.minas.core.pool;
+
+import br.ufu.facom.minas.core.MINAS;
+import br.ufu.facom.minas.core.MINASConfiguration;
+import br.ufu.facom.minas.core.MINASModel;
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+import br.ufu.facom.minas.core.datastructure.Labeling;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Pool of {@link MINASModel}s, one per stream, sharing a single
+ * {@link MINASConfiguration} and a fixed number of worker threads. It is
+ * meant for applications that monitor many independent streams, such as one
+ * per device, most of which are idle at any given time.
+ *
+ * <p>The data instances submitted to a stream are processed one at a time,
+ * in the order they were submitted, while different streams are processed
+ * in parallel. A worker processes at most {@value #QUANTUM} data instances
+ * of a stream before yielding to the other streams.
+ *
+ * <p>The pool keeps the estimated heap retained by the live models (see
+ * {@link MINASModel#estimateRetainedBytes()}) below a memory budget. When the
+ * budget is exceeded, the least recently used models are hibernated: they
+ * are written to a compressed byte array (see
+ * {@link MINASModel#writeTo(java.io.DataOutput)}) and released. Models that
+ * are not used for longer than the idle timeout are hibernated as well. A
+ * hibernated model is read back transparently by the worker that processes
+ * the next data instance of its stream. The models with data instances
+ * waiting to be processed are never hibernated, so the budget may be
+ * exceeded while more streams than the budget allows are busy.
+ *
+ * <p>The configuration is shared by all the workers, so its preprocessing
+ * stage, if any, must be fitted before the pool is used.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class ModelPool {
+
+    /**
+     * Maximum number of data instances of a stream processed by a worker
+     * before it yields to the other streams.
+     */
+    public static final int QUANTUM = 64;
+
+    // Fraction of the budget the live models are brought down to once it is
+    // exceeded, so that the hibernations are not triggered again right away.
+    private static final double LOW_WATERMARK = 0.9;
+
+    private final MINASConfiguration config;
+    private final long memoryBudget;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService maintenance;
+
+    private final Map<String, Stream> streams;
+
+    // Streams in least recently used order, guarded by itself.
+    private final LinkedHashMap<String, Stream> recentlyUsed;
+
+    private final AtomicLong liveBytes;
+    private final AtomicLong hibernatedBytes;
+    private final AtomicLong hibernationCount;
+    private final AtomicLong reloadCount;
+
+    /**
+     * @param config the MINAS configuration shared by all the models.
+     * @param workerCount the number of worker threads.
+     * @param memoryBudget the maximum number of bytes retained by the live
+     *                     models, as estimated by
+     *                     {@link MINASModel#estimateRetainedBytes()}.
+     * @param idleTimeoutMillis the time after which a model that was not used
+     *                          is hibernated, or zero to hibernate models
+     *                          only when the memory budget is exceeded.
+     */
+    public ModelPool(final MINASConfiguration config,
+                     final int workerCount,
+                     final long memoryBudget,
+                     final long idleTimeoutMillis) {
+
+        this.config = config;
+        this.memoryBudget = memoryBudget;
+        this.streams = new ConcurrentHashMap<>();
+        this.recentlyUsed = new LinkedHashMap<>(16, 0.75f, true);
+        this.liveBytes = new AtomicLong();
+        this.hibernatedBytes = new AtomicLong();
+        this.hibernationCount = new AtomicLong();
+        this.reloadCount = new AtomicLong();
+
+        this.workers = Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "minas-pool-worker-" + this.count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        if (idleTimeoutMillis > 0) {
+            this.maintenance = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "minas-pool-maintenance");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            final long period = Math.max(1, idleTimeoutMillis / 2);
+            this.maintenance.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    hibernateIdle(idleTimeoutMillis);
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.maintenance = null;
+        }
+    }
+
+    /**
+     * Adds the model of a new stream to the pool.
+     *
+     * @param streamId the id of the stream.
+     * @param model the model, initialized with the configuration of the
+     *              pool.
+     * @throws IllegalArgumentException if the stream is already in the pool.
+     */
+    public void register(final String streamId, final MINASModel model) {
+
+        final Stream stream = new Stream(streamId, model);
+        synchronized (this.recentlyUsed) {
+            if (this.streams.containsKey(streamId)) {
+                throw new IllegalArgumentException("The stream " + streamId + " is already in the pool");
+            }
+            this.streams.put(streamId, stream);
+            this.recentlyUsed.put(streamId, stream);
+            this.liveBytes.addAndGet(stream.liveBytes);
+        }
+
+        this.enforceBudget();
+    }
+
+    /**
+     * Submits a data instance of a stream to be processed with
+     * {@link MINAS#process(DataInstance, MINASModel, MINASConfiguration)}.
+     *
+     * @param streamId the id of the stream.
+     * @param instance the data instance.
+     * @return the future result of the processing, which is the list of
+     * labelings returned by MINAS.
+     * @throws IllegalArgumentException if the stream is not in the pool.
+     */
+    public Future<List<Labeling>> submit(final String streamId, final DataInstance instance) {
+
+        final Stream stream = this.streams.get(streamId);
+        if (stream == null) {
+            throw new IllegalArgumentException("The stream " + streamId + " is not in the pool");
+        }
+
+        final Task task = new Task(new Callable<List<Labeling>>() {
+            @Override
+            public List<Labeling> call() {
+                return MINAS.process(instance, stream.model, config);
+            }
+        });
+
+        synchronized (stream) {
+            stream.pending.add(task);
+            if (!stream.isScheduled) {
+                stream.isScheduled = true;
+                this.workers.execute(stream);
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Returns whether the model of a stream is hibernated.
+     *
+     * @param streamId the id of the stream.
+     * @return whether the model is hibernated.
+     * @throws IllegalArgumentException if the stream is not in the pool.
+     */
+    public boolean isHibernated(final String streamId) {
+        final Stream stream = this.streams.get(streamId);
+        if (stream == null) {
+            throw new IllegalArgumentException("The stream " + streamId + " is not in the pool");
+        }
+        synchronized (stream) {
+            return stream.hibernated != null;
+        }
+    }
+
+    public int getStreamCount() {
+        return this.streams.size();
+    }
+
+    /**
+     * Returns the estimated number of bytes retained by the live models.
+     *
+     * @return the number of bytes.
+     */
+    public long getLiveBytes() {
+        return this.liveBytes.get();
+    }
+
+    /**
+     * Returns the number of bytes taken by the hibernated models.
+     *
+     * @return the number of bytes.
+     */
+    public long getHibernatedBytes() {
+        return this.hibernatedBytes.get();
+    }
+
+    public long getHibernationCount() {
+        return this.hibernationCount.get();
+    }
+
+    public long getReloadCount() {
+        return this.reloadCount.get();
+    }
+
+    /**
+     * Hibernates the models that were not used for longer than the given
+     * time and have no data instance waiting to be processed.
+     *
+     * @param idleMillis the idle time.
+     */
+    public void hibernateIdle(final long idleMillis) {
+
+        final long threshold = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        for (final Stream stream : this.leastRecentlyUsed()) {
+            if (stream.lastUsedNanos - threshold > 0) {
+                // The streams are in least recently used order.
+                break;
+            }
+            this.hibernate(stream);
+        }
+    }
+
+    /**
+     * Processes the data instances already submitted and stops the workers.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void close() throws InterruptedException {
+        if (this.maintenance != null) {
+            this.maintenance.shutdownNow();
+        }
+        // The streams resubmit themselves while they have pending data
+        // instances, so the workers are only shut down once every stream is
+        // idle.
+        for (final Stream stream : this.streams.values()) {
+            synchronized (stream) {
+                while (stream.isScheduled) {
+                    stream.wait();
+                }
+            }
+        }
+        this.workers.shutdown();
+        this.workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    private List<Stream> leastRecentlyUsed() {
+        synchronized (this.recentlyUsed) {
+            return new ArrayList<>(this.recentlyUsed.values());
+        }
+    }
+
+    private void enforceBudget() {
+
+        if (this.liveBytes.get() <= this.memoryBudget) {
+            return;
+        }
+
+        final long target = (long) (this.memoryBudget * LOW_WATERMARK);
+        final Iterator<Stream> iterator = this.leastRecentlyUsed().iterator();
+        while (this.liveBytes.get() > target && iterator.hasNext()) {
+            this.hibernate(iterator.next());
+        }
+    }
+
+    /**
+     * Hibernates the model of a stream, unless it is already hibernated or
+     * it is being used by a worker.
+     */
+    private void hibernate(final Stream stream) {
+
+        synchronized (stream) {
+
+            if (stream.isScheduled || stream.model == null) {
+                return;
+            }
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (final DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+                stream.model.writeTo(out);
+            } catch (final IOException | IllegalStateException e) {
+                // The model can't be hibernated, such as when its sleep
+                // memory spills to disk, so it is kept alive.
+                return;
+            } finally {
+                deflater.end();
+            }
+
+            stream.hibernated = bytes.toByteArray();
+            stream.model = null;
+            this.liveBytes.addAndGet(-stream.liveBytes);
+            this.hibernatedBytes.addAndGet(stream.hibernated.length);
+            stream.liveBytes = 0;
+            this.hibernationCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * State of a stream. The model is only accessed by the worker processing
+     * the stream while it is scheduled, and under the lock of the stream
+     * otherwise.
+     */
+    private final class Stream implements Runnable {
+
+        private final String id;
+        private final ArrayDeque<Task> pending;
+        private boolean isScheduled;
+        private MINASModel model;
+        private byte[] hibernated;
+        private long liveBytes;
+        private volatile long lastUsedNanos;
+
+        private Stream(final String id, final MINASModel model) {
+            this.id = id;
+            this.pending = new ArrayDeque<>();
+            this.model = model;
+            this.liveBytes = model.estimateRetainedBytes();
+            this.lastUsedNanos = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+
+            try {
+                this.reload();
+            } catch (final IOException e) {
+                this.failPending(e);
+                return;
+            }
+
+            boolean isRescheduled = false;
+            for (int processed = 0; ; ++processed) {
+
+                final Task task;
+                synchronized (this) {
+                    if (this.pending.isEmpty()) {
+                        break;
+                    }
+                    if (processed == QUANTUM) {
+                        isRescheduled = true;
+                        break;
+                    }
+                    task = this.pending.poll();
+                }
+                task.run();
+            }
+
+            this.lastUsedNanos = System.nanoTime();
+            synchronized (recentlyUsed) {
+                recentlyUsed.get(this.id);
+            }
+
+            final long bytes = this.model.estimateRetainedBytes();
+            ModelPool.this.liveBytes.addAndGet(bytes - this.liveBytes);
+            this.liveBytes = bytes;
+
+            synchronized (this) {
+                if (isRescheduled || !this.pending.isEmpty()) {
+                    workers.execute(this);
+                    return;
+                }
+                this.isScheduled = false;
+                this.notifyAll();
+            }
+
+            enforceBudget();
+        }
+
+        private void reload() throws IOException {
+
+            if (this.model != null) {
+                return;
+            }
+
+            try (final DataInputStream in = new DataInputStream(
+                    new InflaterInputStream(new ByteArrayInputStream(this.hibernated)))) {
+                this.model = MINASModel.readFrom(in, config);
+            }
+
+            hibernatedBytes.addAndGet(-this.hibernated.length);
+            this.hibernated = null;
+            this.liveBytes = this.model.estimateRetainedBytes();
+            ModelPool.this.liveBytes.addAndGet(this.liveBytes);
+            reloadCount.incrementAndGet();
+        }
+
+        /**
+         * Fails the pending data instances when the model could not be read
+         * back. The model stays hibernated, so the next data instances fail
+         * as well.
+         */
+        private void failPending(final IOException e) {
+            synchronized (this) {
+                Task task;
+                while ((task = this.pending.poll()) != null) {
+                    task.fail(new IllegalStateException("Could not reload the model of the stream " + this.id, e));
+                }
+                this.isScheduled = false;
+                this.notifyAll();
+            }
+        }
+    }
+
+    private static final class Task extends FutureTask<List<Labeling>> {
+
+        private Task(final Callable<List<Labeling>> callable) {
+            super(callable);
+        }
+
+        private void fail(final Throwable t) {
+            this.setException(t);
+        }
+    }
+}
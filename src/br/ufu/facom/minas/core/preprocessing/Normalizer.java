@@ -0,0 +1,114 @@
+package br.ufu.facom.minas.core.preprocessing;
+
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+
+import java.util.List;
+
+/**
+ * Implementation of the {@link Preprocessor} interface that scales each
+ * feature independently, either to zero mean and unit variance (z-score) or
+ * to the [0, 1] interval (min-max). The statistics are accumulated in a
+ * single pass over the training set, using Welford's method for the variance,
+ * and are frozen afterwards, so online data instances falling outside of the
+ * training range are not clipped. Features that are constant in the training
+ * set are only shifted.
+ *
+ * <p>The transformed data instances are always dense.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class Normalizer implements Preprocessor {
+
+    public enum Mode {
+        Z_SCORE,
+        MIN_MAX
+    }
+
+    private final Mode mode;
+    private double[] offsets;
+    private double[] scales;
+
+    public Normalizer(final Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    @Override
+    public void fit(final List<DataInstance> instances) {
+
+        if (instances.isEmpty()) {
+            throw new IllegalArgumentException("The training set is empty");
+        }
+
+        final int dimensions = instances.get(0).getLength();
+        final double[] offsets = new double[dimensions];
+        final double[] spreads = new double[dimensions];
+
+        if (this.mode == Mode.Z_SCORE) {
+
+            // Welford's method, with the sum of the squared deviations kept
+            // in the spreads until the end.
+            long n = 0;
+            for (final DataInstance instance : instances) {
+                ++n;
+                for (int i = 0; i < dimensions; ++i) {
+                    final double value = instance.get(i);
+                    final double delta = value - offsets[i];
+                    offsets[i] += delta / n;
+                    spreads[i] += delta * (value - offsets[i]);
+                }
+            }
+            for (int i = 0; i < dimensions; ++i) {
+                spreads[i] = Math.sqrt(spreads[i] / n);
+            }
+
+        } else {
+
+            final double[] max = new double[dimensions];
+            for (int i = 0; i < dimensions; ++i) {
+                offsets[i] = Double.POSITIVE_INFINITY;
+                max[i] = Double.NEGATIVE_INFINITY;
+            }
+            for (final DataInstance instance : instances) {
+                for (int i = 0; i < dimensions; ++i) {
+                    offsets[i] = Math.min(offsets[i], instance.get(i));
+                    max[i] = Math.max(max[i], instance.get(i));
+                }
+            }
+            for (int i = 0; i < dimensions; ++i) {
+                spreads[i] = max[i] - offsets[i];
+            }
+        }
+
+        final double[] scales = new double[dimensions];
+        for (int i = 0; i < dimensions; ++i) {
+            scales[i] = spreads[i] > 0 ? 1 / spreads[i] : 1;
+        }
+
+        this.offsets = offsets;
+        this.scales = scales;
+    }
+
+    @Override
+    public boolean isFitted() {
+        return this.scales != null;
+    }
+
+    @Override
+    public DataInstance apply(final DataInstance instance) {
+
+        if (this.scales == null) {
+            throw new IllegalStateException("The normalizer was not fitted");
+        }
+
+        final double[] x = new double[this.scales.length];
+        for (int i = 0; i < x.length; ++i) {
+            x[i] = (instance.get(i) - this.offsets[i]) * this.scales[i];
+        }
+        return new DataInstance(x, instance.getLabel(), instance.getTimestamp());
+    }
+}
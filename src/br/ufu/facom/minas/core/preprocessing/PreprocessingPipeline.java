@@ -0,0 +1,67 @@
+package br.ufu.facom.minas.core.preprocessing;
+
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementation of the {@link Preprocessor} interface that chains several
+ * stages, such as a {@link Normalizer} followed by a
+ * {@link RandomProjection}. Each stage is fitted over the training set as
+ * transformed by the previous stages.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class PreprocessingPipeline implements Preprocessor {
+
+    private final List<Preprocessor> stages;
+
+    public PreprocessingPipeline(final Preprocessor... stages) {
+        this.stages = new ArrayList<>(Arrays.asList(stages));
+    }
+
+    public List<Preprocessor> getStages() {
+        return new ArrayList<>(stages);
+    }
+
+    @Override
+    public void fit(final List<DataInstance> instances) {
+
+        List<DataInstance> transformed = instances;
+        for (int i = 0; i < this.stages.size(); ++i) {
+
+            final Preprocessor stage = this.stages.get(i);
+            stage.fit(transformed);
+
+            // The last stage does not need its output.
+            if (i < this.stages.size() - 1) {
+                final List<DataInstance> next = new ArrayList<>(transformed.size());
+                for (final DataInstance instance : transformed) {
+                    next.add(stage.apply(instance));
+                }
+                transformed = next;
+            }
+        }
+    }
+
+    @Override
+    public boolean isFitted() {
+        for (final Preprocessor stage : this.stages) {
+            if (!stage.isFitted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public DataInstance apply(DataInstance instance) {
+        for (final Preprocessor stage : this.stages) {
+            instance = stage.apply(instance);
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,45 @@
+package br.ufu.facom.minas.core.preprocessing;
+
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+
+import java.util.List;
+
+/**
+ * This interface represents a preprocessing stage applied to every data
+ * instance before it reaches MINAS, both in the offline and online phase
+ * (see {@link br.ufu.facom.minas.core.MINASConfiguration}). The statistics
+ * of a stage are computed from the training set and are frozen afterwards,
+ * so that all the data instances are transformed in the same way.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public interface Preprocessor {
+
+    /**
+     * Computes the statistics of this stage from the training set and
+     * freezes them.
+     *
+     * @param instances the training set.
+     */
+    void fit(final List<DataInstance> instances);
+
+    /**
+     * Returns whether this stage is ready to transform data instances, that
+     * is, whether it was already fitted or does not depend on the training
+     * set.
+     *
+     * @return whether this stage is ready.
+     */
+    boolean isFitted();
+
+    /**
+     * Transforms a data instance. The label and the timestamp of the data
+     * instance are kept.
+     *
+     * @param instance the data instance.
+     * @return the transformed data instance.
+     * @throws IllegalStateException if this stage is not ready.
+     */
+    DataInstance apply(final DataInstance instance);
+}
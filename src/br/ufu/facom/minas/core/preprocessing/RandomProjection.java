@@ -0,0 +1,139 @@
+package br.ufu.facom.minas.core.preprocessing;
+
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Implementation of the {@link Preprocessor} interface that reduces the
+ * dimensionality of the data instances through a very sparse random
+ * projection (Li, Hastie and Church, 2006), which preserves the Euclidean
+ * distances up to a small distortion, as stated by the Johnson-Lindenstrauss
+ * lemma. For {@code d} input features, each element of the projection matrix
+ * is {@code +sqrt(s / k)} or {@code -sqrt(s / k)} with probability
+ * {@code 1 / (2s)} each, and zero otherwise, where {@code s = sqrt(d)} and
+ * {@code k} is the target dimensionality. Only the non-zero elements of the
+ * matrix are kept, grouped by input feature, so the cost of projecting a data
+ * instance is proportional to {@code k * sqrt(d)}, or less for sparse data
+ * instances.
+ *
+ * <p>The matrix only depends on the seed and on the dimensionality, which is
+ * taken from the first data instance seen.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class RandomProjection implements Preprocessor {
+
+    private final int targetDimensions;
+    private final long seed;
+
+    // Non-zero elements of the projection matrix, grouped by input feature:
+    // the output features and the weights of the input feature j.
+    private int[][] outputs;
+    private double[][] weights;
+
+    /**
+     * @param targetDimensions the dimensionality of the projected data
+     *                         instances.
+     * @param seed the seed of the projection matrix.
+     * @throws IllegalArgumentException if {@code targetDimensions} is not
+     * positive.
+     */
+    public RandomProjection(final int targetDimensions, final long seed) {
+
+        if (targetDimensions < 1) {
+            throw new IllegalArgumentException("The target dimensionality must be positive");
+        }
+
+        this.targetDimensions = targetDimensions;
+        this.seed = seed;
+    }
+
+    public int getTargetDimensions() {
+        return targetDimensions;
+    }
+
+    @Override
+    public void fit(final List<DataInstance> instances) {
+        if (!instances.isEmpty()) {
+            this.generate(instances.get(0).getLength());
+        }
+    }
+
+    /**
+     * Always returns {@code true}, since the projection matrix does not
+     * depend on the training set.
+     *
+     * @return {@code true}.
+     */
+    @Override
+    public boolean isFitted() {
+        return true;
+    }
+
+    @Override
+    public DataInstance apply(final DataInstance instance) {
+
+        if (this.outputs == null || this.outputs.length != instance.getLength()) {
+            this.generate(instance.getLength());
+        }
+
+        final double[] x = new double[this.targetDimensions];
+        if (instance.isSparse()) {
+            final int[] indices = instance.getIndices();
+            final double[] values = instance.getNonZeroValues();
+            for (int k = 0; k < indices.length; ++k) {
+                this.accumulate(indices[k], values[k], x);
+            }
+        } else {
+            for (int j = 0; j < instance.getLength(); ++j) {
+                final double value = instance.get(j);
+                if (value != 0) {
+                    this.accumulate(j, value, x);
+                }
+            }
+        }
+
+        return new DataInstance(x, instance.getLabel(), instance.getTimestamp());
+    }
+
+    private void accumulate(final int j, final double value, final double[] x) {
+        final int[] outputs = this.outputs[j];
+        final double[] weights = this.weights[j];
+        for (int k = 0; k < outputs.length; ++k) {
+            x[outputs[k]] += weights[k] * value;
+        }
+    }
+
+    private void generate(final int dimensions) {
+
+        final double s = Math.max(1, Math.sqrt(dimensions));
+        final double probability = 1 / s;
+        final double weight = Math.sqrt(s / this.targetDimensions);
+
+        final Random random = new Random(this.seed);
+        final int[][] outputs = new int[dimensions][];
+        final double[][] weights = new double[dimensions][];
+        final int[] column = new int[this.targetDimensions];
+        final double[] columnWeights = new double[this.targetDimensions];
+
+        for (int j = 0; j < dimensions; ++j) {
+            int count = 0;
+            for (int k = 0; k < this.targetDimensions; ++k) {
+                if (random.nextDouble() < probability) {
+                    column[count] = k;
+                    columnWeights[count] = random.nextBoolean() ? weight : -weight;
+                    ++count;
+                }
+            }
+            outputs[j] = Arrays.copyOf(column, count);
+            weights[j] = Arrays.copyOf(columnWeights, count);
+        }
+
+        this.outputs = outputs;
+        this.weights = weights;
+    }
+}
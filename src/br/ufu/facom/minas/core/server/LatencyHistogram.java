@@ -0,0 +1,134 @@
+package br.ufu.facom.minas.core.server;
+
+import java.util.Locale;
+
+/**
+ * Histogram of latencies, in microseconds, with logarithmic buckets whose
+ * width is at most 1/32 of their lower bound, so that any percentile is
+ * reported with a relative error below about 3% using a fixed amount of
+ * memory. Values below 64 are recorded exactly.
+ *
+ * <p>The methods are synchronized, so that a histogram can be written by one
+ * thread and read by another.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts;
+    private long count;
+    private long sum;
+    private long max;
+
+    public LatencyHistogram() {
+        this.counts = new long[BUCKET_COUNT];
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param micros the latency, in microseconds. Negative values are
+     *               recorded as zero.
+     */
+    public synchronized void record(final long micros) {
+        final long value = Math.max(micros, 0);
+        ++this.counts[index(value)];
+        ++this.count;
+        this.sum += value;
+        this.max = Math.max(this.max, value);
+    }
+
+    /**
+     * Adds the latencies recorded by another histogram to this one.
+     *
+     * @param other the other histogram.
+     */
+    public void merge(final LatencyHistogram other) {
+
+        final long[] otherCounts;
+        final long otherCount;
+        final long otherSum;
+        final long otherMax;
+        synchronized (other) {
+            otherCounts = other.counts.clone();
+            otherCount = other.count;
+            otherSum = other.sum;
+            otherMax = other.max;
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                this.counts[i] += otherCounts[i];
+            }
+            this.count += otherCount;
+            this.sum += otherSum;
+            this.max = Math.max(this.max, otherMax);
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized double getMean() {
+        return this.count == 0 ? 0 : (double) this.sum / this.count;
+    }
+
+    /**
+     * Returns the latency below or at which the given percentage of the
+     * recorded latencies lie, as the upper bound of its bucket.
+     *
+     * @param percentile the percentage, between 0 and 100.
+     * @return the latency, in microseconds, or zero if nothing was recorded.
+     */
+    public synchronized long getPercentile(final double percentile) {
+
+        if (this.count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.count));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            cumulative += this.counts[i];
+            if (cumulative >= rank) {
+                return Math.min(upperBound(i), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT, "count=%d; mean_us=%.1f; p50_us=%d; p90_us=%d; p99_us=%d; p999_us=%d; max_us=%d",
+                this.count, this.getMean(), this.getPercentile(50), this.getPercentile(90),
+                this.getPercentile(99), this.getPercentile(99.9), this.max);
+    }
+
+    private static int index(final long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long upperBound(final int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        final int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        final long subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
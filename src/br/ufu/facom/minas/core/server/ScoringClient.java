@@ -0,0 +1,98 @@
+package br.ufu.facom.minas.core.server;
+
+import br.ufu.facom.minas.core.datastructure.Labeling;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * Blocking client of a {@link ScoringServer}, which sends one data instance
+ * at a time and waits for its acknowledgement. A client must only be used by
+ * one thread at a time; concurrent requests are made through several
+ * clients.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class ScoringClient implements Closeable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private long nextRequestId;
+
+    public ScoringClient(final String host, final int port) throws IOException {
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream()));
+    }
+
+    /**
+     * Sends a data instance to the server and waits until it is processed.
+     *
+     * @param x the features of the data instance.
+     * @param label the true label of the data instance, used to update the
+     *              confusion matrix of the model, or an empty string if it
+     *              is not known.
+     * @param labelings the list where the labelings received while waiting
+     *                  are added, which include the labeling of the data
+     *                  instance, if any, and delayed labelings of data
+     *                  instances sent earlier.
+     * @return the timestamp assigned to the data instance by the server.
+     * @throws IOException if the connection fails or the server sends an
+     * invalid frame.
+     */
+    public long classify(final double[] x,
+                         final String label,
+                         final List<Labeling> labelings) throws IOException {
+
+        final long requestId = this.nextRequestId++;
+        final byte[] labelBytes = label.getBytes(ScoringProtocol.UTF_8);
+
+        this.out.writeInt(1 + 8 + 4 + 8 * x.length + 2 + labelBytes.length);
+        this.out.writeByte(ScoringProtocol.INSTANCE);
+        this.out.writeLong(requestId);
+        this.out.writeInt(x.length);
+        for (final double value : x) {
+            this.out.writeDouble(value);
+        }
+        this.out.writeShort(labelBytes.length);
+        this.out.write(labelBytes);
+        this.out.flush();
+
+        while (true) {
+
+            this.in.readInt();
+            final byte type = this.in.readByte();
+
+            if (type == ScoringProtocol.LABELING) {
+                final long timestamp = this.in.readLong();
+                final boolean isNovelty = this.in.readByte() != 0;
+                final byte[] bytes = new byte[this.in.readUnsignedShort()];
+                this.in.readFully(bytes);
+                labelings.add(new Labeling(timestamp, new String(bytes, ScoringProtocol.UTF_8), isNovelty));
+            } else if (type == ScoringProtocol.ACKNOWLEDGEMENT) {
+                final long acknowledgedId = this.in.readLong();
+                final long timestamp = this.in.readLong();
+                if (acknowledgedId != requestId) {
+                    throw new IOException("Unexpected acknowledgement of request " + acknowledgedId);
+                }
+                return timestamp;
+            } else {
+                throw new IOException("Unknown frame type " + type);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.socket.close();
+    }
+}
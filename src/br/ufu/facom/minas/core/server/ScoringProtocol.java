@@ -0,0 +1,49 @@
+package br.ufu.facom.minas.core.server;
+
+import java.nio.charset.Charset;
+
+/**
+ * Binary framing used between a {@link ScoringServer} and its clients. Every
+ * frame starts with its length in bytes, as an {@code int} that does not
+ * count itself, followed by a type byte and the payload. All the values are
+ * big-endian, as written by {@link java.io.DataOutputStream} and read by
+ * {@link java.nio.ByteBuffer} by default, and the labels are UTF-8 strings
+ * preceded by their length as an unsigned {@code short}.
+ *
+ * <ul>
+ *     <li>{@link #INSTANCE}, from the client: the request id
+ *     ({@code long}), the number of features ({@code int}), the features
+ *     ({@code double}s) and the true label, which is only used to update the
+ *     confusion matrix and may be empty if it is not known. The number of
+ *     features must be the dimensionality of the model, otherwise the
+ *     connection is closed.</li>
+ *     <li>{@link #ACKNOWLEDGEMENT}, from the server: the request id
+ *     ({@code long}) and the timestamp assigned to the instance
+ *     ({@code long}), sent once the instance has been processed. The
+ *     labeling of the instance, if any, is sent before it.</li>
+ *     <li>{@link #LABELING}, from the server: the timestamp
+ *     ({@code long}), whether the label is a novelty pattern ({@code byte})
+ *     and the label. The labelings of instances of earlier requests, which
+ *     are delayed until they become part of a novelty pattern, may arrive at
+ *     any time afterwards.</li>
+ * </ul>
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public final class ScoringProtocol {
+
+    public static final byte INSTANCE = 1;
+    public static final byte ACKNOWLEDGEMENT = 2;
+    public static final byte LABELING = 3;
+
+    /**
+     * Maximum length of a frame, above which the connection is closed.
+     */
+    public static final int MAX_FRAME_LENGTH = 1 << 24;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ScoringProtocol() {
+    }
+}
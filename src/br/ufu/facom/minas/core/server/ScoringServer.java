@@ -0,0 +1,558 @@
+package br.ufu.facom.minas.core.server;
+
+import br.ufu.facom.minas.core.MINAS;
+import br.ufu.facom.minas.core.MINASConfiguration;
+import br.ufu.facom.minas.core.MINASModel;
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+import br.ufu.facom.minas.core.datastructure.Labeling;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Serves the online phase of MINAS over TCP, using the framing described in
+ * {@link ScoringProtocol}, so that many clients can have their data instances
+ * classified by the same model.
+ *
+ * <p>A single thread handles all the connections through a {@link Selector},
+ * decoding the requests and writing the responses without blocking. The
+ * requests are handed to the classifier thread through a bounded queue; when
+ * it is full, the network thread stops reading until there is room again.
+ * The classifier thread takes every request waiting in the queue, up to the
+ * maximum batch size, and processes them at once with
+ * {@link MINAS#process(List, MINASModel, MINASConfiguration)}, so that under
+ * load the requests are coalesced into micro-batches. The instances receive
+ * consecutive timestamps in the order they are taken from the queue.
+ *
+ * <p>The labelings are sent to the connection the instance came from. The
+ * delayed labelings are routed the same way, as long as they are produced
+ * before the instance could have expired from the temporary memory.
+ *
+ * <p>The number of features of every instance must match the dimensionality
+ * of the model or, if the model has no micro-cluster yet, of the first
+ * instance accepted. A connection that sends a malformed frame or an instance
+ * of another dimensionality is closed, without affecting the others. If the
+ * processing of a batch fails, the connections of its requests are closed and
+ * the server goes on with the next batch.
+ *
+ * <p>The latency of each request, from the moment it is decoded to the moment
+ * its acknowledgement is ready, is recorded in {@link #getLatencies()}.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class ScoringServer {
+
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+    private static final long POLL_MILLIS = 100;
+
+    private final MINASModel model;
+    private final MINASConfiguration config;
+    private final int maxBatchSize;
+
+    // Number of features of the instances, or -1 until the first instance
+    // is accepted if the model doesn't know it yet.
+    private final AtomicInteger dimensions;
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final BlockingQueue<Request> requests;
+    private final ConcurrentLinkedQueue<Connection> pendingWrites;
+
+    // Owners of the instances whose labelings may still be delayed, by
+    // timestamp. Only accessed by the classifier thread.
+    private final Map<Long, Connection> owners;
+    private long oldestOwnedTimestamp;
+
+    private final LatencyHistogram latencies;
+    private volatile long requestCount;
+    private volatile long batchCount;
+    private volatile long failedBatchCount;
+
+    private final AtomicReference<Throwable> failure;
+    private volatile boolean isRunning;
+    private Thread networkThread;
+    private Thread classifierThread;
+
+    /**
+     * @param model the model initialized in the offline phase.
+     * @param config the MINAS configuration to be used.
+     * @param address the address to listen to, usually on the loopback
+     *                interface. The port may be zero, in which case any free
+     *                port is used (see {@link #getPort()}).
+     * @param maxBatchSize the maximum number of requests processed at once.
+     * @param queueCapacity the maximum number of requests waiting to be
+     *                      processed.
+     * @throws IOException if the address could not be bound.
+     */
+    public ScoringServer(final MINASModel model,
+                         final MINASConfiguration config,
+                         final InetSocketAddress address,
+                         final int maxBatchSize,
+                         final int queueCapacity) throws IOException {
+
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("The maximum batch size must be positive");
+        }
+
+        this.model = model;
+        this.config = config;
+        this.maxBatchSize = maxBatchSize;
+        this.dimensions = new AtomicInteger(model.getDimensions());
+
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(address);
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+
+        this.requests = new ArrayBlockingQueue<>(queueCapacity);
+        this.pendingWrites = new ConcurrentLinkedQueue<>();
+        this.owners = new HashMap<>();
+        this.oldestOwnedTimestamp = model.getLastTimestamp() + 1;
+
+        this.latencies = new LatencyHistogram();
+        this.failure = new AtomicReference<>();
+    }
+
+    public int getPort() {
+        return this.serverChannel.socket().getLocalPort();
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatchCount;
+    }
+
+    /**
+     * Starts the network and classifier threads.
+     */
+    public synchronized void start() {
+
+        if (this.networkThread != null) {
+            throw new IllegalStateException("The server has already been started");
+        }
+        this.isRunning = true;
+
+        this.networkThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    serveConnections();
+                } catch (final Throwable t) {
+                    fail(t);
+                }
+            }
+        }, "minas-server-network");
+
+        this.classifierThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    classifyRequests();
+                } catch (final Throwable t) {
+                    fail(t);
+                }
+            }
+        }, "minas-server-classifier");
+
+        this.networkThread.start();
+        this.classifierThread.start();
+    }
+
+    /**
+     * Stops the server, closing every connection. The requests not processed
+     * yet are discarded.
+     *
+     * @throws Exception the failure that stopped the server earlier, if any.
+     */
+    public synchronized void close() throws Exception {
+
+        this.isRunning = false;
+        this.selector.wakeup();
+        if (this.networkThread != null) {
+            this.networkThread.join();
+            this.classifierThread.join();
+        }
+
+        for (final SelectionKey key : this.selector.keys()) {
+            key.channel().close();
+        }
+        this.selector.close();
+
+        final Throwable throwable = this.failure.get();
+        if (throwable instanceof Exception) {
+            throw (Exception) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+    }
+
+    private void fail(final Throwable t) {
+        this.failure.compareAndSet(null, t);
+        this.isRunning = false;
+        this.selector.wakeup();
+    }
+
+    private void serveConnections() throws IOException, InterruptedException {
+
+        while (this.isRunning) {
+
+            this.selector.select();
+
+            Connection connection;
+            while ((connection = this.pendingWrites.poll()) != null) {
+                connection.write();
+            }
+
+            final Iterator<SelectionKey> iterator = this.selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+
+                final SelectionKey key = iterator.next();
+                iterator.remove();
+
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    final SocketChannel channel = this.serverChannel.accept();
+                    if (channel != null) {
+                        channel.configureBlocking(false);
+                        channel.socket().setTcpNoDelay(true);
+                        final SelectionKey channelKey = channel.register(this.selector, SelectionKey.OP_READ);
+                        channelKey.attach(new Connection(channel, channelKey));
+                    }
+                    continue;
+                }
+
+                final Connection attached = (Connection) key.attachment();
+                if (key.isReadable()) {
+                    attached.read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    attached.write();
+                }
+            }
+        }
+    }
+
+    private void classifyRequests() throws IOException, InterruptedException {
+
+        final List<Request> batch = new ArrayList<>(this.maxBatchSize);
+        final List<DataInstance> instances = new ArrayList<>(this.maxBatchSize);
+        final Map<Connection, ResponseStream> responses = new IdentityHashMap<>();
+
+        while (this.isRunning) {
+
+            final Request first = this.requests.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            this.requests.drainTo(batch, this.maxBatchSize - 1);
+
+            long timestamp = this.model.getLastTimestamp();
+            for (final Request request : batch) {
+                ++timestamp;
+                request.timestamp = timestamp;
+                this.owners.put(timestamp, request.connection);
+                instances.add(new DataInstance(request.x, request.label, timestamp));
+            }
+
+            final List<Labeling> labelings;
+            try {
+                labelings = MINAS.process(instances, this.model, this.config);
+            } catch (final RuntimeException e) {
+                // The requests of the batch can't be told apart, so all of
+                // their connections are closed instead of the whole server.
+                for (final Request request : batch) {
+                    this.owners.remove(request.timestamp);
+                    request.connection.close();
+                }
+                this.selector.wakeup();
+                ++this.failedBatchCount;
+                batch.clear();
+                instances.clear();
+                continue;
+            }
+
+            for (final Labeling labeling : labelings) {
+                final Connection owner = this.owners.get(labeling.getTimestamp());
+                if (owner != null && !owner.isClosed) {
+                    final ResponseStream out = response(responses, owner);
+                    final byte[] label = labeling.getLabel().getBytes(ScoringProtocol.UTF_8);
+                    out.writeInt(1 + 8 + 1 + 2 + label.length);
+                    out.writeByte(ScoringProtocol.LABELING);
+                    out.writeLong(labeling.getTimestamp());
+                    out.writeByte(labeling.isNovelty() ? 1 : 0);
+                    out.writeShort(label.length);
+                    out.write(label);
+                }
+            }
+
+            for (final Request request : batch) {
+                if (!request.connection.isClosed) {
+                    final ResponseStream out = response(responses, request.connection);
+                    out.writeInt(1 + 8 + 8);
+                    out.writeByte(ScoringProtocol.ACKNOWLEDGEMENT);
+                    out.writeLong(request.requestId);
+                    out.writeLong(request.timestamp);
+                }
+            }
+
+            for (final Map.Entry<Connection, ResponseStream> entry : responses.entrySet()) {
+                entry.getKey().output.add(entry.getValue().toByteBuffer());
+                this.pendingWrites.add(entry.getKey());
+            }
+            this.selector.wakeup();
+
+            final long now = System.nanoTime();
+            for (final Request request : batch) {
+                this.latencies.record((now - request.receivedNanos) / 1000);
+            }
+            this.requestCount += batch.size();
+            ++this.batchCount;
+
+            // Forgets the owners of the instances that are too old to be
+            // still in the temporary memory.
+            final long expiry = this.model.getLastTimestamp()
+                    - this.config.getInstanceLifespan() - this.config.getWindowSize();
+            while (this.oldestOwnedTimestamp < expiry) {
+                this.owners.remove(this.oldestOwnedTimestamp);
+                ++this.oldestOwnedTimestamp;
+            }
+
+            batch.clear();
+            instances.clear();
+            responses.clear();
+        }
+    }
+
+    private static ResponseStream response(final Map<Connection, ResponseStream> responses,
+                                           final Connection connection) {
+
+        ResponseStream out = responses.get(connection);
+        if (out == null) {
+            out = new ResponseStream();
+            responses.put(connection, out);
+        }
+        return out;
+    }
+
+    /**
+     * A client connection. Its input buffer is only accessed by the network
+     * thread, while its output queue is fed by the classifier thread.
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private ByteBuffer input;
+        private final ConcurrentLinkedQueue<ByteBuffer> output;
+        private volatile boolean isClosed;
+
+        // Labels decoded from this connection, so that the instances of a
+        // class share the same string.
+        private final Map<String, String> labels;
+
+        private Connection(final SocketChannel channel, final SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+            this.input = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+            this.output = new ConcurrentLinkedQueue<>();
+            this.labels = new HashMap<>();
+        }
+
+        private void read() throws InterruptedException {
+
+            final int read;
+            try {
+                read = this.channel.read(this.input);
+            } catch (final IOException e) {
+                this.close();
+                return;
+            }
+            if (read < 0) {
+                this.close();
+                return;
+            }
+
+            this.input.flip();
+            while (this.input.remaining() >= 4) {
+
+                final int length = this.input.getInt(this.input.position());
+                if (length < 1 || length > ScoringProtocol.MAX_FRAME_LENGTH) {
+                    this.close();
+                    return;
+                }
+                if (this.input.remaining() < 4 + length) {
+                    if (this.input.capacity() < 4 + length) {
+                        final ByteBuffer larger = ByteBuffer.allocate(Math.max(4 + length, 2 * this.input.capacity()));
+                        larger.put(this.input);
+                        this.input = larger;
+                        return;
+                    }
+                    break;
+                }
+
+                // The frame is decoded from a view limited to its length, so
+                // that a malformed frame can't be read past its end.
+                this.input.getInt();
+                final ByteBuffer frame = this.input.slice();
+                frame.limit(length);
+                this.input.position(this.input.position() + length);
+                final Request request = this.decode(frame);
+                if (request == null || frame.hasRemaining()) {
+                    this.close();
+                    return;
+                }
+                while (!requests.offer(request, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (!isRunning) {
+                        return;
+                    }
+                }
+            }
+            this.input.compact();
+        }
+
+        /**
+         * Decodes a frame, returning {@code null} if it is malformed.
+         */
+        private Request decode(final ByteBuffer frame) {
+
+            if (frame.remaining() < 13 || frame.get() != ScoringProtocol.INSTANCE) {
+                return null;
+            }
+
+            final long requestId = frame.getLong();
+            final int dimensions = frame.getInt();
+            if (dimensions < 1 || dimensions > (frame.remaining() - 2) / 8) {
+                return null;
+            }
+            if (!ScoringServer.this.dimensions.compareAndSet(-1, dimensions)
+                    && ScoringServer.this.dimensions.get() != dimensions) {
+                return null;
+            }
+            final double[] x = new double[dimensions];
+            frame.asDoubleBuffer().get(x);
+            frame.position(frame.position() + 8 * dimensions);
+
+            final int labelLength = frame.getShort() & 0xFFFF;
+            if (labelLength > frame.remaining()) {
+                return null;
+            }
+            final byte[] bytes = new byte[labelLength];
+            frame.get(bytes);
+            final String decoded = new String(bytes, ScoringProtocol.UTF_8);
+            String label = this.labels.get(decoded);
+            if (label == null) {
+                this.labels.put(decoded, decoded);
+                label = decoded;
+            }
+
+            return new Request(this, requestId, x, label, System.nanoTime());
+        }
+
+        private void write() {
+
+            if (this.isClosed) {
+                return;
+            }
+
+            try {
+                ByteBuffer buffer;
+                while ((buffer = this.output.peek()) != null) {
+                    this.channel.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        this.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    this.output.poll();
+                }
+                this.key.interestOps(SelectionKey.OP_READ);
+            } catch (final IOException e) {
+                this.close();
+            }
+        }
+
+        /**
+         * Closes the connection. Also called by the classifier thread when
+         * the batch of one of its requests fails.
+         */
+        private void close() {
+            this.isClosed = true;
+            this.key.cancel();
+            try {
+                this.channel.close();
+            } catch (final IOException ignored) {
+                // The connection is discarded anyway.
+            }
+        }
+    }
+
+    /**
+     * Frames sent to a connection in response to a batch.
+     */
+    private static final class ResponseStream extends DataOutputStream {
+
+        private ResponseStream() {
+            super(new ByteArrayOutputStream());
+        }
+
+        private ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(((ByteArrayOutputStream) this.out).toByteArray());
+        }
+    }
+
+    private static final class Request {
+
+        private final Connection connection;
+        private final long requestId;
+        private final double[] x;
+        private final String label;
+        private final long receivedNanos;
+        private long timestamp;
+
+        private Request(final Connection connection,
+                        final long requestId,
+                        final double[] x,
+                        final String label,
+                        final long receivedNanos) {
+            this.connection = connection;
+            this.requestId = requestId;
+            this.x = x;
+            this.label = label;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package br.ufu.facom.minas.core.shard;
+
+/**
+ * Commands sent by a coordinator to a {@link ShardServer} over a TCP
+ * connection. Each command is a type byte followed by its arguments, written
+ * as by {@link java.io.DataOutputStream}. Only the queries are answered, so
+ * the other commands can be pipelined; the server applies the commands in
+ * the order they are received, so a query sees every change sent before it.
+ *
+ * <ul>
+ *     <li>{@link #ADD}: the id ({@code int}), the number of dimensions
+ *     ({@code int}) and the centroid ({@code double}s) of a micro-cluster.
+ *     The ids must be added in increasing order.</li>
+ *     <li>{@link #UPDATE}: the id and the new centroid of a
+ *     micro-cluster.</li>
+ *     <li>{@link #REMOVE}: the id of a micro-cluster.</li>
+ *     <li>{@link #CLEAR}: no arguments.</li>
+ *     <li>{@link #QUERY}: the number of points ({@code int}), the number
+ *     of dimensions ({@code int}) and the values of the points
+ *     ({@code double}s). The dimensions are sent even to a server that
+ *     holds no centroid yet, so that it always reads the whole query. The
+ *     server answers, for each point, with the
+ *     id of the closest centroid ({@code int}), or {@code -1} if it holds
+ *     none, and the squared distance to it ({@code double}). Among centroids
+ *     at the same distance, the one with the smallest id is chosen.</li>
+ * </ul>
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public final class ShardProtocol {
+
+    public static final byte ADD = 1;
+    public static final byte UPDATE = 2;
+    public static final byte REMOVE = 3;
+    public static final byte CLEAR = 4;
+    public static final byte QUERY = 5;
+
+    private ShardProtocol() {
+    }
+}
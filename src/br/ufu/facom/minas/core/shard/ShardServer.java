@@ -0,0 +1,179 @@
+package br.ufu.facom.minas.core.shard;
+
+import br.ufu.facom.minas.core.distance.DistanceKernel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process holding a partition of the centroids of a decision model and
+ * answering nearest centroid queries for a coordinator, following the
+ * {@link ShardProtocol}. Each connection holds its own partition, so a shard
+ * process can serve several coordinators.
+ *
+ * <p>The centroids are packed in a row-major matrix in the order of their
+ * ids and searched by the configured distance backend, so that the results
+ * are the same as the ones of the local searches.
+ *
+ * <p>To start a shard, execute this class with the port to listen to on the
+ * loopback interface, or zero to use any free port. The port is printed to
+ * the standard output once the shard is ready.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class ShardServer {
+
+    public static void main(final String[] args) throws IOException {
+
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        final ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        System.out.println(serverSocket.getLocalPort());
+        System.out.flush();
+
+        while (true) {
+            final Socket socket = serverSocket.accept();
+            socket.setTcpNoDelay(true);
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        new Partition().serve(socket);
+                    } catch (final IOException e) {
+                        System.err.println("The connection failed: " + e.getMessage());
+                    }
+                }
+            }, "minas-shard-" + socket.getPort());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Centroids held for a single connection.
+     */
+    private static final class Partition {
+
+        private double[] centroids;
+        private int[] ids;
+        private int size;
+        private int dimensions;
+        private final Map<Integer, Integer> rowById;
+
+        private Partition() {
+            this.centroids = new double[0];
+            this.ids = new int[0];
+            this.dimensions = -1;
+            this.rowById = new HashMap<>();
+        }
+
+        private void serve(final Socket socket) throws IOException {
+
+            try (final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                 final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+
+                while (true) {
+
+                    final int type;
+                    try {
+                        type = in.readByte();
+                    } catch (final EOFException e) {
+                        return;
+                    }
+
+                    if (type == ShardProtocol.ADD) {
+                        final int id = in.readInt();
+                        final int length = in.readInt();
+                        if (this.dimensions == -1) {
+                            this.dimensions = length;
+                        }
+                        this.add(id, in);
+                    } else if (type == ShardProtocol.UPDATE) {
+                        final int row = this.rowById.get(in.readInt());
+                        for (int i = 0; i < this.dimensions; ++i) {
+                            this.centroids[row * this.dimensions + i] = in.readDouble();
+                        }
+                    } else if (type == ShardProtocol.REMOVE) {
+                        this.remove(this.rowById.remove(in.readInt()));
+                    } else if (type == ShardProtocol.CLEAR) {
+                        this.size = 0;
+                        this.rowById.clear();
+                    } else if (type == ShardProtocol.QUERY) {
+                        this.query(in, out);
+                        out.flush();
+                    } else {
+                        throw new IOException("Unknown command " + type);
+                    }
+                }
+            }
+        }
+
+        private void add(final int id, final DataInputStream in) throws IOException {
+
+            if (this.size == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, Math.max(16, this.ids.length * 2));
+                this.centroids = Arrays.copyOf(this.centroids, this.ids.length * this.dimensions);
+            }
+
+            for (int i = 0; i < this.dimensions; ++i) {
+                this.centroids[this.size * this.dimensions + i] = in.readDouble();
+            }
+            this.ids[this.size] = id;
+            this.rowById.put(id, this.size);
+            ++this.size;
+        }
+
+        /**
+         * Removes a row, shifting the following ones so that the rows stay in
+         * the order of their ids.
+         */
+        private void remove(final int row) {
+            System.arraycopy(this.centroids, (row + 1) * this.dimensions, this.centroids, row * this.dimensions,
+                    (this.size - row - 1) * this.dimensions);
+            System.arraycopy(this.ids, row + 1, this.ids, row, this.size - row - 1);
+            --this.size;
+            for (int i = row; i < this.size; ++i) {
+                this.rowById.put(this.ids[i], i);
+            }
+        }
+
+        private void query(final DataInputStream in, final DataOutputStream out) throws IOException {
+
+            final int count = in.readInt();
+            final int length = in.readInt();
+            if (this.size > 0 && length != this.dimensions) {
+                throw new IOException("Query with " + length + " dimensions over centroids with " + this.dimensions);
+            }
+            final double[] x = new double[length];
+
+            for (int p = 0; p < count; ++p) {
+
+                for (int i = 0; i < x.length; ++i) {
+                    x[i] = in.readDouble();
+                }
+
+                final int row = this.size == 0 ? -1 : DistanceKernel.getBackend().calculateClosestRow(x, 0,
+                        this.centroids, 0, this.size, this.dimensions);
+                if (row == -1) {
+                    out.writeInt(-1);
+                    out.writeDouble(Double.POSITIVE_INFINITY);
+                } else {
+                    out.writeInt(this.ids[row]);
+                    out.writeDouble(DistanceKernel.squaredDistance(this.centroids, row * this.dimensions, x, 0,
+                            this.dimensions, Double.POSITIVE_INFINITY));
+                }
+            }
+        }
+    }
+}
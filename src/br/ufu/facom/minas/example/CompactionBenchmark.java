@@ -0,0 +1,106 @@
+package br.ufu.facom.minas.example;
+
+import br.ufu.facom.minas.core.CompactionReport;
+import br.ufu.facom.minas.core.DatasetFileReader;
+import br.ufu.facom.minas.core.MINAS;
+import br.ufu.facom.minas.core.MINASConfiguration;
+import br.ufu.facom.minas.core.MINASModel;
+import br.ufu.facom.minas.core.clustering.CluStream;
+import br.ufu.facom.minas.core.clustering.KMeans;
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+import br.ufu.facom.minas.core.decisionrule.datainstance.DataInstanceDecisionRule_1;
+import br.ufu.facom.minas.core.decisionrule.microcluster.MicroClusterDecisionRule_4;
+
+import java.util.Locale;
+
+/**
+ * Compares the online phase of MINAS with and without the periodic
+ * compaction of the decision model (see {@link MINASModel#compact()}). For
+ * each setting, the model is trained on the MOA3 dataset, with the same
+ * parameters as the {@link MOA3} example, and the rest of the dataset is
+ * processed. After each compaction, the size of the decision model before
+ * and after it, the mean time spent per data instance since the previous
+ * one and the measures of the model are printed.
+ *
+ * <p>The number of windows between two compactions can be given as the
+ * first argument, and the maximum number of micro-clusters per label as the
+ * second argument.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class CompactionBenchmark {
+
+    public static final int COMPACTION_INTERVAL = 1;
+    public static final int MAX_MICRO_CLUSTERS_PER_LABEL = Integer.MAX_VALUE;
+
+    public static void main(final String[] args) throws Exception {
+
+        final int compactionInterval = args.length > 0 ? Integer.parseInt(args[0]) : COMPACTION_INTERVAL;
+        final int maxPerLabel = args.length > 1 ? Integer.parseInt(args[1]) : MAX_MICRO_CLUSTERS_PER_LABEL;
+
+        run(0, Integer.MAX_VALUE);
+        run(compactionInterval, maxPerLabel);
+    }
+
+    private static void run(final int compactionInterval, final int maxPerLabel) throws Exception {
+
+        // Initializes a file reader for the dataset.
+        final DatasetFileReader datasetFileReader = new DatasetFileReader(MOA3.DATASET_COLUMN_SEPARATOR, MOA3.DATASET);
+
+        // Define the parameters that will be used by MINAS.
+        final MINASConfiguration config = new MINASConfiguration(
+                new CluStream(MOA3.CLU_STREAM_INITIAL_DATA_SIZE, MOA3.CLU_STREAM_BUFFER_MAX_SIZE),
+                new KMeans(MOA3.K_MEANS_K),
+                new MicroClusterDecisionRule_4(),
+                new DataInstanceDecisionRule_1(MOA3.DECISION_RULE_FACTOR),
+                MOA3.TEMPORARY_MEMORY_MAX_SIZE,
+                MOA3.MINIMUM_CLUSTER_SIZE,
+                MOA3.WINDOW_SIZE,
+                MOA3.MICRO_CLUSTER_LIFESPAN,
+                MOA3.INSTANCE_LIFESPAN,
+                MOA3.IS_INCREMENTAL);
+
+        // Executes the offline phase, initializing the model.
+        final MINASModel model = MINAS.initializeModel(datasetFileReader.iterateBatch(MOA3.TRAINING_DATA_SIZE), config);
+        model.setCompactionInterval(compactionInterval);
+        model.setMaxMicroClustersPerLabel(maxPerLabel);
+
+        System.out.println(compactionInterval == 0 ? "Without compaction"
+                : "Compaction every " + compactionInterval + " windows");
+
+        long instanceCount = 0;
+        long segmentCount = 0;
+        long segmentStart = System.nanoTime();
+        final long start = segmentStart;
+
+        DataInstance instance;
+        while ((instance = datasetFileReader.getNext()) != null) {
+
+            final int compactionCount = model.getCompactionCount();
+            MINAS.process(instance, model, config);
+            ++instanceCount;
+            ++segmentCount;
+
+            if (model.getCompactionCount() != compactionCount) {
+                final CompactionReport report = model.getLastCompactionReport();
+                final long now = System.nanoTime();
+                System.out.println(String.format(Locale.ROOT,
+                        "Timestamp = %d; Size = %d -> %d; Merges = %d + %d; Time per instance = %.1f us; UnkR = %.4f; CER = %.4f",
+                        report.getTimestamp(), report.getSizeBefore(), report.getSizeAfter(),
+                        report.getOverlapMergeCount(), report.getCapMergeCount(),
+                        (now - segmentStart) / 1e3 / segmentCount, report.getUnkR(), report.getCER()));
+                segmentCount = 0;
+                segmentStart = now;
+            }
+        }
+
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        datasetFileReader.close();
+
+        System.out.println(String.format(Locale.ROOT,
+                "Throughput = %.0f instances/s; Decision model size = %d; Novelty count = %d; UnkR = %s; CER = %s",
+                instanceCount / seconds, model.getDecisionModelSize(), model.getNoveltyCount(),
+                model.getConfusionMatrix().measureUnkR(), model.getConfusionMatrix().measureCER()));
+    }
+}
@@ -0,0 +1,116 @@
+package br.ufu.facom.minas.example;
+
+import br.ufu.facom.minas.core.distance.DistanceBackend;
+import br.ufu.facom.minas.core.distance.DistanceKernel;
+import br.ufu.facom.minas.core.distance.MatrixDistanceKernel;
+import br.ufu.facom.minas.core.distance.ScalarDistanceBackend;
+
+import java.util.Random;
+
+/**
+ * Benchmark comparing the scalar and the vector distance backends on the
+ * nearest centroid search of a single point, for several dimensionalities.
+ * The blocked batch search of {@link MatrixDistanceKernel}, which the scalar
+ * backend uses for batches of points, is measured separately, since it is a
+ * different algorithm. The vector backend is only available if it was
+ * compiled and the {@code jdk.incubator.vector} module was added to the JVM
+ * (see the README).
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class DistanceBenchmark {
+
+    public static final int[] DIMENSIONS = new int[]{8, 16, 32, 40, 54, 64, 128, 256};
+    public static final int CENTROIDS = 1000;
+    public static final int POINTS = 2000;
+    public static final int WARM_UP_ROUNDS = 3;
+    public static final int ROUNDS = 5;
+
+    public static void main(final String[] args) {
+
+        final DistanceBackend scalar = new ScalarDistanceBackend();
+        final DistanceBackend vector = DistanceKernel.loadVectorBackend();
+
+        if (vector == null) {
+            System.out.println("The vector backend is not available, only the scalar backend will be measured.");
+        }
+
+        System.out.println("dimensions;scalar_ns_per_distance;vector_ns_per_distance;speed_up;blocked_batch_ns_per_distance");
+
+        final Random random = new Random(0);
+        for (final int dimensions : DIMENSIONS) {
+
+            final double[] centroids = randomMatrix(random, CENTROIDS, dimensions);
+            final double[] points = randomMatrix(random, POINTS, dimensions);
+            final int[] result = new int[POINTS];
+
+            final double scalarTime = measure(scalar, points, centroids, dimensions, result);
+            final double vectorTime = vector == null
+                    ? Double.NaN
+                    : measure(vector, points, centroids, dimensions, result);
+
+            final double blockedTime = measureBlocked(points, centroids, dimensions, result);
+
+            System.out.println(String.format("%d;%.3f;%.3f;%.2f;%.3f",
+                    dimensions, scalarTime, vectorTime, scalarTime / vectorTime, blockedTime));
+        }
+    }
+
+    private static double measure(final DistanceBackend backend,
+                                  final double[] points,
+                                  final double[] centroids,
+                                  final int dimensions,
+                                  final int[] result) {
+
+        for (int i = 0; i < WARM_UP_ROUNDS; ++i) {
+            searchEach(backend, points, centroids, dimensions, result);
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; ++i) {
+            searchEach(backend, points, centroids, dimensions, result);
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        return elapsed / ((double) ROUNDS * POINTS * CENTROIDS);
+    }
+
+    private static void searchEach(final DistanceBackend backend,
+                                   final double[] points,
+                                   final double[] centroids,
+                                   final int dimensions,
+                                   final int[] result) {
+
+        for (int p = 0; p < POINTS; ++p) {
+            result[p] = backend.calculateClosestRow(points, p * dimensions, centroids, 0, CENTROIDS, dimensions);
+        }
+    }
+
+    private static double measureBlocked(final double[] points,
+                                         final double[] centroids,
+                                         final int dimensions,
+                                         final int[] result) {
+
+        for (int i = 0; i < WARM_UP_ROUNDS; ++i) {
+            MatrixDistanceKernel.calculateClosestRows(points, POINTS, centroids, CENTROIDS, dimensions, result);
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; ++i) {
+            MatrixDistanceKernel.calculateClosestRows(points, POINTS, centroids, CENTROIDS, dimensions, result);
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        return elapsed / ((double) ROUNDS * POINTS * CENTROIDS);
+    }
+
+    private static double[] randomMatrix(final Random random, final int rows, final int dimensions) {
+        final double[] matrix = new double[rows * dimensions];
+        for (int i = 0; i < matrix.length; ++i) {
+            matrix[i] = random.nextDouble();
+        }
+        return matrix;
+    }
+
+}
@@ -49,9 +49,6 @@ public class MOA3 {
         // Initializes a file reader for the dataset.
         final DatasetFileReader datasetFileReader = new DatasetFileReader(DATASET_COLUMN_SEPARATOR, DATASET);
 
-        // Reads the data instances that are going to be used in the offline phase.
-        final List<DataInstance> trainingInstances = datasetFileReader.getBatch(TRAINING_DATA_SIZE);
-
         // Configures the clustering algorithm for the offline phase.
         final ClusteringAlgorithm clusteringForInitialization = new CluStream(CLU_STREAM_INITIAL_DATA_SIZE, CLU_STREAM_BUFFER_MAX_SIZE);
 
@@ -79,8 +76,10 @@ public class MOA3 {
 
         System.out.println("Training...");
 
-        // Executes the offline phase, initializing the model.
-        final MINASModel model = MINAS.initializeModel(trainingInstances, config);
+        // Executes the offline phase, initializing the model. The data
+        // instances used in the offline phase are streamed from the file, so
+        // that only the CluStream buffers are kept in memory.
+        final MINASModel model = MINAS.initializeModel(datasetFileReader.iterateBatch(TRAINING_DATA_SIZE), config);
 
         // Opens the file where the statistics will be printed.
         final FileWriter statisticsWriter = new FileWriter(OUTPUT_FILE_STATISTICS);
@@ -0,0 +1,111 @@
+package br.ufu.facom.minas.example;
+
+import br.ufu.facom.minas.core.DatasetFileReader;
+import br.ufu.facom.minas.core.MINAS;
+import br.ufu.facom.minas.core.MINASConfiguration;
+import br.ufu.facom.minas.core.MINASModel;
+import br.ufu.facom.minas.core.clustering.CluStream;
+import br.ufu.facom.minas.core.clustering.KMeans;
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+import br.ufu.facom.minas.core.decisionrule.datainstance.DataInstanceDecisionRule_1;
+import br.ufu.facom.minas.core.decisionrule.microcluster.MicroClusterDecisionRule_4;
+import br.ufu.facom.minas.core.pipeline.IngestionFrontEnd;
+import br.ufu.facom.minas.core.pipeline.OverloadPolicy;
+import br.ufu.facom.minas.core.pipeline.PipelineSink;
+import br.ufu.facom.minas.core.pipeline.ProcessedBatch;
+
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Example of how to keep the latency of MINAS bounded under load with an
+ * {@link IngestionFrontEnd}. For each {@link OverloadPolicy}, the model is
+ * trained on the MOA3 dataset, with the same parameters as the {@link MOA3}
+ * example, and the rest of the dataset is offered to the front-end at a
+ * fixed arrival rate. At the end, the number of data instances shed and
+ * degraded, the latency percentiles and the measures of the model are
+ * printed.
+ *
+ * <p>The arrival rate, in data instances per second, and the capacity of the
+ * queue can be given as the first and second arguments.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class OverloadSimulation {
+
+    public static final int ARRIVAL_RATE = 20000;
+    public static final int QUEUE_CAPACITY = 1000;
+    public static final int MAX_BATCH_SIZE = 100;
+
+    public static void main(final String[] args) throws Exception {
+
+        final int arrivalRate = args.length > 0 ? Integer.parseInt(args[0]) : ARRIVAL_RATE;
+        final int capacity = args.length > 1 ? Integer.parseInt(args[1]) : QUEUE_CAPACITY;
+
+        for (final OverloadPolicy policy : OverloadPolicy.values()) {
+            run(policy, arrivalRate, capacity);
+        }
+    }
+
+    private static void run(final OverloadPolicy policy, final int arrivalRate, final int capacity) throws Exception {
+
+        // Initializes a file reader for the dataset.
+        final DatasetFileReader datasetFileReader = new DatasetFileReader(MOA3.DATASET_COLUMN_SEPARATOR, MOA3.DATASET);
+
+        // Define the parameters that will be used by MINAS.
+        final MINASConfiguration config = new MINASConfiguration(
+                new CluStream(MOA3.CLU_STREAM_INITIAL_DATA_SIZE, MOA3.CLU_STREAM_BUFFER_MAX_SIZE),
+                new KMeans(MOA3.K_MEANS_K),
+                new MicroClusterDecisionRule_4(),
+                new DataInstanceDecisionRule_1(MOA3.DECISION_RULE_FACTOR),
+                MOA3.TEMPORARY_MEMORY_MAX_SIZE,
+                MOA3.MINIMUM_CLUSTER_SIZE,
+                MOA3.WINDOW_SIZE,
+                MOA3.MICRO_CLUSTER_LIFESPAN,
+                MOA3.INSTANCE_LIFESPAN,
+                MOA3.IS_INCREMENTAL);
+
+        // Executes the offline phase, initializing the model.
+        final MINASModel model = MINAS.initializeModel(datasetFileReader.iterateBatch(MOA3.TRAINING_DATA_SIZE), config);
+
+        final long[] labelingCount = new long[1];
+        final IngestionFrontEnd frontEnd = new IngestionFrontEnd(model, config, capacity, MAX_BATCH_SIZE, policy,
+                new PipelineSink() {
+                    @Override
+                    public void accept(final ProcessedBatch batch) {
+                        labelingCount[0] += batch.getLabelings().size();
+                    }
+                });
+        frontEnd.start();
+
+        // Offers the data instances at the arrival rate, without waiting
+        // for the ones that are late.
+        final long interval = 1000000000L / arrivalRate;
+        final long start = System.nanoTime();
+        long next = start;
+
+        DataInstance instance;
+        while ((instance = datasetFileReader.getNext()) != null) {
+            final long delay = next - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            frontEnd.offer(instance);
+            next += interval;
+        }
+
+        frontEnd.close();
+        datasetFileReader.close();
+
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.ROOT,
+                "Policy = %s; Offered = %d; Shed = %d; Degraded = %d; Labelings = %d; Throughput = %.0f instances/s",
+                policy, frontEnd.getOfferedCount(), frontEnd.getShedCount(), frontEnd.getDegradedCount(),
+                labelingCount[0], frontEnd.getProcessedCount() / seconds));
+        System.out.println("Latency: " + frontEnd.getLatencies());
+        System.out.println("Novelty count = " + model.getNoveltyCount()
+                + "; UnkR = " + model.getConfusionMatrix().measureUnkR()
+                + "; CER = " + model.getConfusionMatrix().measureCER() + ";");
+    }
+}
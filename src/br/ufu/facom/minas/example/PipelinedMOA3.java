@@ -0,0 +1,113 @@
+package br.ufu.facom.minas.example;
+
+import br.ufu.facom.minas.core.DatasetFileReader;
+import br.ufu.facom.minas.core.MINAS;
+import br.ufu.facom.minas.core.MINASConfiguration;
+import br.ufu.facom.minas.core.MINASModel;
+import br.ufu.facom.minas.core.clustering.CluStream;
+import br.ufu.facom.minas.core.clustering.KMeans;
+import br.ufu.facom.minas.core.datastructure.Labeling;
+import br.ufu.facom.minas.core.decisionrule.datainstance.DataInstanceDecisionRule_1;
+import br.ufu.facom.minas.core.decisionrule.microcluster.MicroClusterDecisionRule_4;
+import br.ufu.facom.minas.core.pipeline.MINASPipeline;
+import br.ufu.facom.minas.core.pipeline.PipelineSink;
+import br.ufu.facom.minas.core.pipeline.ProcessedBatch;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+
+/**
+ * Example of how to execute the online phase of MINAS with a
+ * {@link MINASPipeline}, so that the dataset file is read, the data instances
+ * are processed and the results are written by different threads. The
+ * parameters are the same as the ones of the {@link MOA3} example.
+ *
+ * <p>The statistics are written once per batch. The predictions are written
+ * as they are returned, so a timestamp may appear more than once, in which
+ * case the last prediction is the one that holds.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class PipelinedMOA3 {
+
+    public static final int BATCH_SIZE = 100;
+    public static final int BUFFER_CAPACITY = 64;
+
+    public static void main(final String[] args) throws Exception {
+
+        // Initializes a file reader for the dataset.
+        final DatasetFileReader datasetFileReader = new DatasetFileReader(MOA3.DATASET_COLUMN_SEPARATOR, MOA3.DATASET);
+
+        // Define the parameters that will be used by MINAS.
+        final MINASConfiguration config = new MINASConfiguration(
+                new CluStream(MOA3.CLU_STREAM_INITIAL_DATA_SIZE, MOA3.CLU_STREAM_BUFFER_MAX_SIZE),
+                new KMeans(MOA3.K_MEANS_K),
+                new MicroClusterDecisionRule_4(),
+                new DataInstanceDecisionRule_1(MOA3.DECISION_RULE_FACTOR),
+                MOA3.TEMPORARY_MEMORY_MAX_SIZE,
+                MOA3.MINIMUM_CLUSTER_SIZE,
+                MOA3.WINDOW_SIZE,
+                MOA3.MICRO_CLUSTER_LIFESPAN,
+                MOA3.INSTANCE_LIFESPAN,
+                MOA3.IS_INCREMENTAL);
+
+        System.out.println("Training...");
+
+        // Executes the offline phase, initializing the model.
+        final MINASModel model = MINAS.initializeModel(datasetFileReader.iterateBatch(MOA3.TRAINING_DATA_SIZE), config);
+
+        // Opens the files where the statistics and the predictions will be
+        // printed, each one written by its own sink.
+        final BufferedWriter statisticsBw = new BufferedWriter(new FileWriter(MOA3.OUTPUT_FILE_STATISTICS));
+        statisticsBw.write("timestamp;novelty_count;unkr;cer\n");
+
+        final BufferedWriter labelingsBw = new BufferedWriter(new FileWriter(MOA3.OUTPUT_FILE_PREDICTIONS));
+        labelingsBw.write("timestamp;label\n");
+
+        final PipelineSink statisticsSink = new PipelineSink() {
+            @Override
+            public void accept(final ProcessedBatch batch) throws Exception {
+                statisticsBw.write(batch.getLastTimestamp()
+                        + ";" + batch.getNoveltyCount()
+                        + ";" + batch.getUnkR()
+                        + ";" + batch.getCER() + "\n");
+            }
+        };
+
+        final PipelineSink labelingsSink = new PipelineSink() {
+            @Override
+            public void accept(final ProcessedBatch batch) throws Exception {
+                for (final Labeling labeling : batch.getLabelings()) {
+                    labelingsBw.write(labeling.getTimestamp() + ";" + labeling.getLabel() + "\n");
+                }
+            }
+        };
+
+        System.out.println("Processing...");
+
+        // Executes the online phase.
+        final MINASPipeline pipeline = new MINASPipeline(datasetFileReader, model, config,
+                BATCH_SIZE, BUFFER_CAPACITY, statisticsSink, labelingsSink);
+        pipeline.run();
+
+        // Prints the final statistics and the time spent by each stage in
+        // the console.
+        System.out.println("Timestamp = " + model.getLastTimestamp()
+                + "; Novelty count = " + model.getNoveltyCount()
+                + "; UnkR = " + model.getConfusionMatrix().measureUnkR()
+                + "; CER = " + model.getConfusionMatrix().measureCER() + ";");
+        System.out.print(pipeline.getReport());
+
+        // Closes the output files and also the dataset file reader.
+        statisticsBw.close();
+        labelingsBw.close();
+        datasetFileReader.close();
+
+        // Writes the final confusion matrix to a file.
+        final BufferedWriter finalConfusionMatrixBw = new BufferedWriter(
+                new FileWriter(MOA3.OUTPUT_FILE_FINAL_CONFUSION_MATRIX));
+        finalConfusionMatrixBw.write(model.getConfusionMatrix().toString());
+        finalConfusionMatrixBw.close();
+    }
+}
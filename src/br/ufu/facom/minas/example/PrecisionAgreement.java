@@ -0,0 +1,89 @@
+package br.ufu.facom.minas.example;
+
+import br.ufu.facom.minas.core.DatasetFileReader;
+import br.ufu.facom.minas.core.MINAS;
+import br.ufu.facom.minas.core.MINASConfiguration;
+import br.ufu.facom.minas.core.MINASModel;
+import br.ufu.facom.minas.core.clustering.CluStream;
+import br.ufu.facom.minas.core.clustering.KMeans;
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+import br.ufu.facom.minas.core.datastructure.Labeling;
+import br.ufu.facom.minas.core.decisionrule.datainstance.DataInstanceDecisionRule_1;
+import br.ufu.facom.minas.core.decisionrule.microcluster.MicroClusterDecisionRule_4;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class applies MINAS to the covtype dataset twice, first with the model
+ * stored in double precision and then in single precision (see
+ * {@link MINASModel#setSinglePrecision(boolean)}), and prints how many of the
+ * data instances received the same final label in both executions, along
+ * with the measures of each one.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class PrecisionAgreement {
+
+    public static void main(final String[] args) throws Exception {
+
+        final Map<Long, String> doublePrecisionLabels = new HashMap<>();
+        final Map<Long, String> singlePrecisionLabels = new HashMap<>();
+
+        System.out.println("Double precision: " + execute(false, doublePrecisionLabels));
+        System.out.println("Single precision: " + execute(true, singlePrecisionLabels));
+
+        int agreements = 0;
+        for (final Map.Entry<Long, String> entry : doublePrecisionLabels.entrySet()) {
+            if (entry.getValue().equals(singlePrecisionLabels.get(entry.getKey()))) {
+                ++agreements;
+            }
+        }
+
+        System.out.println(String.format("Agreement = %d/%d (%.4f%%)", agreements, doublePrecisionLabels.size(),
+                100.0 * agreements / doublePrecisionLabels.size()));
+    }
+
+    private static String execute(final boolean isSinglePrecision, final Map<Long, String> labels)
+            throws Exception {
+
+        final DatasetFileReader datasetFileReader = new DatasetFileReader(covtype.DATASET_COLUMN_SEPARATOR,
+                covtype.DATASET);
+        final List<DataInstance> trainingInstances = datasetFileReader.getBatch(covtype.TRAINING_DATA_SIZE);
+
+        final MINASConfiguration config = new MINASConfiguration(
+                new CluStream(covtype.CLU_STREAM_INITIAL_DATA_SIZE, covtype.CLU_STREAM_BUFFER_MAX_SIZE),
+                new KMeans(covtype.K_MEANS_K),
+                new MicroClusterDecisionRule_4(),
+                new DataInstanceDecisionRule_1(covtype.DECISION_RULE_FACTOR),
+                covtype.TEMPORARY_MEMORY_MAX_SIZE,
+                covtype.MINIMUM_CLUSTER_SIZE,
+                covtype.WINDOW_SIZE,
+                covtype.MICRO_CLUSTER_LIFESPAN,
+                covtype.INSTANCE_LIFESPAN,
+                covtype.IS_INCREMENTAL);
+
+        final MINASModel model = MINAS.initializeModel(trainingInstances, config);
+        model.setSinglePrecision(isSinglePrecision);
+
+        DataInstance instance = datasetFileReader.getNext();
+        while (instance != null) {
+
+            // The delayed classifications replace the previous labels of the
+            // data instances.
+            for (final Labeling labeling : MINAS.process(instance, model, config)) {
+                labels.put(labeling.getTimestamp(), labeling.getLabel());
+            }
+
+            instance = datasetFileReader.getNext();
+        }
+
+        datasetFileReader.close();
+
+        return "Novelty count = " + model.getNoveltyCount()
+                + "; UnkR = " + model.getConfusionMatrix().measureUnkR()
+                + "; CER = " + model.getConfusionMatrix().measureCER();
+    }
+}
@@ -0,0 +1,140 @@
+package br.ufu.facom.minas.example;
+
+import br.ufu.facom.minas.core.DatasetFileReader;
+import br.ufu.facom.minas.core.MINAS;
+import br.ufu.facom.minas.core.MINASConfiguration;
+import br.ufu.facom.minas.core.MINASModel;
+import br.ufu.facom.minas.core.clustering.CluStream;
+import br.ufu.facom.minas.core.clustering.KMeans;
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+import br.ufu.facom.minas.core.datastructure.Labeling;
+import br.ufu.facom.minas.core.decisionrule.datainstance.DataInstanceDecisionRule_1;
+import br.ufu.facom.minas.core.decisionrule.microcluster.MicroClusterDecisionRule_4;
+import br.ufu.facom.minas.core.server.LatencyHistogram;
+import br.ufu.facom.minas.core.server.ScoringClient;
+import br.ufu.facom.minas.core.server.ScoringServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Example of how to serve MINAS with a {@link ScoringServer} and load
+ * generator for it. The model is trained on the MOA3 dataset, with the same
+ * parameters as the {@link MOA3} example, and the server listens on the
+ * loopback interface. Then, several clients, each one on its own thread,
+ * send the rest of the dataset to the server, one instance at a time. At the
+ * end, the throughput and the latency percentiles seen by the clients and by
+ * the server are printed.
+ *
+ * <p>The number of clients and the maximum batch size can be given as the
+ * first and second arguments.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class ScoringLoadGenerator {
+
+    public static final int CLIENT_COUNT = 32;
+    public static final int MAX_BATCH_SIZE = 256;
+    public static final int QUEUE_CAPACITY = 4096;
+
+    public static void main(final String[] args) throws Exception {
+
+        final int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : CLIENT_COUNT;
+        final int maxBatchSize = args.length > 1 ? Integer.parseInt(args[1]) : MAX_BATCH_SIZE;
+
+        // Initializes a file reader for the dataset.
+        final DatasetFileReader datasetFileReader = new DatasetFileReader(MOA3.DATASET_COLUMN_SEPARATOR, MOA3.DATASET);
+
+        // Define the parameters that will be used by MINAS.
+        final MINASConfiguration config = new MINASConfiguration(
+                new CluStream(MOA3.CLU_STREAM_INITIAL_DATA_SIZE, MOA3.CLU_STREAM_BUFFER_MAX_SIZE),
+                new KMeans(MOA3.K_MEANS_K),
+                new MicroClusterDecisionRule_4(),
+                new DataInstanceDecisionRule_1(MOA3.DECISION_RULE_FACTOR),
+                MOA3.TEMPORARY_MEMORY_MAX_SIZE,
+                MOA3.MINIMUM_CLUSTER_SIZE,
+                MOA3.WINDOW_SIZE,
+                MOA3.MICRO_CLUSTER_LIFESPAN,
+                MOA3.INSTANCE_LIFESPAN,
+                MOA3.IS_INCREMENTAL);
+
+        System.out.println("Training...");
+
+        // Executes the offline phase, initializing the model.
+        final MINASModel model = MINAS.initializeModel(datasetFileReader.iterateBatch(MOA3.TRAINING_DATA_SIZE), config);
+
+        // Starts the server on any free port of the loopback interface.
+        final ScoringServer server = new ScoringServer(model, config,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), maxBatchSize, QUEUE_CAPACITY);
+        server.start();
+
+        System.out.println("Serving on port " + server.getPort() + " to " + clientCount + " clients...");
+
+        // Each client takes the next instance of the dataset, sends it and
+        // waits for the acknowledgement, recording the round trip time.
+        final List<LatencyHistogram> histograms = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        final AtomicLong labelingCount = new AtomicLong();
+        final long start = System.nanoTime();
+
+        for (int i = 0; i < clientCount; ++i) {
+
+            final LatencyHistogram histogram = new LatencyHistogram();
+            histograms.add(histogram);
+
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final List<Labeling> labelings = new ArrayList<>();
+                    try (final ScoringClient client = new ScoringClient("localhost", server.getPort())) {
+                        DataInstance instance;
+                        while ((instance = next(datasetFileReader)) != null) {
+                            final long sent = System.nanoTime();
+                            client.classify(instance.getValues(), instance.getLabel(), labelings);
+                            histogram.record((System.nanoTime() - sent) / 1000);
+                        }
+                    } catch (final IOException e) {
+                        throw new IllegalStateException("The client failed", e);
+                    }
+                    labelingCount.addAndGet(labelings.size());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        server.close();
+        datasetFileReader.close();
+
+        final LatencyHistogram clientLatencies = new LatencyHistogram();
+        for (final LatencyHistogram histogram : histograms) {
+            clientLatencies.merge(histogram);
+        }
+
+        System.out.println(String.format(Locale.ROOT, "Requests = %d; Labelings = %d; Throughput = %.0f requests/s; Mean batch size = %.1f",
+                server.getRequestCount(), labelingCount.get(), server.getRequestCount() / seconds,
+                (double) server.getRequestCount() / Math.max(server.getBatchCount(), 1)));
+        System.out.println("Client round trip: " + clientLatencies);
+        System.out.println("Server: " + server.getLatencies());
+        System.out.println("Novelty count = " + model.getNoveltyCount()
+                + "; UnkR = " + model.getConfusionMatrix().measureUnkR()
+                + "; CER = " + model.getConfusionMatrix().measureCER() + ";");
+    }
+
+    private static DataInstance next(final DatasetFileReader datasetFileReader) throws IOException {
+        synchronized (datasetFileReader) {
+            return datasetFileReader.getNext();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package br.ufu.facom.minas.example;
+
+import br.ufu.facom.minas.core.DatasetFileReader;
+import br.ufu.facom.minas.core.MINAS;
+import br.ufu.facom.minas.core.MINASConfiguration;
+import br.ufu.facom.minas.core.MINASModel;
+import br.ufu.facom.minas.core.clustering.CluStream;
+import br.ufu.facom.minas.core.clustering.KMeans;
+import br.ufu.facom.minas.core.datastructure.DataInstance;
+import br.ufu.facom.minas.core.datastructure.ShardPartitioning;
+import br.ufu.facom.minas.core.decisionrule.datainstance.DataInstanceDecisionRule_1;
+import br.ufu.facom.minas.core.decisionrule.microcluster.MicroClusterDecisionRule_4;
+import br.ufu.facom.minas.core.server.LatencyHistogram;
+import br.ufu.facom.minas.core.shard.ShardServer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the throughput and the latency of the online phase of MINAS as a
+ * function of the number of shards holding the centroids of the decision
+ * model (see {@link MINASModel#setShards(List, ShardPartitioning)}). Each
+ * shard is a {@link ShardServer} started in its own JVM, with the classpath
+ * of this one. For each number of shards, the model is trained on the MOA3
+ * dataset, with the same parameters as the {@link MOA3} example, and the
+ * rest of the dataset is processed in batches.
+ *
+ * <p>The numbers of shards to measure can be given as the first argument,
+ * separated by commas, zero meaning the local search, and the batch size
+ * as the second argument.
+ *
+ * @author <a href="https://github.com/douglas444">Douglas M. Cavalcanti</a>
+ * @since 1.0
+ */
+public class ShardingBenchmark {
+
+    public static final String SHARD_COUNTS = "0,1,2,4";
+    public static final int BATCH_SIZE = 1;
+
+    public static void main(final String[] args) throws Exception {
+
+        final String[] shardCounts = (args.length > 0 ? args[0] : SHARD_COUNTS).split(",");
+        final int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : BATCH_SIZE;
+
+        int maxShardCount = 0;
+        for (final String shardCount : shardCounts) {
+            maxShardCount = Math.max(maxShardCount, Integer.parseInt(shardCount.trim()));
+        }
+
+        final List<Process> processes = new ArrayList<>();
+        final List<InetSocketAddress> addresses = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < maxShardCount; ++i) {
+                final Process process = startShard();
+                processes.add(process);
+                addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), readPort(process)));
+            }
+
+            for (final String shardCount : shardCounts) {
+                run(addresses.subList(0, Integer.parseInt(shardCount.trim())), batchSize);
+            }
+        } finally {
+            for (final Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+
+    private static void run(final List<InetSocketAddress> shards, final int batchSize) throws Exception {
+
+        // Initializes a file reader for the dataset.
+        final DatasetFileReader datasetFileReader = new DatasetFileReader(MOA3.DATASET_COLUMN_SEPARATOR, MOA3.DATASET);
+
+        // Define the parameters that will be used by MINAS.
+        final MINASConfiguration config = new MINASConfiguration(
+                new CluStream(MOA3.CLU_STREAM_INITIAL_DATA_SIZE, MOA3.CLU_STREAM_BUFFER_MAX_SIZE),
+                new KMeans(MOA3.K_MEANS_K),
+                new MicroClusterDecisionRule_4(),
+                new DataInstanceDecisionRule_1(MOA3.DECISION_RULE_FACTOR),
+                MOA3.TEMPORARY_MEMORY_MAX_SIZE,
+                MOA3.MINIMUM_CLUSTER_SIZE,
+                MOA3.WINDOW_SIZE,
+                MOA3.MICRO_CLUSTER_LIFESPAN,
+                MOA3.INSTANCE_LIFESPAN,
+                MOA3.IS_INCREMENTAL);
+
+        // Executes the offline phase, initializing the model, and moves its
+        // centroids to the shards.
+        final MINASModel model = MINAS.initializeModel(datasetFileReader.iterateBatch(MOA3.TRAINING_DATA_SIZE), config);
+        model.setShards(shards, ShardPartitioning.ROUND_ROBIN);
+
+        final LatencyHistogram latencies = new LatencyHistogram();
+        long instanceCount = 0;
+        final long start = System.nanoTime();
+
+        DataInstance instance = datasetFileReader.getNext();
+        while (instance != null) {
+
+            final List<DataInstance> batch = new ArrayList<>(batchSize);
+            while (instance != null && batch.size() < batchSize) {
+                batch.add(instance);
+                instance = datasetFileReader.getNext();
+            }
+
+            final long sent = System.nanoTime();
+            MINAS.process(batch, model, config);
+            latencies.record((System.nanoTime() - sent) / 1000);
+            instanceCount += batch.size();
+        }
+
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        datasetFileReader.close();
+
+        System.out.println(String.format(Locale.ROOT, "Shards = %d; Throughput = %.0f instances/s; Novelty count = %d; CER = %s",
+                shards.size(), instanceCount / seconds, model.getNoveltyCount(),
+                model.getConfusionMatrix().measureCER()));
+        System.out.println("Batch latency: " + latencies);
+        model.setShards(new ArrayList<InetSocketAddress>(), ShardPartitioning.ROUND_ROBIN);
+    }
+
+    private static Process startShard() throws IOException {
+        final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(Arrays.asList(java, "-cp", System.getProperty("java.class.path"),
+                ShardServer.class.getName(), "0"))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    private static int readPort(final Process process) throws IOException {
+        final String line = new BufferedReader(new InputStreamReader(process.getInputStream())).readLine();
+        if (line == null) {
+            throw new IOException("The shard exited before listening");
+        }
+        return Integer.parseInt(line.trim());
+    }
+}